@@ -40,15 +40,14 @@ commentExpression
     ;
 
 messagesBlock
-    : messageExpression (NEWLINE messagesBlock)+
-    | messageExpression
+    : messageExpression (NEWLINE messageExpression)*
     ;
 
 messageExpression
     : messageIdPlural
     | messageId
     | messageContext
-    | messageNumStr (NEWLINE messageNumStr)*
+    | messageNumStr
     | messageStr
     ;
 
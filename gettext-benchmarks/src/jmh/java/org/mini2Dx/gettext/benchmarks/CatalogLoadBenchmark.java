@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright 2019 Thomas Cashman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.mini2Dx.gettext.benchmarks;
+
+import org.mini2Dx.gettext.PoFile;
+import org.mini2Dx.gettext.PoParseSettings;
+import org.mini2Dx.gettext.PoWriter;
+import org.mini2Dx.gettext.TranslationMap;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading, saving and converting a catalog of {@link #ENTRIES} entries generated by
+ * {@link SyntheticCatalog#generateAnnotated(Locale, int)}.<br>
+ * <br>
+ * Each operation is one entry, so the score is in entries per second and, with the gc profiler enabled in
+ * build.gradle, gc.alloc.rate.norm is the bytes allocated per entry. The bytes counter is the rate at which the
+ * encoded file (.po or binary) is read or written, divide by 1048576 for MB/s.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(CatalogLoadBenchmark.ENTRIES)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public class CatalogLoadBenchmark {
+	public static final int ENTRIES = 20000;
+
+	private static final Locale LOCALE = Locale.GERMANY;
+
+	private PoFile poFile;
+	private byte[] poBytes;
+	private byte[] binBytes;
+	private byte[] compressedBinBytes;
+	private File outputFile;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		poFile = SyntheticCatalog.generateAnnotated(LOCALE, ENTRIES);
+
+		final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		final PoWriter poWriter = new PoWriter(outputStream);
+		poWriter.write(poFile.getEntries());
+		poWriter.close();
+		poBytes = outputStream.toByteArray();
+
+		outputFile = File.createTempFile("catalog", ".bin");
+		outputFile.deleteOnExit();
+		poFile.saveToBin(outputFile);
+		binBytes = Files.readAllBytes(outputFile.toPath());
+		poFile.saveToBin(outputFile, true);
+		compressedBinBytes = Files.readAllBytes(outputFile.toPath());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		outputFile.delete();
+	}
+
+	/**
+	 * The .po parser, only used by benchmarks that parse so that the others run once
+	 */
+	@State(Scope.Benchmark)
+	public static class Parser {
+		@Param({ "handwritten", "antlr" })
+		public String parser;
+
+		private PoParseSettings parseSettings;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			parseSettings = new PoParseSettings();
+			parseSettings.antlr = "antlr".equals(parser);
+		}
+	}
+
+	/**
+	 * Encoded bytes read or written, reported per second
+	 */
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	@State(Scope.Thread)
+	public static class Bytes {
+		public long bytes;
+	}
+
+	@Benchmark
+	public PoFile parsePo(Parser parser, Bytes bytes) throws IOException {
+		bytes.bytes += poBytes.length;
+		return new PoFile(LOCALE, new ByteArrayInputStream(poBytes), parser.parseSettings);
+	}
+
+	@Benchmark
+	public PoFile readFromBin(Bytes bytes) throws IOException {
+		bytes.bytes += binBytes.length;
+		return PoFile.readFromBin(LOCALE, new ByteArrayInputStream(binBytes));
+	}
+
+	@Benchmark
+	public PoFile readFromCompressedBin(Bytes bytes) throws IOException {
+		bytes.bytes += compressedBinBytes.length;
+		return PoFile.readFromBin(LOCALE, new ByteArrayInputStream(compressedBinBytes));
+	}
+
+	@Benchmark
+	public File saveTo(Bytes bytes) throws IOException {
+		bytes.bytes += poBytes.length;
+		poFile.saveTo(outputFile);
+		return outputFile;
+	}
+
+	@Benchmark
+	public File saveToBin(Bytes bytes) throws IOException {
+		bytes.bytes += binBytes.length;
+		poFile.saveToBin(outputFile);
+		return outputFile;
+	}
+
+	@Benchmark
+	public File saveToCompressedBin(Bytes bytes) throws IOException {
+		bytes.bytes += compressedBinBytes.length;
+		poFile.saveToBin(outputFile, true);
+		return outputFile;
+	}
+
+	@Benchmark
+	public TranslationMap translationMapAdd() {
+		final TranslationMap translationMap = new TranslationMap(LOCALE);
+		translationMap.add(poFile);
+		return translationMap;
+	}
+
+	/**
+	 * Converts .po to binary as a build step would, parsing then writing the binary catalog
+	 */
+	@Benchmark
+	public File convertPoToBin(Parser parser, Bytes bytes) throws IOException {
+		bytes.bytes += poBytes.length;
+		new PoFile(LOCALE, new ByteArrayInputStream(poBytes), parser.parseSettings).saveToBin(outputFile);
+		return outputFile;
+	}
+}
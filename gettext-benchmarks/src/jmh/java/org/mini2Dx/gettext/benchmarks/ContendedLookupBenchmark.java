@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright 2019 Thomas Cashman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.mini2Dx.gettext.benchmarks;
+
+import org.mini2Dx.gettext.GetText;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link GetText} lookups from 1, 4 and all available threads sharing one locale and catalog. Each thread
+ * has its own {@link LookupBenchmark.Cursor} so threads look up different keys at the same time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class ContendedLookupBenchmark {
+	private static final Object[] VALUES = new Object[] { 42 };
+	private static final int ENTRIES = 100000;
+
+	private LookupKeys hitKeys;
+	private LookupKeys missKeys;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		final Locale locale = Locale.GERMANY;
+		GetText.add(SyntheticCatalog.generate(locale, ENTRIES));
+		GetText.setLocale(locale);
+
+		hitKeys = LookupKeys.hits(ENTRIES, SyntheticCatalog.TR);
+		missKeys = LookupKeys.misses(ENTRIES, SyntheticCatalog.TR);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public String trValues1Thread(LookupBenchmark.Cursor cursor) {
+		return GetText.tr(hitKeys.ids[cursor.next()], VALUES);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public String trValues4Threads(LookupBenchmark.Cursor cursor) {
+		return GetText.tr(hitKeys.ids[cursor.next()], VALUES);
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public String trValuesMaxThreads(LookupBenchmark.Cursor cursor) {
+		return GetText.tr(hitKeys.ids[cursor.next()], VALUES);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public String trMissValues1Thread(LookupBenchmark.Cursor cursor) {
+		return GetText.tr(missKeys.ids[cursor.next()], VALUES);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public String trMissValues4Threads(LookupBenchmark.Cursor cursor) {
+		return GetText.tr(missKeys.ids[cursor.next()], VALUES);
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public String trMissValuesMaxThreads(LookupBenchmark.Cursor cursor) {
+		return GetText.tr(missKeys.ids[cursor.next()], VALUES);
+	}
+}
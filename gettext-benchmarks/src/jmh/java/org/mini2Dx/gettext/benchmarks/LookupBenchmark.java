@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright 2019 Thomas Cashman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.mini2Dx.gettext.benchmarks;
+
+import org.mini2Dx.gettext.GetText;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link GetText} lookups for the current locale against catalogs of different sizes. Each invocation
+ * looks up the next of {@link SyntheticCatalog#SAMPLE_SIZE} random keys. Run with the gc profiler (enabled in
+ * build.gradle) to see the allocation rate per lookup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class LookupBenchmark {
+	private static final Object[] VALUES = new Object[] { 42 };
+
+	@Param({ "1000", "100000", "1000000" })
+	public int entries;
+
+	private LookupKeys trKeys;
+	private LookupKeys trcKeys;
+	private LookupKeys trnKeys;
+	private LookupKeys trncKeys;
+	private LookupKeys trMissKeys;
+	private LookupKeys trcMissKeys;
+	private LookupKeys trnMissKeys;
+	private LookupKeys trncMissKeys;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		final Locale locale = new Locale("de", "DE", "n" + entries);
+		GetText.add(SyntheticCatalog.generate(locale, entries));
+		GetText.setLocale(locale);
+
+		trKeys = LookupKeys.hits(entries, SyntheticCatalog.TR);
+		trcKeys = LookupKeys.hits(entries, SyntheticCatalog.TRC);
+		trnKeys = LookupKeys.hits(entries, SyntheticCatalog.TRN);
+		trncKeys = LookupKeys.hits(entries, SyntheticCatalog.TRNC);
+		trMissKeys = LookupKeys.misses(entries, SyntheticCatalog.TR);
+		trcMissKeys = LookupKeys.misses(entries, SyntheticCatalog.TRC);
+		trnMissKeys = LookupKeys.misses(entries, SyntheticCatalog.TRN);
+		trncMissKeys = LookupKeys.misses(entries, SyntheticCatalog.TRNC);
+	}
+
+	@State(Scope.Thread)
+	public static class Cursor {
+		private int next;
+
+		int next() {
+			return next++ & SyntheticCatalog.SAMPLE_MASK;
+		}
+	}
+
+	@Benchmark
+	public String tr(Cursor cursor) {
+		return GetText.tr(trKeys.ids[cursor.next()]);
+	}
+
+	@Benchmark
+	public String trValues(Cursor cursor) {
+		return GetText.tr(trKeys.ids[cursor.next()], VALUES);
+	}
+
+	@Benchmark
+	public String trc(Cursor cursor) {
+		final int i = cursor.next();
+		return GetText.trc(trcKeys.contexts[i], trcKeys.ids[i]);
+	}
+
+	@Benchmark
+	public String trcValues(Cursor cursor) {
+		final int i = cursor.next();
+		return GetText.trc(trcKeys.contexts[i], trcKeys.ids[i], VALUES);
+	}
+
+	@Benchmark
+	public String trn(Cursor cursor) {
+		final int i = cursor.next();
+		return GetText.trn(trnKeys.ids[i], trnKeys.idPlurals[i], i);
+	}
+
+	@Benchmark
+	public String trnValues(Cursor cursor) {
+		final int i = cursor.next();
+		return GetText.trn(trnKeys.ids[i], trnKeys.idPlurals[i], i, VALUES);
+	}
+
+	@Benchmark
+	public String trnc(Cursor cursor) {
+		final int i = cursor.next();
+		return GetText.trnc(trncKeys.contexts[i], trncKeys.ids[i], trncKeys.idPlurals[i], i);
+	}
+
+	@Benchmark
+	public String trncValues(Cursor cursor) {
+		final int i = cursor.next();
+		return GetText.trnc(trncKeys.contexts[i], trncKeys.ids[i], trncKeys.idPlurals[i], i, VALUES);
+	}
+
+	@Benchmark
+	public String trMiss(Cursor cursor) {
+		return GetText.tr(trMissKeys.ids[cursor.next()]);
+	}
+
+	@Benchmark
+	public String trMissValues(Cursor cursor) {
+		return GetText.tr(trMissKeys.ids[cursor.next()], VALUES);
+	}
+
+	@Benchmark
+	public String trcMissValues(Cursor cursor) {
+		final int i = cursor.next();
+		return GetText.trc(trcMissKeys.contexts[i], trcMissKeys.ids[i], VALUES);
+	}
+
+	@Benchmark
+	public String trnMissValues(Cursor cursor) {
+		final int i = cursor.next();
+		return GetText.trn(trnMissKeys.ids[i], trnMissKeys.idPlurals[i], i, VALUES);
+	}
+
+	@Benchmark
+	public String trncMissValues(Cursor cursor) {
+		final int i = cursor.next();
+		return GetText.trnc(trncMissKeys.contexts[i], trncMissKeys.ids[i], trncMissKeys.idPlurals[i], i, VALUES);
+	}
+}
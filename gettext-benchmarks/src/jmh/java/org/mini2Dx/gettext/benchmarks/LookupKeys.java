@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright 2019 Thomas Cashman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.mini2Dx.gettext.benchmarks;
+
+/**
+ * Pre-built lookup arguments so that benchmarks only measure the lookup. Entries that are missing from the catalog
+ * use the same shape of msgid and msgctxt as entries that exist.
+ */
+public final class LookupKeys {
+	public final String[] ids = new String[SyntheticCatalog.SAMPLE_SIZE];
+	public final String[] contexts = new String[SyntheticCatalog.SAMPLE_SIZE];
+	public final String[] idPlurals = new String[SyntheticCatalog.SAMPLE_SIZE];
+
+	private LookupKeys() {
+		super();
+	}
+
+	/**
+	 * Samples entries of one kind from a catalog generated by {@link SyntheticCatalog#generate(java.util.Locale, int)}
+	 * @param totalEntries The number of entries in the catalog
+	 * @param kind {@link SyntheticCatalog#TR}, {@link SyntheticCatalog#TRC}, {@link SyntheticCatalog#TRN} or {@link SyntheticCatalog#TRNC}
+	 * @return A new {@link LookupKeys}
+	 */
+	public static LookupKeys hits(int totalEntries, int kind) {
+		final LookupKeys result = new LookupKeys();
+		final int[] indices = SyntheticCatalog.sample(totalEntries, kind);
+		for(int i = 0; i < indices.length; i++) {
+			result.ids[i] = SyntheticCatalog.id(indices[i]);
+			result.contexts[i] = SyntheticCatalog.context(indices[i]);
+			result.idPlurals[i] = SyntheticCatalog.idPlural(indices[i]);
+		}
+		return result;
+	}
+
+	/**
+	 * Generates keys of one kind that are not in a catalog
+	 * @param totalEntries The number of entries in the catalog
+	 * @param kind {@link SyntheticCatalog#TR}, {@link SyntheticCatalog#TRC}, {@link SyntheticCatalog#TRN} or {@link SyntheticCatalog#TRNC}
+	 * @return A new {@link LookupKeys}
+	 */
+	public static LookupKeys misses(int totalEntries, int kind) {
+		final LookupKeys result = new LookupKeys();
+		//Indices past the end of the catalog are never generated
+		final int firstIndex = (totalEntries & ~3) + 4 + kind;
+		for(int i = 0; i < SyntheticCatalog.SAMPLE_SIZE; i++) {
+			final int index = firstIndex + (i * 4);
+			result.ids[i] = SyntheticCatalog.id(index);
+			result.contexts[i] = SyntheticCatalog.context(index);
+			result.idPlurals[i] = SyntheticCatalog.idPlural(index);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright 2019 Thomas Cashman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.mini2Dx.gettext.benchmarks;
+
+import org.mini2Dx.gettext.GetText;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link GetText} lookups for a locale with no catalog, i.e. the source text fallback
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class NoCatalogBenchmark {
+	private static final Object[] VALUES = new Object[] { 42 };
+
+	private LookupKeys trKeys;
+	private LookupKeys trcKeys;
+	private LookupKeys trnKeys;
+	private LookupKeys trncKeys;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		GetText.setLocale(new Locale("eo"));
+
+		trKeys = LookupKeys.misses(0, SyntheticCatalog.TR);
+		trcKeys = LookupKeys.misses(0, SyntheticCatalog.TRC);
+		trnKeys = LookupKeys.misses(0, SyntheticCatalog.TRN);
+		trncKeys = LookupKeys.misses(0, SyntheticCatalog.TRNC);
+	}
+
+	@Benchmark
+	public String tr(LookupBenchmark.Cursor cursor) {
+		return GetText.tr(trKeys.ids[cursor.next()]);
+	}
+
+	@Benchmark
+	public String trValues(LookupBenchmark.Cursor cursor) {
+		return GetText.tr(trKeys.ids[cursor.next()], VALUES);
+	}
+
+	@Benchmark
+	public String trcValues(LookupBenchmark.Cursor cursor) {
+		final int i = cursor.next();
+		return GetText.trc(trcKeys.contexts[i], trcKeys.ids[i], VALUES);
+	}
+
+	@Benchmark
+	public String trn(LookupBenchmark.Cursor cursor) {
+		final int i = cursor.next();
+		return GetText.trn(trnKeys.ids[i], trnKeys.idPlurals[i], i);
+	}
+
+	@Benchmark
+	public String trnValues(LookupBenchmark.Cursor cursor) {
+		final int i = cursor.next();
+		return GetText.trn(trnKeys.ids[i], trnKeys.idPlurals[i], i, VALUES);
+	}
+
+	@Benchmark
+	public String trncValues(LookupBenchmark.Cursor cursor) {
+		final int i = cursor.next();
+		return GetText.trnc(trncKeys.contexts[i], trncKeys.ids[i], trncKeys.idPlurals[i], i, VALUES);
+	}
+}
@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright 2019 Thomas Cashman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.mini2Dx.gettext.benchmarks;
+
+import org.mini2Dx.gettext.PoFile;
+import org.mini2Dx.gettext.TranslationEntry;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generates catalogs of a given size for benchmarking. Entry i is looked up via tr when i % 4 == 0, trc when
+ * i % 4 == 1, trn when i % 4 == 2 and trnc when i % 4 == 3. Every msgid contains a {0} argument.
+ */
+public final class SyntheticCatalog {
+	public static final int TR = 0;
+	public static final int TRC = 1;
+	public static final int TRN = 2;
+	public static final int TRNC = 3;
+
+	/**
+	 * The number of keys sampled for lookups, a power of two so that cursors can wrap with a mask
+	 */
+	public static final int SAMPLE_SIZE = 1024;
+	public static final int SAMPLE_MASK = SAMPLE_SIZE - 1;
+
+	private static final String LONG_SOURCE_TEXT = ".\\nThe caravan leaves at dawn, so pack everything you need for " +
+			"the journey and say goodbye to anyone you will miss.\\nYou will not be able to return to the village.";
+	private static final String LONG_TRANSLATED_TEXT = ".\\nDie Karawane bricht im Morgengrauen auf, also packe alles ein, " +
+			"was du für die Reise brauchst, und verabschiede dich.\\nDu kannst nicht ins Dorf zurückkehren.";
+
+	private SyntheticCatalog() {
+		super();
+	}
+
+	/**
+	 * Generates a catalog with a German style plural rule
+	 * @param locale The {@link Locale} of the catalog
+	 * @param totalEntries The number of entries, excluding the header
+	 * @return A new {@link PoFile}
+	 */
+	public static PoFile generate(Locale locale, int totalEntries) {
+		final PoFile result = new PoFile(locale);
+		final TranslationEntry header = new TranslationEntry();
+		header.setId("");
+		header.setString(0, "Content-Type: text/plain; charset=UTF-8\\n" +
+				"Plural-Forms: nplurals=2; plural=(n != 1);\\n");
+		result.getEntries().add(header);
+
+		for(int i = 0; i < totalEntries; i++) {
+			final TranslationEntry entry = new TranslationEntry();
+			entry.setContext(context(i));
+			entry.setId(id(i));
+			if(isPlural(i)) {
+				entry.setIdPlural(idPlural(i));
+				entry.setString(0, "Nachricht Nummer " + i + " mit {0}");
+				entry.setString(1, "Nachrichten Nummer " + i + " mit {0}");
+			} else {
+				entry.setString(0, "Nachricht Nummer " + i + " mit {0}");
+			}
+			result.getEntries().add(entry);
+		}
+		return result;
+	}
+
+	/**
+	 * Generates a catalog shaped like one maintained by translators. As well as the entries of
+	 * {@link #generate(Locale, int)}, entries have translator and extracted comments, references and flags, some
+	 * have merge comments and every eighth entry has a long multi-line msgid and msgstr.
+	 * @param locale The {@link Locale} of the catalog
+	 * @param totalEntries The number of entries, excluding the header
+	 * @return A new {@link PoFile}
+	 */
+	public static PoFile generateAnnotated(Locale locale, int totalEntries) {
+		final PoFile result = generate(locale, totalEntries);
+		for(int i = 0; i < totalEntries; i++) {
+			final TranslationEntry entry = result.getEntries().get(i + 1);
+			entry.getTranslatorComments().add("Reviewed by translator " + (i % 7));
+			entry.getExtractedComments().add("Shown in the " + (i % 3 == 0 ? "inventory" : "dialogue") + " window");
+			entry.setReference("src/main/java/org/example/game/Screen" + (i % 97) + ".java:" + (i % 500 + 1));
+			entry.getFlags().add(i % 10 == 0 ? "fuzzy, java-format" : "java-format");
+			if(i % 10 == 0) {
+				entry.getMergeComments().add("msgid Message number " + (i + 1));
+			}
+			if(i % 8 == 5) {
+				entry.setId(id(i) + LONG_SOURCE_TEXT);
+				for(int j = 0; j < entry.getStrings().size(); j++) {
+					entry.setString(j, entry.getStrings().get(j) + LONG_TRANSLATED_TEXT);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Samples entries of one kind
+	 * @param totalEntries The number of entries in the catalog
+	 * @param kind {@link #TR}, {@link #TRC}, {@link #TRN} or {@link #TRNC}
+	 * @return {@link #SAMPLE_SIZE} entry indices, in random order
+	 */
+	public static int[] sample(int totalEntries, int kind) {
+		final Random random = new Random(totalEntries * 31L + kind);
+		final int entriesOfKind = totalEntries / 4;
+		final int[] result = new int[SAMPLE_SIZE];
+		for(int i = 0; i < SAMPLE_SIZE; i++) {
+			result[i] = (random.nextInt(entriesOfKind) * 4) + kind;
+		}
+		return result;
+	}
+
+	public static String id(int index) {
+		return "Message number " + index + " with {0}";
+	}
+
+	public static String idPlural(int index) {
+		return "Messages number " + index + " with {0}";
+	}
+
+	public static String context(int index) {
+		final int kind = index & 3;
+		return kind == TRC || kind == TRNC ? "context " + (index & 15) : null;
+	}
+
+	public static boolean isPlural(int index) {
+		final int kind = index & 3;
+		return kind == TRN || kind == TRNC;
+	}
+}
@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright 2019 Thomas Cashman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.mini2Dx.gettext;
+
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.mini2Dx.gettext.antlr.GetTextLexer;
+import org.mini2Dx.gettext.antlr.GetTextParser;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Pooled lexer and parser for the ANTLR path of {@link PoFile}.<br>
+ * <br>
+ * Files are first parsed with SLL prediction and {@link BailErrorStrategy}, which is sufficient for almost all
+ * input, and only reparsed with full LL prediction if that fails. Entries are passed to the {@link PoFile} as rules
+ * complete rather than by walking a parse tree afterwards.
+ */
+final class AntlrPipeline {
+	private static final int MAX_POOLED = Runtime.getRuntime().availableProcessors();
+	private static final Queue<AntlrPipeline> POOL = new ConcurrentLinkedQueue<AntlrPipeline>();
+
+	private static final LexerErrorListener LEXER_ERROR_LISTENER = new LexerErrorListener();
+	private static final ParserErrorListener PARSER_ERROR_LISTENER = new ParserErrorListener();
+	private static final BailErrorStrategy BAIL_ERROR_STRATEGY = new BailErrorStrategy();
+
+	private final GetTextLexer lexer;
+	private final BufferedTokenStream tokenStream;
+	private final GetTextParser parser;
+
+	private AntlrPipeline() {
+		super();
+		lexer = new GetTextLexer(null);
+		lexer.removeErrorListeners();
+		lexer.addErrorListener(LEXER_ERROR_LISTENER);
+		tokenStream = new BufferedTokenStream(lexer);
+		parser = new GetTextParser(tokenStream);
+	}
+
+	/**
+	 * Parses a .po file, adding its entries to a {@link PoFile}
+	 * @param charStream The {@link CharStream} to parse
+	 * @param poFile The {@link PoFile} receiving the entries
+	 * @throws ParseCancellationException Thrown if the file is not a valid .po file
+	 */
+	static void parse(CharStream charStream, PoFile poFile) {
+		AntlrPipeline pipeline = POOL.poll();
+		if(pipeline == null) {
+			pipeline = new AntlrPipeline();
+		}
+		try {
+			pipeline.read(charStream, poFile);
+		} finally {
+			pipeline.release();
+		}
+	}
+
+	private void read(CharStream charStream, PoFile poFile) {
+		lexer.setInputStream(charStream);
+		tokenStream.setTokenSource(lexer);
+		//Lexing errors are reported before parsing so they are not mistaken for an SLL failure
+		tokenStream.fill();
+
+		parser.setInputStream(tokenStream);
+		parser.addParseListener(poFile);
+		parser.removeErrorListeners();
+		parser.setErrorHandler(BAIL_ERROR_STRATEGY);
+		parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+		try {
+			parser.po();
+			return;
+		} catch (ParseCancellationException e) {
+			poFile.clearEntries();
+		}
+
+		tokenStream.seek(0);
+		parser.reset();
+		parser.addErrorListener(PARSER_ERROR_LISTENER);
+		parser.setErrorHandler(new DefaultErrorStrategy());
+		parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+		parser.po();
+	}
+
+	private void release() {
+		parser.removeParseListeners();
+		parser.reset();
+		lexer.setInputStream(null);
+		tokenStream.setTokenSource(lexer);
+		if(POOL.size() < MAX_POOLED) {
+			POOL.offer(this);
+		}
+	}
+}
@@ -0,0 +1,811 @@
+/*******************************************************************************
+ * Copyright 2019 Thomas Cashman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.mini2Dx.gettext;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Reads and writes the binary format used by {@link PoFile#saveToBin(File)}.<br>
+ * <br>
+ * Version 2 files are laid out as follows, all integers big-endian:
+ * <pre>
+ * header    magic 'GTXB', version, total strings, total entries, offsets of the sections below,
+ *           file length, CRC32 of everything after the header
+ * strings   offsets of each string (total strings + 1), then the UTF-8 bytes of all distinct strings
+ * entries   one record of string indices per entry, -1 for null
+ * offsets   the offset of each entry record
+ * index     entry indices sorted by (msgctxt, msgid)
+ * </pre>
+ * Version 3 files, written by {@link PoFile#saveToBin(File, boolean)}, group entries into independently
+ * deflated blocks so that a single entry can be read by inflating one block:
+ * <pre>
+ * header    magic 'GTXB', version, total entries, total blocks, offsets of the sections below,
+ *           file length, CRC32 of everything after the header
+ * blocks    offset, first entry and inflated length of each block (total blocks + 1)
+ * index     the hash of (msgctxt, msgid) and index of each entry, sorted by hash
+ * data      the deflated blocks, each holding the strings of consecutive entries
+ * </pre>
+ * Version 1 files (an entry count followed by each entry via {@link TranslationEntry#writeTo(DataOutputStream)})
+ * are still read.
+ */
+final class BinFormat {
+	static final int MAGIC = 0x47545842;
+	static final int VERSION = 2;
+	static final int COMPRESSED_VERSION = 3;
+
+	private static final int HEADER_SIZE = 44;
+	private static final int NULL_STRING = -1;
+	private static final int BLOCK_SIZE = 8192;
+	private static final int BLOCK_TABLE_ENTRY_SIZE = 12;
+	private static final int HASH_INDEX_ENTRY_SIZE = 8;
+
+	private static final Comparator<TranslationEntry> KEY_COMPARATOR = new Comparator<TranslationEntry>() {
+		@Override
+		public int compare(TranslationEntry entry1, TranslationEntry entry2) {
+			return compareKey(entry1.getContext(), entry1.getId(), entry2.getContext(), entry2.getId());
+		}
+	};
+
+	private BinFormat() {
+		super();
+	}
+
+	static void write(final List<TranslationEntry> entries, OutputStream outputStream) throws IOException {
+		final Map<String, Integer> stringIndices = new HashMap<String, Integer>();
+		final List<String> strings = new ArrayList<String>();
+		final IntList records = new IntList(entries.size() * 12);
+		final int[] recordOffsets = new int[entries.size()];
+
+		for(int i = 0; i < entries.size(); i++) {
+			final TranslationEntry entry = entries.get(i);
+			recordOffsets[i] = records.size * 4;
+			addStrings(records, entry.getTranslatorComments(), stringIndices, strings);
+			addStrings(records, entry.getExtractedComments(), stringIndices, strings);
+			addStrings(records, entry.getFlags(), stringIndices, strings);
+			addStrings(records, entry.getMergeComments(), stringIndices, strings);
+			records.add(indexOf(entry.getReference(), stringIndices, strings));
+			records.add(indexOf(entry.getContext(), stringIndices, strings));
+			records.add(indexOf(entry.getId(), stringIndices, strings));
+			records.add(indexOf(entry.getIdPlural(), stringIndices, strings));
+			if(entry.getStrings().isEmpty()) {
+				//Matches version 1 which always writes the msgstr slots
+				final int totalStrings = entry.getIdPlural() != null && !entry.getIdPlural().isEmpty() ? 3 : 1;
+				records.add(totalStrings);
+				for(int j = 0; j < totalStrings; j++) {
+					records.add(indexOf("", stringIndices, strings));
+				}
+			} else {
+				records.add(entry.getStrings().size());
+				for(int j = 0; j < entry.getStrings().size(); j++) {
+					final String str = entry.getStrings().get(j);
+					records.add(indexOf(str == null ? "" : str, stringIndices, strings));
+				}
+			}
+		}
+
+		final byte[][] encodedStrings = new byte[strings.size()][];
+		int stringDataLength = 0;
+		for(int i = 0; i < strings.size(); i++) {
+			encodedStrings[i] = strings.get(i).getBytes(StandardCharsets.UTF_8);
+			stringDataLength += encodedStrings[i].length;
+		}
+
+		final Integer[] index = new Integer[entries.size()];
+		for(int i = 0; i < index.length; i++) {
+			index[i] = i;
+		}
+		Arrays.sort(index, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer index1, Integer index2) {
+				return KEY_COMPARATOR.compare(entries.get(index1), entries.get(index2));
+			}
+		});
+
+		final int stringOffsetsOffset = HEADER_SIZE;
+		final int stringDataOffset = stringOffsetsOffset + ((strings.size() + 1) * 4);
+		final int recordsOffset = stringDataOffset + stringDataLength;
+		final int recordOffsetsOffset = recordsOffset + (records.size * 4);
+		final int indexOffset = recordOffsetsOffset + (entries.size() * 4);
+		final int length = indexOffset + (entries.size() * 4);
+
+		final ByteBuffer buffer = ByteBuffer.allocate(length);
+		buffer.putInt(MAGIC).putInt(VERSION).putInt(strings.size()).putInt(entries.size());
+		buffer.putInt(stringOffsetsOffset).putInt(stringDataOffset).putInt(recordsOffset)
+				.putInt(recordOffsetsOffset).putInt(indexOffset).putInt(length).putInt(0);
+
+		int stringOffset = 0;
+		for(int i = 0; i < encodedStrings.length; i++) {
+			buffer.putInt(stringOffset);
+			stringOffset += encodedStrings[i].length;
+		}
+		buffer.putInt(stringOffset);
+		for(int i = 0; i < encodedStrings.length; i++) {
+			buffer.put(encodedStrings[i]);
+		}
+		buffer.asIntBuffer().put(records.values, 0, records.size);
+		buffer.position(recordOffsetsOffset);
+		buffer.asIntBuffer().put(recordOffsets);
+		buffer.position(indexOffset);
+		for(int i = 0; i < index.length; i++) {
+			buffer.putInt(index[i]);
+		}
+
+		final CRC32 crc32 = new CRC32();
+		crc32.update(buffer.array(), HEADER_SIZE, length - HEADER_SIZE);
+		buffer.putInt(HEADER_SIZE - 4, (int) crc32.getValue());
+
+		outputStream.write(buffer.array());
+		outputStream.flush();
+	}
+
+	/**
+	 * Reads all entries of a version 1 or version 2 file
+	 * @param inputStream The {@link InputStream} to read from
+	 * @param stringPool The {@link StringPool} to deduplicate strings with, or null to keep the strings as they are
+	 * @return A new list of entries
+	 * @throws IOException Thrown if the file could not be read or is corrupt
+	 */
+	static List<TranslationEntry> read(InputStream inputStream, StringPool stringPool) throws IOException {
+		final DataInputStream dataInputStream = new DataInputStream(new BufferedInputStream(inputStream));
+		final int magic = dataInputStream.readInt();
+		if(magic != MAGIC) {
+			return readVersion1(dataInputStream, magic, stringPool);
+		}
+		final int version = dataInputStream.readInt();
+		if(version != VERSION && version != COMPRESSED_VERSION) {
+			throw new IOException("Unsupported binary catalog version " + version);
+		}
+
+		final byte[] header = new byte[HEADER_SIZE];
+		dataInputStream.readFully(header, 8, HEADER_SIZE - 8);
+		final int length = ByteBuffer.wrap(header).getInt(36);
+		if(length < HEADER_SIZE) {
+			throw new IOException("Corrupt binary catalog");
+		}
+		final byte[] bytes = new byte[length];
+		System.arraycopy(header, 0, bytes, 0, HEADER_SIZE);
+		dataInputStream.readFully(bytes, HEADER_SIZE, length - HEADER_SIZE);
+
+		final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		buffer.putInt(0, MAGIC).putInt(4, version);
+		verifyChecksum(buffer);
+		if(version == COMPRESSED_VERSION) {
+			final List<TranslationEntry> result = readCompressed(buffer);
+			if(stringPool != null) {
+				for(int i = 0; i < result.size(); i++) {
+					stringPool.intern(result.get(i));
+				}
+			}
+			return result;
+		}
+
+		final String[] strings = readStrings(buffer);
+		final int totalEntries = buffer.getInt(12);
+		final IntBuffer records = slice(buffer, buffer.getInt(24), buffer.getInt(28));
+
+		final StringTable loadedStrings = new LoadedStrings(strings);
+		final List<TranslationEntry> result = new ArrayList<TranslationEntry>(totalEntries);
+		for(int i = 0; i < totalEntries; i++) {
+			final TranslationEntry entry = readEntry(records, loadedStrings);
+			if(stringPool != null) {
+				stringPool.intern(entry);
+			}
+			result.add(entry);
+		}
+		return result;
+	}
+
+	/**
+	 * Reads a single entry from a version 2 or 3 file using its index, without reading any other entries
+	 * @param buffer The {@link ByteBuffer} containing the file from position 0
+	 * @param context Null or empty for the default context, else msgctxt
+	 * @param id The msgid
+	 * @return Null if no entry exists
+	 * @throws IOException Thrown if the buffer does not contain a version 2 or 3 file
+	 */
+	static TranslationEntry find(ByteBuffer buffer, String context, String id) throws IOException {
+		if(buffer.remaining() >= HEADER_SIZE && buffer.getInt(0) == MAGIC && buffer.getInt(4) == COMPRESSED_VERSION) {
+			return findCompressed(buffer, context, id);
+		}
+		if(buffer.remaining() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+			throw new IOException("Not a version " + VERSION + " binary catalog");
+		}
+		final int totalEntries = buffer.getInt(12);
+		final IntBuffer stringOffsets = slice(buffer, buffer.getInt(16), buffer.getInt(20));
+		final int stringDataOffset = buffer.getInt(20);
+		final IntBuffer records = slice(buffer, buffer.getInt(24), buffer.getInt(28));
+		final int recordOffsetsOffset = buffer.getInt(28);
+		final int indexOffset = buffer.getInt(32);
+
+		int low = 0;
+		int high = totalEntries - 1;
+		while(low <= high) {
+			final int middle = (low + high) >>> 1;
+			final int entryIndex = buffer.getInt(indexOffset + (middle * 4));
+			records.position(buffer.getInt(recordOffsetsOffset + (entryIndex * 4)) / 4);
+			//Skip the comments, flags and reference
+			for(int i = 0; i < 4; i++) {
+				final int total = records.get();
+				records.position(records.position() + total);
+			}
+			records.get();
+			final String entryContext = readString(buffer, stringOffsets, stringDataOffset, records.get());
+			final String entryId = readString(buffer, stringOffsets, stringDataOffset, records.get());
+
+			final int comparison = compareKey(entryContext, entryId, context, id);
+			if(comparison == 0) {
+				records.position(buffer.getInt(recordOffsetsOffset + (entryIndex * 4)) / 4);
+				return readEntry(records, new LazyStrings(buffer, stringOffsets, stringDataOffset));
+			} else if(comparison < 0) {
+				low = middle + 1;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Writes entries as a version 3 file
+	 * @param entries The entries to write
+	 * @param outputStream The {@link OutputStream} to write to
+	 * @throws IOException Thrown if the entries could not be written
+	 */
+	static void writeCompressed(List<TranslationEntry> entries, OutputStream outputStream) throws IOException {
+		final int[] hashes = new int[entries.size()];
+		final Integer[] index = new Integer[entries.size()];
+		for(int i = 0; i < index.length; i++) {
+			hashes[i] = keyHash(entries.get(i).getContext(), entries.get(i).getId());
+			index[i] = i;
+		}
+		//The sort is stable so entries with equal hashes keep their order
+		Arrays.sort(index, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer index1, Integer index2) {
+				return Integer.compare(hashes[index1], hashes[index2]);
+			}
+		});
+
+		final IntList blockTable = new IntList((entries.size() / 32) * 3);
+		final ByteArrayOutputStream blockData = new ByteArrayOutputStream(BLOCK_SIZE * 2);
+		final DataOutputStream blockOutput = new DataOutputStream(blockData);
+		final ByteArrayOutputStream compressedData = new ByteArrayOutputStream();
+		final byte[] deflateBuffer = new byte[BLOCK_SIZE];
+		final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+		try {
+			int firstEntry = 0;
+			//Blocks keep the order of the entries so that related entries are compressed and cached together
+			for(int i = 0; i < entries.size(); i++) {
+				writeEntry(blockOutput, entries.get(i));
+				if(blockData.size() < BLOCK_SIZE && i < entries.size() - 1) {
+					continue;
+				}
+				blockTable.add(compressedData.size());
+				blockTable.add(firstEntry);
+				blockTable.add(blockData.size());
+
+				deflater.reset();
+				deflater.setInput(blockData.toByteArray());
+				deflater.finish();
+				while(!deflater.finished()) {
+					compressedData.write(deflateBuffer, 0, deflater.deflate(deflateBuffer));
+				}
+				blockData.reset();
+				firstEntry = i + 1;
+			}
+		} finally {
+			deflater.end();
+		}
+		final int totalBlocks = blockTable.size / 3;
+		blockTable.add(compressedData.size());
+		blockTable.add(entries.size());
+		blockTable.add(0);
+
+		final int blockTableOffset = HEADER_SIZE;
+		final int indexOffset = blockTableOffset + (blockTable.size * 4);
+		final int dataOffset = indexOffset + (index.length * HASH_INDEX_ENTRY_SIZE);
+		final int length = dataOffset + compressedData.size();
+
+		final ByteBuffer buffer = ByteBuffer.allocate(dataOffset);
+		buffer.putInt(MAGIC).putInt(COMPRESSED_VERSION).putInt(entries.size()).putInt(totalBlocks);
+		buffer.putInt(blockTableOffset).putInt(indexOffset).putInt(dataOffset).putInt(0).putInt(0)
+				.putInt(length).putInt(0);
+		buffer.asIntBuffer().put(blockTable.values, 0, blockTable.size);
+		buffer.position(indexOffset);
+		for(int i = 0; i < index.length; i++) {
+			buffer.putInt(hashes[index[i]]).putInt(index[i]);
+		}
+		final byte[] data = compressedData.toByteArray();
+
+		final CRC32 crc32 = new CRC32();
+		crc32.update(buffer.array(), HEADER_SIZE, dataOffset - HEADER_SIZE);
+		crc32.update(data);
+		buffer.putInt(HEADER_SIZE - 4, (int) crc32.getValue());
+
+		outputStream.write(buffer.array());
+		outputStream.write(data);
+		outputStream.flush();
+	}
+
+	/**
+	 * Checks the header and section offsets of a version 3 file
+	 * @param buffer The {@link ByteBuffer} containing the file from position 0
+	 * @throws IOException Thrown if the buffer does not contain a version 3 file
+	 */
+	static void checkCompressed(ByteBuffer buffer) throws IOException {
+		if(buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != COMPRESSED_VERSION) {
+			throw new IOException("Not a compressed binary catalog");
+		}
+		final long totalEntries = buffer.getInt(8);
+		final long totalBlocks = buffer.getInt(12);
+		final long indexOffset = HEADER_SIZE + ((totalBlocks + 1) * BLOCK_TABLE_ENTRY_SIZE);
+		final long dataOffset = indexOffset + (totalEntries * HASH_INDEX_ENTRY_SIZE);
+		if(totalEntries < 0 || totalBlocks < 0 || buffer.getInt(16) != HEADER_SIZE || buffer.getInt(20) != indexOffset ||
+				buffer.getInt(24) != dataOffset || dataOffset > buffer.limit()) {
+			throw new IOException("Corrupt binary catalog");
+		}
+	}
+
+	/**
+	 * Returns the first position in the index of a version 3 file with a hash
+	 * @param buffer The {@link ByteBuffer} containing the file from position 0
+	 * @param hash The hash from {@link #keyHash(String, String)}
+	 * @return -1 if no entry has the hash
+	 */
+	static int firstIndexOf(ByteBuffer buffer, int hash) {
+		final int indexOffset = buffer.getInt(20);
+		int low = 0;
+		int high = buffer.getInt(8) - 1;
+		int result = -1;
+		while(low <= high) {
+			final int middle = (low + high) >>> 1;
+			final int middleHash = buffer.getInt(indexOffset + (middle * HASH_INDEX_ENTRY_SIZE));
+			if(middleHash < hash) {
+				low = middle + 1;
+			} else {
+				if(middleHash == hash) {
+					result = middle;
+				}
+				high = middle - 1;
+			}
+		}
+		return result;
+	}
+
+	static int hashAt(ByteBuffer buffer, int position) {
+		return buffer.getInt(buffer.getInt(20) + (position * HASH_INDEX_ENTRY_SIZE));
+	}
+
+	static int entryAt(ByteBuffer buffer, int position) throws IOException {
+		final int result = buffer.getInt(buffer.getInt(20) + (position * HASH_INDEX_ENTRY_SIZE) + 4);
+		if(result < 0 || result >= buffer.getInt(8)) {
+			throw new IOException("Corrupt binary catalog");
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the block of a version 3 file containing an entry
+	 * @param buffer The {@link ByteBuffer} containing the file from position 0
+	 * @param index The index of the entry
+	 * @return The block index
+	 */
+	static int blockOf(ByteBuffer buffer, int index) {
+		int low = 0;
+		int high = buffer.getInt(12) - 1;
+		while(low < high) {
+			final int middle = (low + high + 1) >>> 1;
+			if(firstEntryOf(buffer, middle) <= index) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return low;
+	}
+
+	static int firstEntryOf(ByteBuffer buffer, int block) {
+		return buffer.getInt(HEADER_SIZE + (block * BLOCK_TABLE_ENTRY_SIZE) + 4);
+	}
+
+	/**
+	 * Inflates a block of a version 3 file
+	 * @param buffer The {@link ByteBuffer} containing the file from position 0
+	 * @param block The block index
+	 * @return The entries of the block
+	 * @throws IOException Thrown if the block is corrupt
+	 */
+	static TranslationEntry[] readBlock(ByteBuffer buffer, int block) throws IOException {
+		if(block < 0 || block >= buffer.getInt(12)) {
+			throw new IOException("Corrupt binary catalog");
+		}
+		final int blockOffset = HEADER_SIZE + (block * BLOCK_TABLE_ENTRY_SIZE);
+		final int dataOffset = buffer.getInt(24);
+		final int start = dataOffset + buffer.getInt(blockOffset);
+		final int end = dataOffset + buffer.getInt(blockOffset + BLOCK_TABLE_ENTRY_SIZE);
+		final int firstEntry = buffer.getInt(blockOffset + 4);
+		final int totalEntries = buffer.getInt(blockOffset + BLOCK_TABLE_ENTRY_SIZE + 4) - firstEntry;
+		final int length = buffer.getInt(blockOffset + 8);
+		if(start < dataOffset || end < start || end > buffer.limit() || firstEntry < 0 || totalEntries < 0 ||
+				firstEntry + totalEntries > buffer.getInt(8) || length < 0) {
+			throw new IOException("Corrupt binary catalog");
+		}
+
+		final byte[] compressed;
+		final int compressedOffset;
+		if(buffer.hasArray()) {
+			compressed = buffer.array();
+			compressedOffset = buffer.arrayOffset() + start;
+		} else {
+			compressed = new byte[end - start];
+			compressedOffset = 0;
+			final ByteBuffer duplicate = buffer.duplicate();
+			duplicate.position(start);
+			duplicate.get(compressed);
+		}
+		//One spare byte so that the inflater reaches the end of the stream
+		final byte[] bytes = new byte[length + 1];
+		int inflated = 0;
+		final Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(compressed, compressedOffset, end - start);
+			while(!inflater.finished() && !inflater.needsInput() && inflated < bytes.length) {
+				inflated += inflater.inflate(bytes, inflated, bytes.length - inflated);
+			}
+			if(!inflater.finished() || inflated != length) {
+				throw new IOException("Corrupt binary catalog");
+			}
+		} catch (DataFormatException e) {
+			throw new IOException("Corrupt binary catalog", e);
+		} finally {
+			inflater.end();
+		}
+
+		final ByteBuffer data = ByteBuffer.wrap(bytes, 0, length);
+		final TranslationEntry[] result = new TranslationEntry[totalEntries];
+		try {
+			for(int i = 0; i < totalEntries; i++) {
+				result[i] = readEntry(data);
+			}
+		} catch (BufferUnderflowException e) {
+			throw new IOException("Corrupt binary catalog", e);
+		}
+		return result;
+	}
+
+	/**
+	 * Inflates all entries of a version 3 file without verifying its checksum
+	 * @param buffer The {@link ByteBuffer} containing the file from position 0
+	 * @return A new list of entries in their original order
+	 * @throws IOException Thrown if the file is corrupt
+	 */
+	static List<TranslationEntry> readCompressed(ByteBuffer buffer) throws IOException {
+		checkCompressed(buffer);
+		final List<TranslationEntry> result = new ArrayList<TranslationEntry>(buffer.getInt(8));
+		for(int block = 0; block < buffer.getInt(12); block++) {
+			result.addAll(Arrays.asList(readBlock(buffer, block)));
+		}
+		if(result.size() != buffer.getInt(8)) {
+			throw new IOException("Corrupt binary catalog");
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the hash used to index entries of version 3 files
+	 * @param context Null or empty for the default context, else msgctxt
+	 * @param id The msgid
+	 * @return The hash
+	 */
+	static int keyHash(String context, String id) {
+		return (normalise(context).hashCode() * 31) + normalise(id).hashCode();
+	}
+
+	static boolean matches(String context1, String id1, String context2, String id2) {
+		return compareKey(context1, id1, context2, id2) == 0;
+	}
+
+	private static TranslationEntry findCompressed(ByteBuffer buffer, String context, String id) throws IOException {
+		checkCompressed(buffer);
+		final int hash = keyHash(context, id);
+		final int totalEntries = buffer.getInt(8);
+		TranslationEntry result = null;
+		for(int position = firstIndexOf(buffer, hash); position >= 0 && position < totalEntries &&
+				hashAt(buffer, position) == hash; position++) {
+			final int index = entryAt(buffer, position);
+			final int block = blockOf(buffer, index);
+			final TranslationEntry entry = readBlock(buffer, block)[index - firstEntryOf(buffer, block)];
+			//As with TranslationMap, the last duplicate wins
+			if(matches(entry.getContext(), entry.getId(), context, id)) {
+				result = entry;
+			}
+		}
+		return result;
+	}
+
+	private static void writeEntry(DataOutputStream outputStream, TranslationEntry entry) throws IOException {
+		writeStrings(outputStream, entry.getTranslatorComments());
+		writeStrings(outputStream, entry.getExtractedComments());
+		writeStrings(outputStream, entry.getFlags());
+		writeStrings(outputStream, entry.getMergeComments());
+		writeString(outputStream, entry.getReference());
+		writeString(outputStream, entry.getContext());
+		writeString(outputStream, entry.getId());
+		writeString(outputStream, entry.getIdPlural());
+		if(entry.getStrings().isEmpty()) {
+			//Matches version 2
+			final int totalStrings = entry.getIdPlural() != null && !entry.getIdPlural().isEmpty() ? 3 : 1;
+			outputStream.writeInt(totalStrings);
+			for(int i = 0; i < totalStrings; i++) {
+				writeString(outputStream, "");
+			}
+		} else {
+			outputStream.writeInt(entry.getStrings().size());
+			for(int i = 0; i < entry.getStrings().size(); i++) {
+				final String str = entry.getStrings().get(i);
+				writeString(outputStream, str == null ? "" : str);
+			}
+		}
+	}
+
+	private static void writeStrings(DataOutputStream outputStream, List<String> values) throws IOException {
+		outputStream.writeInt(values.size());
+		for(int i = 0; i < values.size(); i++) {
+			writeString(outputStream, values.get(i));
+		}
+	}
+
+	private static void writeString(DataOutputStream outputStream, String str) throws IOException {
+		if(str == null) {
+			outputStream.writeInt(NULL_STRING);
+			return;
+		}
+		final byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+		outputStream.writeInt(bytes.length);
+		outputStream.write(bytes);
+	}
+
+	private static TranslationEntry readEntry(ByteBuffer data) throws IOException {
+		final TranslationEntry entry = new TranslationEntry();
+		readStrings(data, entry.getTranslatorComments());
+		readStrings(data, entry.getExtractedComments());
+		readStrings(data, entry.getFlags());
+		readStrings(data, entry.getMergeComments());
+		entry.setReference(readString(data));
+		entry.setContext(readString(data));
+		entry.setId(readString(data));
+		entry.setIdPlural(readString(data));
+		final int totalStrings = data.getInt();
+		for(int i = 0; i < totalStrings; i++) {
+			entry.setString(i, readString(data));
+		}
+		return entry;
+	}
+
+	private static void readStrings(ByteBuffer data, List<String> result) throws IOException {
+		final int total = data.getInt();
+		for(int i = 0; i < total; i++) {
+			result.add(readString(data));
+		}
+	}
+
+	private static String readString(ByteBuffer data) throws IOException {
+		final int length = data.getInt();
+		if(length == NULL_STRING) {
+			return null;
+		}
+		if(length < 0 || length > data.remaining()) {
+			throw new IOException("Corrupt binary catalog");
+		}
+		final String result = new String(data.array(), data.position(), length, StandardCharsets.UTF_8);
+		data.position(data.position() + length);
+		return result;
+	}
+
+	private static List<TranslationEntry> readVersion1(DataInputStream inputStream, int totalEntries,
+	                                                   StringPool stringPool) throws IOException {
+		final List<TranslationEntry> result = new ArrayList<TranslationEntry>(Math.max(0, Math.min(totalEntries, 1 << 16)));
+		for(int i = 0; i < totalEntries; i++) {
+			final TranslationEntry translationEntry = new TranslationEntry();
+			translationEntry.readFrom(inputStream);
+			if(stringPool != null) {
+				stringPool.intern(translationEntry);
+			}
+			result.add(translationEntry);
+		}
+		return result;
+	}
+
+	private static void verifyChecksum(ByteBuffer buffer) throws IOException {
+		final CRC32 crc32 = new CRC32();
+		crc32.update(buffer.array(), HEADER_SIZE, buffer.capacity() - HEADER_SIZE);
+		if((int) crc32.getValue() != buffer.getInt(HEADER_SIZE - 4)) {
+			throw new IOException("Binary catalog checksum mismatch");
+		}
+	}
+
+	private static String[] readStrings(ByteBuffer buffer) throws IOException {
+		final int totalStrings = buffer.getInt(8);
+		final int stringDataOffset = buffer.getInt(20);
+		final IntBuffer stringOffsets = slice(buffer, buffer.getInt(16), stringDataOffset);
+		if(stringOffsets.limit() != totalStrings + 1) {
+			throw new IOException("Corrupt binary catalog");
+		}
+		final String[] result = new String[totalStrings];
+		for(int i = 0; i < totalStrings; i++) {
+			result[i] = readString(buffer, stringOffsets, stringDataOffset, i);
+		}
+		return result;
+	}
+
+	private static String readString(ByteBuffer buffer, IntBuffer stringOffsets, int stringDataOffset, int index)
+			throws IOException {
+		if(index == NULL_STRING) {
+			return null;
+		}
+		if(index < 0 || index + 1 >= stringOffsets.limit()) {
+			throw new IOException("Corrupt binary catalog");
+		}
+		final int start = stringDataOffset + stringOffsets.get(index);
+		final int end = stringDataOffset + stringOffsets.get(index + 1);
+		if(start < stringDataOffset || end < start || end > buffer.limit()) {
+			throw new IOException("Corrupt binary catalog");
+		}
+		if(buffer.hasArray()) {
+			return new String(buffer.array(), buffer.arrayOffset() + start, end - start, StandardCharsets.UTF_8);
+		}
+		final byte[] bytes = new byte[end - start];
+		final ByteBuffer duplicate = buffer.duplicate();
+		duplicate.position(start);
+		duplicate.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static TranslationEntry readEntry(IntBuffer records, StringTable strings) throws IOException {
+		final TranslationEntry entry = new TranslationEntry();
+		readStrings(records, strings, entry.getTranslatorComments());
+		readStrings(records, strings, entry.getExtractedComments());
+		readStrings(records, strings, entry.getFlags());
+		readStrings(records, strings, entry.getMergeComments());
+		entry.setReference(strings.get(records.get()));
+		entry.setContext(strings.get(records.get()));
+		entry.setId(strings.get(records.get()));
+		entry.setIdPlural(strings.get(records.get()));
+		final int totalStrings = records.get();
+		for(int i = 0; i < totalStrings; i++) {
+			entry.setString(i, strings.get(records.get()));
+		}
+		return entry;
+	}
+
+	private static void readStrings(IntBuffer records, StringTable strings, List<String> result) throws IOException {
+		final int total = records.get();
+		for(int i = 0; i < total; i++) {
+			result.add(strings.get(records.get()));
+		}
+	}
+
+	private static IntBuffer slice(ByteBuffer buffer, int start, int end) throws IOException {
+		if(start < HEADER_SIZE || end < start || end > buffer.limit() || ((end - start) & 3) != 0) {
+			throw new IOException("Corrupt binary catalog");
+		}
+		final ByteBuffer duplicate = buffer.duplicate();
+		duplicate.position(start);
+		duplicate.limit(end);
+		return duplicate.slice().asIntBuffer();
+	}
+
+	private static void addStrings(IntList records, List<String> values, Map<String, Integer> stringIndices,
+	                               List<String> strings) {
+		records.add(values.size());
+		for(int i = 0; i < values.size(); i++) {
+			records.add(indexOf(values.get(i), stringIndices, strings));
+		}
+	}
+
+	private static int indexOf(String str, Map<String, Integer> stringIndices, List<String> strings) {
+		if(str == null) {
+			return NULL_STRING;
+		}
+		Integer result = stringIndices.get(str);
+		if(result == null) {
+			result = strings.size();
+			strings.add(str);
+			stringIndices.put(str, result);
+		}
+		return result;
+	}
+
+	private static int compareKey(String context1, String id1, String context2, String id2) {
+		final int result = normalise(context1).compareTo(normalise(context2));
+		if(result != 0) {
+			return result;
+		}
+		return normalise(id1).compareTo(normalise(id2));
+	}
+
+	private static String normalise(String str) {
+		return str == null ? "" : str;
+	}
+
+	private interface StringTable {
+		String get(int index) throws IOException;
+	}
+
+	private static class LoadedStrings implements StringTable {
+		private final String[] strings;
+
+		LoadedStrings(String[] strings) {
+			super();
+			this.strings = strings;
+		}
+
+		@Override
+		public String get(int index) throws IOException {
+			if(index == NULL_STRING) {
+				return null;
+			}
+			if(index < 0 || index >= strings.length) {
+				throw new IOException("Corrupt binary catalog");
+			}
+			return strings[index];
+		}
+	}
+
+	private static class LazyStrings implements StringTable {
+		private final ByteBuffer buffer;
+		private final IntBuffer stringOffsets;
+		private final int stringDataOffset;
+
+		LazyStrings(ByteBuffer buffer, IntBuffer stringOffsets, int stringDataOffset) {
+			super();
+			this.buffer = buffer;
+			this.stringOffsets = stringOffsets;
+			this.stringDataOffset = stringDataOffset;
+		}
+
+		@Override
+		public String get(int index) throws IOException {
+			return readString(buffer, stringOffsets, stringDataOffset, index);
+		}
+	}
+
+	private static class IntList {
+		private int[] values;
+		private int size;
+
+		IntList(int initialCapacity) {
+			super();
+			values = new int[Math.max(16, initialCapacity)];
+		}
+
+		void add(int value) {
+			if(size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+	}
+}
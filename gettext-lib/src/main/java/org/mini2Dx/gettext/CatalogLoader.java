@@ -0,0 +1,245 @@
+/*******************************************************************************
+ * Copyright 2019 Thomas Cashman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.mini2Dx.gettext;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks {@link CatalogSource}s registered via {@link GetText#register(CatalogSource)} and loads them in the
+ * background the first time their {@link Locale} is needed.<br>
+ * <br>
+ * Note: All methods except {@link #execute(Runnable)} and {@link #isRegistered(Locale)} must be called while holding
+ * {@link GetText}'s write lock
+ */
+final class CatalogLoader {
+	private static final Executor DIRECT_EXECUTOR = new Executor() {
+		@Override
+		public void execute(Runnable command) {
+			command.run();
+		}
+	};
+
+	private final Object lock;
+	private final Map<Locale, List<CatalogSource>> pending = new HashMap<Locale, List<CatalogSource>>();
+	private final Map<Locale, FutureTask<Void>> loading = new HashMap<Locale, FutureTask<Void>>();
+	/**
+	 * Every {@link Locale} a source has been registered for, replaced on write so that it can be read without locking
+	 */
+	private volatile Set<Locale> registeredLocales = Collections.emptySet();
+
+	private volatile Executor executor = null;
+
+	CatalogLoader(Object lock) {
+		super();
+		this.lock = lock;
+	}
+
+	void register(CatalogSource source) {
+		List<CatalogSource> sources = pending.get(source.getLocale());
+		if(sources == null) {
+			sources = new ArrayList<CatalogSource>(2);
+			pending.put(source.getLocale(), sources);
+		}
+		sources.add(source);
+		if(!registeredLocales.contains(source.getLocale())) {
+			final Set<Locale> nextRegisteredLocales = new HashSet<Locale>(registeredLocales);
+			nextRegisteredLocales.add(source.getLocale());
+			registeredLocales = Collections.unmodifiableSet(nextRegisteredLocales);
+		}
+	}
+
+	/**
+	 * Returns if a source has ever been registered for a {@link Locale}
+	 * @param locale The {@link Locale} of the source
+	 * @return True if the {@link Locale} has sources that are pending, loading or loaded
+	 */
+	boolean isRegistered(Locale locale) {
+		return registeredLocales.contains(locale);
+	}
+
+	boolean hasPending() {
+		return !pending.isEmpty();
+	}
+
+	/**
+	 * Starts loading the registered sources of every {@link Locale} in a fallback chain
+	 * @param chain The fallback chain of the requested {@link Locale}
+	 * @return A {@link Future} that completes once all {@link Locale}s in the chain have been loaded
+	 */
+	Future<Void> load(List<Locale> chain) {
+		final List<FutureTask<Void>> result = new ArrayList<FutureTask<Void>>(1);
+		for(int i = 0; i < chain.size(); i++) {
+			final Locale locale = chain.get(i);
+			FutureTask<Void> task = loading.get(locale);
+			if(task == null) {
+				final List<CatalogSource> sources = pending.remove(locale);
+				if(sources == null) {
+					continue;
+				}
+				task = start(locale, sources);
+			}
+			result.add(task);
+		}
+		if(result.isEmpty()) {
+			return completed();
+		}
+		if(result.size() == 1) {
+			return result.get(0);
+		}
+		return new LoadFuture(result);
+	}
+
+	private FutureTask<Void> start(Locale locale, List<CatalogSource> sources) {
+		final FutureTask<Void> result = createTask(locale, sources);
+		loading.put(locale, result);
+		getExecutor().execute(result);
+		return result;
+	}
+
+	private FutureTask<Void> createTask(final Locale locale, final List<CatalogSource> sources) {
+		return new FutureTask<Void>(new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				boolean loaded = false;
+				try {
+					GetText.addAll(sources, DIRECT_EXECUTOR);
+					loaded = true;
+				} finally {
+					synchronized(lock) {
+						loading.remove(locale);
+						final List<CatalogSource> registered = pending.remove(locale);
+						if(!loaded && registered != null) {
+							sources.addAll(registered);
+						}
+						if(registered != null) {
+							//Sources registered while loading would otherwise never be loaded
+							start(locale, loaded ? registered : sources);
+						} else if(!loaded) {
+							//Allow a later preload to retry and report the error
+							pending.put(locale, sources);
+						}
+					}
+				}
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * Runs a task on the loader {@link Executor}
+	 * @param task The task to run
+	 */
+	void execute(Runnable task) {
+		getExecutor().execute(task);
+	}
+
+	private Executor getExecutor() {
+		Executor result = executor;
+		if(result == null) {
+			synchronized(this) {
+				if(executor == null) {
+					executor = Executors.newCachedThreadPool(new LoaderThreadFactory());
+				}
+				result = executor;
+			}
+		}
+		return result;
+	}
+
+	void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
+	private static Future<Void> completed() {
+		final FutureTask<Void> result = new FutureTask<Void>(new Callable<Void>() {
+			@Override
+			public Void call() {
+				return null;
+			}
+		});
+		result.run();
+		return result;
+	}
+
+	/**
+	 * Completes once all loads of a fallback chain have completed
+	 */
+	private static class LoadFuture implements Future<Void> {
+		private final List<FutureTask<Void>> tasks;
+
+		public LoadFuture(List<FutureTask<Void>> tasks) {
+			super();
+			this.tasks = tasks;
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			return false;
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return false;
+		}
+
+		@Override
+		public boolean isDone() {
+			for(int i = 0; i < tasks.size(); i++) {
+				if(!tasks.get(i).isDone()) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public Void get() throws InterruptedException, ExecutionException {
+			for(int i = 0; i < tasks.size(); i++) {
+				tasks.get(i).get();
+			}
+			return null;
+		}
+
+		@Override
+		public Void get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+			final long deadline = System.nanoTime() + unit.toNanos(timeout);
+			for(int i = 0; i < tasks.size(); i++) {
+				tasks.get(i).get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+			}
+			return null;
+		}
+	}
+
+	private static class LoaderThreadFactory implements ThreadFactory {
+		private final AtomicInteger totalThreads = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			final Thread thread = new Thread(runnable, "gettext-loader-" + totalThreads.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
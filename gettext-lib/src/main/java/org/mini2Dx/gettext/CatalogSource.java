@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright 2019 Thomas Cashman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.mini2Dx.gettext;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * A catalog that can be loaded into a {@link PoFile} on demand, e.g. a .po file on disk.
+ * Used by {@link GetText#addAll(java.util.Collection, java.util.concurrent.Executor)} to load many catalogs in parallel.
+ * Implementations must be safe to load from any thread.
+ */
+public abstract class CatalogSource {
+	private final Locale locale;
+
+	public CatalogSource(Locale locale) {
+		super();
+		if(locale == null) {
+			throw new NullPointerException("Null locale reference");
+		}
+		this.locale = locale;
+	}
+
+	/**
+	 * Reads the catalog
+	 * @return A new {@link PoFile} for {@link #getLocale()}
+	 * @throws IOException Thrown if the catalog could not be read
+	 */
+	public abstract PoFile load() throws IOException;
+
+	public Locale getLocale() {
+		return locale;
+	}
+
+	/**
+	 * Creates a source for a .po file
+	 * @param locale The {@link Locale} of the file
+	 * @param file The .po file
+	 * @return A new {@link CatalogSource}
+	 */
+	public static CatalogSource fromFile(Locale locale, File file) {
+		return fromFile(locale, file, PoParseSettings.DEFAULT);
+	}
+
+	/**
+	 * Creates a source for a .po file
+	 * @param locale The {@link Locale} of the file
+	 * @param file The .po file
+	 * @param parseSettings The {@link PoParseSettings} to use
+	 * @return A new {@link CatalogSource}
+	 */
+	public static CatalogSource fromFile(final Locale locale, final File file, final PoParseSettings parseSettings) {
+		return new CatalogSource(locale) {
+			@Override
+			public PoFile load() throws IOException {
+				return new PoFile(locale, file, parseSettings);
+			}
+
+			@Override
+			public String toString() {
+				return file.getPath();
+			}
+		};
+	}
+
+	/**
+	 * Creates a source for a file written by {@link PoFile#saveToBin(File)}
+	 * @param locale The {@link Locale} of the file
+	 * @param file The binary file
+	 * @return A new {@link CatalogSource}
+	 */
+	public static CatalogSource fromBinFile(final Locale locale, final File file) {
+		return new CatalogSource(locale) {
+			@Override
+			public PoFile load() throws IOException {
+				return PoFile.readFromBin(locale, new FileInputStream(file));
+			}
+
+			@Override
+			public String toString() {
+				return file.getPath();
+			}
+		};
+	}
+
+	/**
+	 * Creates a source for an already parsed {@link PoFile}
+	 * @param poFile The {@link PoFile}
+	 * @return A new {@link CatalogSource}
+	 */
+	public static CatalogSource fromPoFile(final PoFile poFile) {
+		return new CatalogSource(poFile.getLocale()) {
+			@Override
+			public PoFile load() {
+				return poFile;
+			}
+		};
+	}
+}
@@ -0,0 +1,305 @@
+/*******************************************************************************
+ * Copyright 2019 Thomas Cashman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.mini2Dx.gettext;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Watches .po files and reloads them into {@link GetText} when they change on disk, e.g. while translators
+ * iterate on a running build.<br>
+ * <br>
+ * A changed file is reparsed and compared with its previous version. Only the entries that were added, changed or
+ * removed are applied to the {@link Locale}'s catalog, which is then published in a single update. Lookups on other
+ * threads never wait for a reload and cached formats of unchanged translations remain valid.<br>
+ * <br>
+ * Watched files for the same {@link Locale} keep the order they were watched in: an entry only takes effect if no
+ * file watched later contains the same msgid, and an entry removed from a file falls back to the entry it replaced,
+ * e.g. from a file watched earlier.<br>
+ * <br>
+ * Changes are applied either by calling {@link #poll()}, e.g. once per frame, or on a background thread via
+ * {@link #start()}. A file that cannot be parsed, e.g. while it is still being written, keeps its previous
+ * translations until it changes again.<br>
+ * <br>
+ * Note: A msgid added to a watched file replaces the entry of a file added to {@link GetText} directly, even if that
+ * file was added after the watched file.
+ */
+public final class CatalogWatcher implements Closeable {
+	private final WatchService watchService;
+	private final Set<Path> directories = new HashSet<Path>();
+	/**
+	 * Watched files in the order they were watched
+	 */
+	private final Map<Path, WatchedFile> files = new LinkedHashMap<Path, WatchedFile>();
+
+	private Thread thread;
+
+	public CatalogWatcher() throws IOException {
+		super();
+		watchService = FileSystems.getDefault().newWatchService();
+	}
+
+	/**
+	 * Adds a .po file to {@link GetText} and reloads it whenever it changes
+	 * @param locale The {@link Locale} of the file
+	 * @param file The .po file
+	 * @throws IOException Thrown if the file could not be read or watched
+	 */
+	public void watch(Locale locale, File file) throws IOException {
+		watch(locale, file, PoParseSettings.DEFAULT);
+	}
+
+	/**
+	 * Adds a .po file to {@link GetText} and reloads it whenever it changes
+	 * @param locale The {@link Locale} of the file
+	 * @param file The .po file
+	 * @param parseSettings The {@link PoParseSettings} to use
+	 * @throws IOException Thrown if the file could not be read or watched
+	 */
+	public synchronized void watch(Locale locale, File file, PoParseSettings parseSettings) throws IOException {
+		if(locale == null) {
+			throw new NullPointerException("Null locale reference");
+		}
+		final Path path = file.toPath().toAbsolutePath().normalize();
+		if(files.containsKey(path)) {
+			throw new IllegalArgumentException(file + " is already being watched");
+		}
+		final Path directory = path.getParent();
+		if(directories.add(directory)) {
+			directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+		}
+
+		final PoFile poFile = new PoFile(locale, path.toFile(), parseSettings);
+		final WatchedFile watchedFile = new WatchedFile(locale, path, parseSettings);
+		files.put(path, watchedFile);
+		apply(watchedFile, index(poFile.getEntries()));
+	}
+
+	/**
+	 * Reloads all watched files that have changed since the last call, without waiting for further changes
+	 * @return The number of files whose translations changed
+	 */
+	public synchronized int poll() {
+		int result = 0;
+		WatchKey key;
+		while((key = watchService.poll()) != null) {
+			result += process(key);
+		}
+		return result;
+	}
+
+	/**
+	 * Starts reloading changed files on a background daemon thread until {@link #close()} is called
+	 */
+	public synchronized void start() {
+		if(thread != null) {
+			return;
+		}
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					while(true) {
+						final WatchKey key = watchService.take();
+						synchronized(CatalogWatcher.this) {
+							process(key);
+						}
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} catch (ClosedWatchServiceException e) {
+				}
+			}
+		}, "gettext-watcher");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops watching all files. Translations that were already loaded remain in {@link GetText}.
+	 * @throws IOException Thrown if the underlying {@link WatchService} could not be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		watchService.close();
+	}
+
+	private int process(WatchKey key) {
+		final Path directory = (Path) key.watchable();
+		final Set<WatchedFile> changedFiles = new LinkedHashSet<WatchedFile>();
+		for(WatchEvent<?> event : key.pollEvents()) {
+			if(event.kind() == StandardWatchEventKinds.OVERFLOW) {
+				//Events were lost so check every file in the directory
+				for(WatchedFile watchedFile : files.values()) {
+					if(watchedFile.path.getParent().equals(directory)) {
+						changedFiles.add(watchedFile);
+					}
+				}
+				continue;
+			}
+			final WatchedFile watchedFile = files.get(directory.resolve((Path) event.context()));
+			if(watchedFile != null) {
+				changedFiles.add(watchedFile);
+			}
+		}
+		key.reset();
+
+		int result = 0;
+		for(WatchedFile watchedFile : changedFiles) {
+			if(reload(watchedFile)) {
+				result++;
+			}
+		}
+		return result;
+	}
+
+	private boolean reload(WatchedFile watchedFile) {
+		final PoFile poFile;
+		try {
+			poFile = new PoFile(watchedFile.locale, watchedFile.path.toFile(), watchedFile.parseSettings);
+		} catch (IOException | RuntimeException e) {
+			//The file is being written or is invalid, keep the previous translations until it changes again
+			return false;
+		}
+
+		return apply(watchedFile, index(poFile.getEntries()));
+	}
+
+	/**
+	 * Applies the entries that were added, changed or removed since a file was last read to its {@link Locale}'s
+	 * catalog
+	 * @param watchedFile The file
+	 * @param entries The file's current entries
+	 * @return False if no entries changed
+	 */
+	private boolean apply(WatchedFile watchedFile, Map<String, TranslationEntry> entries) {
+		final StringPool stringPool = GetText.getStringPool();
+		final List<RuntimeEntry> expectedEntries = new ArrayList<RuntimeEntry>();
+		final List<RuntimeEntry> replacementEntries = new ArrayList<RuntimeEntry>();
+		boolean changed = false;
+		for(Map.Entry<String, TranslationEntry> previous : watchedFile.entries.entrySet()) {
+			if(!entries.containsKey(previous.getKey())) {
+				update(watchedFile, previous.getKey(), null, expectedEntries, replacementEntries);
+				changed = true;
+			}
+		}
+		for(Map.Entry<String, TranslationEntry> entry : entries.entrySet()) {
+			if(!entry.getValue().equals(watchedFile.entries.get(entry.getKey()))) {
+				update(watchedFile, entry.getKey(), RuntimeEntry.of(entry.getValue(), stringPool),
+						expectedEntries, replacementEntries);
+				changed = true;
+			}
+		}
+		watchedFile.entries = entries;
+
+		if(!expectedEntries.isEmpty()) {
+			GetText.replace(watchedFile.locale, expectedEntries, replacementEntries);
+		}
+		return changed;
+	}
+
+	/**
+	 * Records the new entry a file provides for a msgid and, if no file watched later provides the msgid, the change
+	 * to apply to the catalog
+	 * @param watchedFile The file
+	 * @param key The msgid and msgctxt, see {@link #index(List)}
+	 * @param entry The file's new entry, null if the file no longer contains the msgid
+	 * @param expectedEntries The catalog entries to replace
+	 * @param replacementEntries The replacements for the catalog entries, null to remove the msgid
+	 */
+	private void update(WatchedFile watchedFile, String key, RuntimeEntry entry,
+	                    List<RuntimeEntry> expectedEntries, List<RuntimeEntry> replacementEntries) {
+		final RuntimeEntry previous = watchedFile.provided.get(key);
+		final WatchedFile next = getNextProvider(watchedFile, key);
+		if(next != null) {
+			//The file watched later keeps precedence, only the entry it falls back to changes
+			if(previous == null) {
+				watchedFile.shadowed.put(key, next.shadowed.get(key));
+			}
+			next.shadowed.put(key, entry != null ? entry : watchedFile.shadowed.get(key));
+		} else if(previous == null) {
+			final RuntimeEntry current = GetText.getCatalogEntry(watchedFile.locale, entry.getContext(), entry.getId());
+			watchedFile.shadowed.put(key, current);
+			expectedEntries.add(current);
+			replacementEntries.add(entry);
+		} else {
+			expectedEntries.add(previous);
+			replacementEntries.add(entry != null ? entry : watchedFile.shadowed.get(key));
+		}
+
+		if(entry == null) {
+			watchedFile.provided.remove(key);
+			watchedFile.shadowed.remove(key);
+		} else {
+			watchedFile.provided.put(key, entry);
+		}
+	}
+
+	private WatchedFile getNextProvider(WatchedFile watchedFile, String key) {
+		boolean later = false;
+		for(WatchedFile file : files.values()) {
+			if(file == watchedFile) {
+				later = true;
+			} else if(later && file.locale.equals(watchedFile.locale) && file.provided.containsKey(key)) {
+				return file;
+			}
+		}
+		return null;
+	}
+
+	private static Map<String, TranslationEntry> index(List<TranslationEntry> entries) {
+		final Map<String, TranslationEntry> result = new LinkedHashMap<String, TranslationEntry>();
+		for(TranslationEntry entry : entries) {
+			if(entry.getId() == null) {
+				continue;
+			}
+			if(entry.getContext() == null || entry.getContext().isEmpty()) {
+				result.put(entry.getId(), entry);
+			} else {
+				result.put(entry.getContext() + '\u0004' + entry.getId(), entry);
+			}
+		}
+		return result;
+	}
+
+	private static class WatchedFile {
+		final Locale locale;
+		final Path path;
+		final PoParseSettings parseSettings;
+		/**
+		 * The entries last read from the file
+		 */
+		Map<String, TranslationEntry> entries = Collections.emptyMap();
+		/**
+		 * The catalog entry created for each of {@link #entries}
+		 */
+		final Map<String, RuntimeEntry> provided = new HashMap<String, RuntimeEntry>();
+		/**
+		 * The catalog entry each of {@link #provided} replaced, restored when the file no longer contains the msgid
+		 */
+		final Map<String, RuntimeEntry> shadowed = new HashMap<String, RuntimeEntry>();
+
+		WatchedFile(Locale locale, Path path, PoParseSettings parseSettings) {
+			super();
+			this.locale = locale;
+			this.path = path;
+			this.parseSettings = parseSettings;
+		}
+	}
+}
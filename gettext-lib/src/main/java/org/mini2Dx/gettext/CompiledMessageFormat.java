@@ -0,0 +1,399 @@
+/*******************************************************************************
+ * Copyright 2019 Thomas Cashman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.mini2Dx.gettext;
+
+import java.text.ChoiceFormat;
+import java.text.DateFormat;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.FieldPosition;
+import java.text.Format;
+import java.text.MessageFormat;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A {@link MessageFormat} pattern compiled into literal text and argument slots.<br>
+ * <br>
+ * Instances are immutable and can be shared between threads. Formatting appends directly to a {@link StringBuilder}
+ * without locking and produces the same output as {@link MessageFormat#format(Object)} for the same pattern and
+ * {@link Locale}.
+ */
+public final class CompiledMessageFormat {
+	private static final ConcurrentMap<Locale, LocaleFormats> LOCALE_FORMATS = new ConcurrentHashMap<Locale, LocaleFormats>();
+
+	private final Locale locale;
+	private final String[] literals;
+	private final int[] argumentIndices;
+	private final Format[] formats;
+	private final int estimatedLength;
+
+	private CompiledMessageFormat(Locale locale, String[] literals, int[] argumentIndices, Format[] formats) {
+		super();
+		this.locale = locale;
+		this.literals = literals;
+		this.argumentIndices = argumentIndices;
+		this.formats = formats;
+
+		int length = 0;
+		for(int i = 0; i < literals.length; i++) {
+			length += literals[i].length();
+		}
+		this.estimatedLength = length + (argumentIndices.length * 8);
+	}
+
+	/**
+	 * Compiles a {@link MessageFormat} pattern
+	 * @param pattern The pattern to compile
+	 * @param locale The {@link Locale} to format values with
+	 * @return A new {@link CompiledMessageFormat}
+	 * @throws IllegalArgumentException Thrown if the pattern is invalid
+	 */
+	public static CompiledMessageFormat compile(String pattern, Locale locale) {
+		if(locale == null) {
+			throw new NullPointerException("Null locale reference");
+		}
+		//Let MessageFormat validate the pattern and build any explicit sub formats ({0,number,#.##}, etc.)
+		final Format[] subformats = new MessageFormat(pattern, locale).getFormats();
+
+		final List<String> literals = new ArrayList<String>(subformats.length + 1);
+		final int[] argumentIndices = new int[subformats.length];
+
+		final StringBuilder literal = new StringBuilder(pattern.length());
+		final StringBuilder argumentIndex = new StringBuilder(2);
+		int totalArguments = 0;
+		int part = 0;
+		int braceStack = 0;
+		boolean inQuote = false;
+
+		for(int i = 0; i < pattern.length(); i++) {
+			final char c = pattern.charAt(i);
+			if(part == 0) {
+				if(c == '\'') {
+					if(i + 1 < pattern.length() && pattern.charAt(i + 1) == '\'') {
+						literal.append(c);
+						i++;
+					} else {
+						inQuote = !inQuote;
+					}
+				} else if(c == '{' && !inQuote) {
+					part = 1;
+					argumentIndex.setLength(0);
+				} else {
+					literal.append(c);
+				}
+			} else if(inQuote) {
+				if(c == '\'') {
+					inQuote = false;
+				}
+			} else {
+				switch(c) {
+				case ',':
+					if(part < 3) {
+						part++;
+					}
+					break;
+				case '{':
+					braceStack++;
+					break;
+				case '}':
+					if(braceStack == 0) {
+						part = 0;
+						literals.add(literal.toString());
+						literal.setLength(0);
+						argumentIndices[totalArguments] = Integer.parseInt(argumentIndex.toString());
+						totalArguments++;
+					} else {
+						braceStack--;
+					}
+					break;
+				case '\'':
+					inQuote = true;
+					break;
+				default:
+					if(part == 1) {
+						argumentIndex.append(c);
+					}
+					break;
+				}
+			}
+		}
+		literals.add(literal.toString());
+
+		return new CompiledMessageFormat(locale, literals.toArray(new String[literals.size()]), argumentIndices, subformats);
+	}
+
+	/**
+	 * Formats values into the pattern
+	 * @param values The values to inject
+	 * @return The resulting {@link String}
+	 */
+	public String format(Object... values) {
+		return formatTo(new StringBuilder(estimatedLength), values).toString();
+	}
+
+	/**
+	 * Formats values into the pattern and appends the result to a {@link StringBuilder}
+	 * @param result The {@link StringBuilder} to append to
+	 * @param values The values to inject
+	 * @return The {@link StringBuilder} that was passed in
+	 */
+	public StringBuilder formatTo(StringBuilder result, Object... values) {
+		result.append(literals[0]);
+		for(int i = 0; i < argumentIndices.length; i++) {
+			final int argumentIndex = argumentIndices[i];
+			if(values == null || argumentIndex >= values.length) {
+				result.append('{').append(argumentIndex).append('}');
+			} else {
+				appendValue(result, i, values[argumentIndex], values);
+			}
+			result.append(literals[i + 1]);
+		}
+		return result;
+	}
+
+	/**
+	 * Same as {@link #formatTo(StringBuilder, Object...)} with a single int value without boxing
+	 */
+	public StringBuilder formatTo(StringBuilder result, int value) {
+		return formatTo(result, (long) value);
+	}
+
+	/**
+	 * Same as {@link #formatTo(StringBuilder, Object...)} with a single long value without boxing
+	 */
+	public StringBuilder formatTo(StringBuilder result, long value) {
+		result.append(literals[0]);
+		for(int i = 0; i < argumentIndices.length; i++) {
+			if(argumentIndices[i] != 0) {
+				result.append('{').append(argumentIndices[i]).append('}');
+			} else if(formats[i] != null) {
+				appendValue(result, i, value, new Object[] { value });
+			} else {
+				getLocaleFormats(locale).appendNumber(result, value);
+			}
+			result.append(literals[i + 1]);
+		}
+		return result;
+	}
+
+	/**
+	 * Same as {@link #formatTo(StringBuilder, Object...)} with a single float value without boxing
+	 */
+	public StringBuilder formatTo(StringBuilder result, float value) {
+		result.append(literals[0]);
+		for(int i = 0; i < argumentIndices.length; i++) {
+			if(argumentIndices[i] != 0) {
+				result.append('{').append(argumentIndices[i]).append('}');
+			} else if(formats[i] != null) {
+				appendValue(result, i, value, new Object[] { value });
+			} else {
+				getLocaleFormats(locale).appendNumber(result, value);
+			}
+			result.append(literals[i + 1]);
+		}
+		return result;
+	}
+
+	private void appendValue(StringBuilder result, int slot, Object value, Object[] values) {
+		if(value == null) {
+			result.append("null");
+			return;
+		}
+		final Format format = formats[slot];
+		if(format != null) {
+			if(format instanceof ChoiceFormat) {
+				final String choice = format.format(value);
+				if(choice.indexOf('{') >= 0) {
+					compile(choice, locale).formatTo(result, values);
+				} else {
+					result.append(choice);
+				}
+			} else {
+				result.append(((Format) format.clone()).format(value));
+			}
+		} else if(value instanceof Number) {
+			getLocaleFormats(locale).appendNumber(result, (Number) value);
+		} else if(value instanceof Date) {
+			getLocaleFormats(locale).appendDate(result, (Date) value);
+		} else if(value instanceof String) {
+			result.append((String) value);
+		} else {
+			final String str = value.toString();
+			result.append(str == null ? "null" : str);
+		}
+	}
+
+	private static LocaleFormats getLocaleFormats(Locale locale) {
+		final LocaleFormats localeFormats = LOCALE_FORMATS.get(locale);
+		if(localeFormats != null) {
+			return localeFormats;
+		}
+		final LocaleFormats result = new LocaleFormats(locale);
+		final LocaleFormats existing = LOCALE_FORMATS.putIfAbsent(locale, result);
+		return existing == null ? result : existing;
+	}
+
+	/**
+	 * The default {@link NumberFormat} and {@link DateFormat} for a {@link Locale}, held per thread.
+	 * Whole numbers are written directly when the {@link Locale}'s number format is simple enough to reproduce.
+	 */
+	private static class LocaleFormats {
+		private final Locale locale;
+		private final ThreadLocal<Formatters> formatters = new ThreadLocal<Formatters>() {
+			@Override
+			protected Formatters initialValue() {
+				return new Formatters(locale);
+			}
+		};
+
+		private final boolean integerFastPath;
+		private final char zeroDigit, groupingSeparator;
+		private final int groupingSize;
+		private final String positivePrefix, positiveSuffix, negativePrefix, negativeSuffix;
+
+		public LocaleFormats(Locale locale) {
+			super();
+			this.locale = locale;
+
+			final NumberFormat numberFormat = NumberFormat.getInstance(locale);
+			if(numberFormat instanceof DecimalFormat) {
+				final DecimalFormat decimalFormat = (DecimalFormat) numberFormat;
+				final DecimalFormatSymbols symbols = decimalFormat.getDecimalFormatSymbols();
+				zeroDigit = symbols.getZeroDigit();
+				groupingSeparator = symbols.getGroupingSeparator();
+				groupingSize = decimalFormat.isGroupingUsed() ? decimalFormat.getGroupingSize() : 0;
+				positivePrefix = decimalFormat.getPositivePrefix();
+				positiveSuffix = decimalFormat.getPositiveSuffix();
+				negativePrefix = decimalFormat.getNegativePrefix();
+				negativeSuffix = decimalFormat.getNegativeSuffix();
+				integerFastPath = decimalFormat.getMultiplier() == 1 &&
+						decimalFormat.getMinimumIntegerDigits() <= 1 &&
+						decimalFormat.getMaximumIntegerDigits() >= 19 &&
+						verifyIntegerFastPath(decimalFormat);
+			} else {
+				zeroDigit = '0';
+				groupingSeparator = ',';
+				groupingSize = 0;
+				positivePrefix = positiveSuffix = negativePrefix = negativeSuffix = "";
+				integerFastPath = false;
+			}
+		}
+
+		public void appendNumber(StringBuilder result, Number value) {
+			if(integerFastPath && (value instanceof Integer || value instanceof Long ||
+					value instanceof Short || value instanceof Byte)) {
+				appendInteger(result, value.longValue());
+				return;
+			}
+			final Formatters formatters = this.formatters.get();
+			formatters.buffer.setLength(0);
+			formatters.numberFormat.format(value, formatters.buffer, formatters.fieldPosition);
+			result.append(formatters.buffer);
+		}
+
+		public void appendNumber(StringBuilder result, long value) {
+			if(integerFastPath) {
+				appendInteger(result, value);
+				return;
+			}
+			final Formatters formatters = this.formatters.get();
+			formatters.buffer.setLength(0);
+			formatters.numberFormat.format(value, formatters.buffer, formatters.fieldPosition);
+			result.append(formatters.buffer);
+		}
+
+		public void appendNumber(StringBuilder result, float value) {
+			final Formatters formatters = this.formatters.get();
+			formatters.buffer.setLength(0);
+			formatters.numberFormat.format(value, formatters.buffer, formatters.fieldPosition);
+			result.append(formatters.buffer);
+		}
+
+		public void appendDate(StringBuilder result, Date value) {
+			final Formatters formatters = this.formatters.get();
+			formatters.buffer.setLength(0);
+			formatters.getDateFormat().format(value, formatters.buffer, formatters.fieldPosition);
+			result.append(formatters.buffer);
+		}
+
+		private void appendInteger(StringBuilder result, long value) {
+			result.append(value < 0 ? negativePrefix : positivePrefix);
+
+			//Work with negative values so that Long.MIN_VALUE does not overflow
+			long remaining = value < 0 ? value : -value;
+			int totalDigits = 1;
+			for(long i = remaining / 10; i != 0; i /= 10) {
+				totalDigits++;
+			}
+			final int totalSeparators = groupingSize > 0 ? (totalDigits - 1) / groupingSize : 0;
+			final int start = result.length();
+			int index = start + totalDigits + totalSeparators;
+			result.setLength(index);
+
+			int digit = 0;
+			do {
+				if(groupingSize > 0 && digit > 0 && digit % groupingSize == 0) {
+					result.setCharAt(--index, groupingSeparator);
+				}
+				result.setCharAt(--index, (char) (zeroDigit - (remaining % 10)));
+				remaining /= 10;
+				digit++;
+			} while(remaining != 0);
+
+			result.append(value < 0 ? negativeSuffix : positiveSuffix);
+		}
+
+		private boolean verifyIntegerFastPath(DecimalFormat decimalFormat) {
+			final long [] samples = new long[] { 0L, 7L, -7L, 1000L, -1234567L, Long.MAX_VALUE, Long.MIN_VALUE };
+			final StringBuilder result = new StringBuilder();
+			for(long sample : samples) {
+				result.setLength(0);
+				appendInteger(result, sample);
+				if(!result.toString().equals(decimalFormat.format(sample))) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	private static class Formatters {
+		private final Locale locale;
+		private final NumberFormat numberFormat;
+		private final StringBuffer buffer = new StringBuffer(32);
+		private final FieldPosition fieldPosition = new FieldPosition(0);
+		private DateFormat dateFormat;
+
+		public Formatters(Locale locale) {
+			super();
+			this.locale = locale;
+			this.numberFormat = NumberFormat.getInstance(locale);
+		}
+
+		public DateFormat getDateFormat() {
+			if(dateFormat == null) {
+				dateFormat = DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.SHORT, locale);
+			}
+			return dateFormat;
+		}
+	}
+}
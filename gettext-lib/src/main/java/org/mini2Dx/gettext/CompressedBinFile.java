@@ -0,0 +1,252 @@
+/*******************************************************************************
+ * Copyright 2019 Thomas Cashman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.mini2Dx.gettext;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A compressed binary catalog written by {@link PoFile#saveToBin(File, boolean)}.<br>
+ * <br>
+ * Entries are stored in independently compressed blocks of around 8KB. Opening a catalog only reads its header
+ * and a lookup inflates the single block containing the entry. Recently used blocks are kept inflated and evicted
+ * via the CLOCK algorithm, see {@link #DEFAULT_CACHED_BLOCKS}. Lookups of inflated blocks never lock. Note: The
+ * file's checksum is not verified.<br>
+ * <br>
+ * Add a {@link CompressedBinFile} to {@link GetText} via {@link GetText#add(CompressedBinFile)}. Instances are
+ * thread-safe.
+ */
+public final class CompressedBinFile {
+	/**
+	 * The default number of inflated blocks kept in memory
+	 */
+	public static final int DEFAULT_CACHED_BLOCKS = 32;
+
+	private final Locale locale;
+	private final ByteBuffer buffer;
+	private final int totalEntries;
+	private final BlockCache blockCache;
+	private final PluralForms pluralForms;
+
+	/**
+	 * Reads a compressed binary catalog from a {@link ByteBuffer}. The buffer's content must not change afterwards.
+	 * @param locale The {@link Locale} of the catalog
+	 * @param buffer The {@link ByteBuffer} containing the catalog from position to limit
+	 * @throws IOException Thrown if the buffer does not contain a compressed binary catalog
+	 */
+	public CompressedBinFile(Locale locale, ByteBuffer buffer) throws IOException {
+		this(locale, buffer, DEFAULT_CACHED_BLOCKS);
+	}
+
+	/**
+	 * Reads a compressed binary catalog from a {@link ByteBuffer}. The buffer's content must not change afterwards.
+	 * @param locale The {@link Locale} of the catalog
+	 * @param buffer The {@link ByteBuffer} containing the catalog from position to limit
+	 * @param cachedBlocks The maximum number of inflated blocks to keep in memory
+	 * @throws IOException Thrown if the buffer does not contain a compressed binary catalog
+	 */
+	public CompressedBinFile(Locale locale, ByteBuffer buffer, int cachedBlocks) throws IOException {
+		super();
+		if(cachedBlocks < 1) {
+			throw new IllegalArgumentException("cachedBlocks must be at least 1");
+		}
+		this.locale = locale;
+		this.buffer = buffer.slice();
+		BinFormat.checkCompressed(this.buffer);
+		totalEntries = this.buffer.getInt(8);
+		blockCache = new BlockCache(this.buffer.getInt(12), cachedBlocks);
+
+		final RuntimeEntry header = getRuntimeEntry(null, "");
+		final String headerString = header == null ? null : header.getString(0);
+		pluralForms = PluralForms.fromHeader(headerString, PluralForms.forLocale(locale));
+	}
+
+	/**
+	 * Memory-maps a compressed binary catalog
+	 * @param locale The {@link Locale} of the catalog
+	 * @param file The file written by {@link PoFile#saveToBin(File, boolean)}
+	 * @return A new {@link CompressedBinFile}
+	 * @throws IOException Thrown if the file could not be mapped or is not a compressed binary catalog
+	 */
+	public static CompressedBinFile map(Locale locale, File file) throws IOException {
+		final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		try {
+			final FileChannel fileChannel = randomAccessFile.getChannel();
+			final MappedByteBuffer buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+			return new CompressedBinFile(locale, buffer);
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+
+	/**
+	 * Returns the entry for a msgid
+	 * @param context Null or empty for the default context, else msgctxt
+	 * @param id The msgid
+	 * @return A new {@link TranslationEntry}, null if no entry exists
+	 */
+	public TranslationEntry getEntry(String context, String id) {
+		final RuntimeEntry result = getRuntimeEntry(context, id);
+		return result == null ? null : result.toTranslationEntry();
+	}
+
+	/**
+	 * Returns the entry for a msgid, inflating its block if it is not cached
+	 * @param context Null or empty for the default context, else msgctxt
+	 * @param id The msgid
+	 * @return Null if no entry exists
+	 */
+	RuntimeEntry getRuntimeEntry(String context, String id) {
+		if(id == null) {
+			return null;
+		}
+		final int hash = BinFormat.keyHash(context, id);
+		RuntimeEntry result = null;
+		try {
+			for(int position = BinFormat.firstIndexOf(buffer, hash); position >= 0 && position < totalEntries &&
+					BinFormat.hashAt(buffer, position) == hash; position++) {
+				final int index = BinFormat.entryAt(buffer, position);
+				final int block = BinFormat.blockOf(buffer, index);
+				final RuntimeEntry entry = getBlock(block)[index - BinFormat.firstEntryOf(buffer, block)];
+				if(BinFormat.matches(entry.getContext(), entry.getId(), context, id)) {
+					result = entry;
+				}
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(e.getMessage(), e);
+		}
+		return result;
+	}
+
+	/**
+	 * Inflates all entries in the catalog, e.g. to convert it back to a .po file
+	 * @return A new list of entries in the order they were written
+	 */
+	public List<TranslationEntry> getEntries() {
+		try {
+			return BinFormat.readCompressed(buffer);
+		} catch (IOException e) {
+			throw new IllegalStateException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Returns the plural rule from the catalog's Plural-Forms header, or, the built-in rule for its {@link Locale}
+	 * @return The {@link PluralForms} for the catalog's entries
+	 */
+	public PluralForms getPluralForms() {
+		return pluralForms;
+	}
+
+	public Locale getLocale() {
+		return locale;
+	}
+
+	public int size() {
+		return totalEntries;
+	}
+
+	private RuntimeEntry[] getBlock(int block) throws IOException {
+		final RuntimeEntry[] result = blockCache.get(block);
+		if(result != null) {
+			return result;
+		}
+
+		final TranslationEntry[] entries = BinFormat.readBlock(buffer, block);
+		final RuntimeEntry[] inflated = new RuntimeEntry[entries.length];
+		for(int i = 0; i < entries.length; i++) {
+			inflated[i] = RuntimeEntry.of(entries[i]);
+		}
+		return blockCache.put(block, inflated);
+	}
+
+	/**
+	 * Inflated blocks indexed by block number. Lookups never lock and blocks are evicted via the CLOCK algorithm,
+	 * which marks a block as used on each hit instead of reordering a list.
+	 */
+	private static final class BlockCache {
+		private final AtomicReferenceArray<CachedBlock> blocks;
+		/**
+		 * Cached block numbers scanned by the CLOCK hand, guarded by this
+		 */
+		private final int[] ring;
+		private int size;
+		private int hand;
+
+		BlockCache(int totalBlocks, int maxBlocks) {
+			super();
+			blocks = new AtomicReferenceArray<CachedBlock>(totalBlocks);
+			ring = new int[Math.max(1, Math.min(totalBlocks, maxBlocks))];
+		}
+
+		RuntimeEntry[] get(int block) {
+			final CachedBlock cachedBlock = blocks.get(block);
+			if(cachedBlock == null) {
+				return null;
+			}
+			if(!cachedBlock.referenced) {
+				cachedBlock.referenced = true;
+			}
+			return cachedBlock.entries;
+		}
+
+		/**
+		 * Caches an inflated block, evicting a block that has not been used recently if the cache is full
+		 * @return The cached entries, which are those of another thread if it inflated the same block first
+		 */
+		synchronized RuntimeEntry[] put(int block, RuntimeEntry[] entries) {
+			final CachedBlock existing = blocks.get(block);
+			if(existing != null) {
+				return existing.entries;
+			}
+			if(size < ring.length) {
+				ring[size++] = block;
+				blocks.set(block, new CachedBlock(entries));
+				return entries;
+			}
+
+			//Give each recently used block a second chance
+			CachedBlock victim = blocks.get(ring[hand]);
+			while(victim.referenced) {
+				victim.referenced = false;
+				hand = (hand + 1) % ring.length;
+				victim = blocks.get(ring[hand]);
+			}
+			blocks.set(ring[hand], null);
+			ring[hand] = block;
+			hand = (hand + 1) % ring.length;
+			blocks.set(block, new CachedBlock(entries));
+			return entries;
+		}
+	}
+
+	private static final class CachedBlock {
+		final RuntimeEntry[] entries;
+		volatile boolean referenced;
+
+		CachedBlock(RuntimeEntry[] entries) {
+			super();
+			this.entries = entries;
+		}
+	}
+}
@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Copyright 2019 Thomas Cashman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.mini2Dx.gettext;
+
+/**
+ * How compiled formats are evicted once the format cache is full, see {@link GetText#setFormatCacheEvictionPolicy(EvictionPolicy)}
+ */
+public enum EvictionPolicy {
+	/**
+	 * Evicts an approximately least recently used format via the CLOCK algorithm: formats are scanned in insertion
+	 * order and a format used since the last scan is skipped once. Suits applications that format the same small set
+	 * of strings repeatedly.
+	 */
+	LRU,
+	/**
+	 * As {@link #LRU}, but a new format is only cached if it has been requested more often recently than the format
+	 * it would evict. Prevents a burst of one-off strings (e.g. a long list of item descriptions) flushing frequently
+	 * used formats from the cache.
+	 */
+	TINY_LFU
+}
@@ -0,0 +1,466 @@
+/*******************************************************************************
+ * Copyright 2019 Thomas Cashman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.mini2Dx.gettext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded cache of {@link CompiledMessageFormat} instances for a {@link Locale}, keyed by the unsanitised string.<br>
+ * <br>
+ * A compiled format only depends on its string and {@link Locale}, so a single cache per {@link Locale} is shared by
+ * all {@link TranslationMap}s and by untranslated text formatted when no translations are loaded.<br>
+ * <br>
+ * Lookups never lock. Formats are evicted in approximately least recently used order via the CLOCK algorithm, which
+ * marks a format as used on each hit instead of reordering a list. With {@link EvictionPolicy#TINY_LFU} a new
+ * format only replaces the eviction candidate if it has been requested more often recently. Hits are recorded in a
+ * lossy striped buffer and only applied to the frequency sketch while holding the eviction lock.
+ */
+final class FormatCache {
+	static final int DEFAULT_CAPACITY = 8192;
+
+	private static final ConcurrentMap<Locale, FormatCache> CACHES = new ConcurrentHashMap<Locale, FormatCache>();
+	private static final Object CONFIG_LOCK = new Object();
+	private static volatile int CAPACITY = DEFAULT_CAPACITY;
+	private static volatile EvictionPolicy EVICTION_POLICY = EvictionPolicy.LRU;
+
+	private final Locale locale;
+	private final ConcurrentMap<String, Node> formats;
+	private final Counters counters = new Counters();
+	private final ReadBuffer readBuffer = new ReadBuffer();
+	private final ReentrantLock evictionLock = new ReentrantLock();
+
+	/**
+	 * Insertion ring scanned by the CLOCK hand, guarded by {@link #evictionLock}
+	 */
+	private Node[] ring;
+	private int size;
+	private int hand;
+	private EvictionPolicy evictionPolicy;
+	private volatile FrequencySketch sketch;
+
+	FormatCache(Locale locale, int capacity, EvictionPolicy evictionPolicy) {
+		super();
+		if(capacity < 1) {
+			throw new IllegalArgumentException("capacity must be at least 1");
+		}
+		this.locale = locale;
+		this.formats = new ConcurrentHashMap<String, Node>(Math.min(capacity, 256));
+		this.ring = new Node[capacity];
+		setEvictionPolicy(evictionPolicy);
+	}
+
+	/**
+	 * Returns the shared cache for a {@link Locale}
+	 * @param locale The {@link Locale} values are formatted with
+	 * @return The {@link FormatCache} for the {@link Locale}
+	 */
+	static FormatCache forLocale(Locale locale) {
+		if(locale == null) {
+			throw new NullPointerException("Null locale reference");
+		}
+		FormatCache result = CACHES.get(locale);
+		if(result != null) {
+			return result;
+		}
+		synchronized(CONFIG_LOCK) {
+			result = CACHES.get(locale);
+			if(result == null) {
+				result = new FormatCache(locale, CAPACITY, EVICTION_POLICY);
+				CACHES.put(locale, result);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Changes the capacity and eviction policy of all shared caches
+	 * @param capacity The maximum number of formats per {@link Locale}
+	 * @param evictionPolicy The {@link EvictionPolicy} to use
+	 */
+	static void configure(int capacity, EvictionPolicy evictionPolicy) {
+		if(capacity < 1) {
+			throw new IllegalArgumentException("capacity must be at least 1");
+		}
+		if(evictionPolicy == null) {
+			throw new NullPointerException("Null evictionPolicy reference");
+		}
+		synchronized(CONFIG_LOCK) {
+			CAPACITY = capacity;
+			EVICTION_POLICY = evictionPolicy;
+			for(FormatCache formatCache : CACHES.values()) {
+				formatCache.setCapacity(capacity);
+				formatCache.setEvictionPolicy(evictionPolicy);
+			}
+		}
+	}
+
+	static int getCapacity() {
+		return CAPACITY;
+	}
+
+	static EvictionPolicy getDefaultEvictionPolicy() {
+		return EVICTION_POLICY;
+	}
+
+	/**
+	 * Returns the combined statistics of all shared caches
+	 * @return A new {@link FormatCacheStats}
+	 */
+	static FormatCacheStats getTotalStats() {
+		final List<FormatCacheStats> stats = new ArrayList<FormatCacheStats>();
+		for(FormatCache formatCache : CACHES.values()) {
+			stats.add(formatCache.getStats());
+		}
+		return FormatCacheStats.sum(stats);
+	}
+
+	/**
+	 * Returns the compiled format of a string, compiling it on first use
+	 * @param str The msgid or msgstr, before {@link TranslationMap#messageFormatSanitise(String)}
+	 * @return The {@link CompiledMessageFormat} for the string
+	 */
+	CompiledMessageFormat get(String str) {
+		final Node node = formats.get(str);
+		if(node != null) {
+			if(!node.referenced) {
+				node.referenced = true;
+			}
+			if(sketch != null && readBuffer.offer(str) && evictionLock.tryLock()) {
+				//Only the thread that fills a stripe drains the buffer, other readers never wait
+				try {
+					drainReadBuffer();
+				} finally {
+					evictionLock.unlock();
+				}
+			}
+			counters.increment(Counters.HITS);
+			return node.format;
+		}
+		counters.increment(Counters.MISSES);
+		final CompiledMessageFormat result = CompiledMessageFormat.compile(TranslationMap.messageFormatSanitise(str), locale);
+		return add(str, result);
+	}
+
+	private CompiledMessageFormat add(String str, CompiledMessageFormat format) {
+		evictionLock.lock();
+		try {
+			if(sketch != null) {
+				drainReadBuffer();
+				sketch.increment(str.hashCode());
+				sketch.age();
+			}
+			final Node existing = formats.get(str);
+			if(existing != null) {
+				return existing.format;
+			}
+			final Node node = new Node(str, format);
+			if(size < ring.length) {
+				ring[size++] = node;
+				formats.put(str, node);
+				return format;
+			}
+
+			//Give each recently used format a second chance
+			Node victim = ring[hand];
+			while(victim.referenced) {
+				victim.referenced = false;
+				hand = (hand + 1) % ring.length;
+				victim = ring[hand];
+			}
+			if(sketch != null && sketch.frequency(str.hashCode()) <= sketch.frequency(victim.key.hashCode())) {
+				//Not admitted, the format is still returned but not cached
+				return format;
+			}
+			formats.remove(victim.key);
+			counters.increment(Counters.EVICTIONS);
+			ring[hand] = node;
+			hand = (hand + 1) % ring.length;
+			formats.put(str, node);
+			return format;
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	/**
+	 * Applies buffered hits to the frequency sketch. Must be called while holding {@link #evictionLock}.
+	 */
+	private void drainReadBuffer() {
+		final FrequencySketch sketch = this.sketch;
+		if(sketch == null) {
+			return;
+		}
+		readBuffer.drainTo(sketch);
+	}
+
+	void setCapacity(int capacity) {
+		evictionLock.lock();
+		try {
+			resize(capacity);
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	private void resize(int capacity) {
+		if(capacity == ring.length) {
+			return;
+		}
+		final Node[] nextRing = new Node[capacity];
+		int nextSize = 0;
+		//Keep the formats the hand would reach last
+		for(int i = 0; i < size; i++) {
+			final Node node = ring[(hand + i) % size];
+			if(size - i <= capacity) {
+				nextRing[nextSize++] = node;
+			} else {
+				formats.remove(node.key);
+				counters.increment(Counters.EVICTIONS);
+			}
+		}
+		ring = nextRing;
+		size = nextSize;
+		hand = 0;
+		if(sketch != null) {
+			sketch = new FrequencySketch(capacity);
+		}
+	}
+
+	void setEvictionPolicy(EvictionPolicy evictionPolicy) {
+		evictionLock.lock();
+		try {
+			if(evictionPolicy == this.evictionPolicy) {
+				return;
+			}
+			this.evictionPolicy = evictionPolicy;
+			sketch = evictionPolicy == EvictionPolicy.TINY_LFU ? new FrequencySketch(ring.length) : null;
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	void clear() {
+		evictionLock.lock();
+		try {
+			formats.clear();
+			for(int i = 0; i < size; i++) {
+				ring[i] = null;
+			}
+			size = 0;
+			hand = 0;
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	/**
+	 * Returns a snapshot of this cache's statistics
+	 * @return A new {@link FormatCacheStats}
+	 */
+	FormatCacheStats getStats() {
+		final int capacity;
+		final int size;
+		evictionLock.lock();
+		try {
+			capacity = ring.length;
+			size = this.size;
+		} finally {
+			evictionLock.unlock();
+		}
+		return new FormatCacheStats(counters.get(Counters.HITS), counters.get(Counters.MISSES),
+				counters.get(Counters.EVICTIONS), size, capacity);
+	}
+
+	static FormatCache getIfPresent(Locale locale) {
+		return CACHES.get(locale);
+	}
+
+	int size() {
+		evictionLock.lock();
+		try {
+			return size;
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	Locale getLocale() {
+		return locale;
+	}
+
+	private static final class Node {
+		final String key;
+		final CompiledMessageFormat format;
+		volatile boolean referenced;
+
+		Node(String key, CompiledMessageFormat format) {
+			super();
+			this.key = key;
+			this.format = format;
+		}
+	}
+
+	/**
+	 * Hit, miss and eviction counts striped by thread to avoid contention between threads formatting at once
+	 */
+	private static final class Counters {
+		static final int HITS = 0;
+		static final int MISSES = 1;
+		static final int EVICTIONS = 2;
+
+		//One 64 byte cache line per stripe
+		private static final int STRIPE_SIZE = 8;
+		private static final int STRIPES = 16;
+
+		private final AtomicLongArray values = new AtomicLongArray(STRIPES * STRIPE_SIZE);
+
+		void increment(int counter) {
+			final int stripe = (int) (Thread.currentThread().getId() & (STRIPES - 1));
+			values.getAndIncrement((stripe * STRIPE_SIZE) + counter);
+		}
+
+		long get(int counter) {
+			long result = 0L;
+			for(int i = 0; i < STRIPES; i++) {
+				result += values.get((i * STRIPE_SIZE) + counter);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Hits waiting to be applied to the {@link FrequencySketch}, striped by thread like {@link Counters}. A hit is
+	 * dropped if its stripe is full, which only affects the frequency estimate.
+	 */
+	private static final class ReadBuffer {
+		private static final int STRIPES = 16;
+		private static final int STRIPE_SIZE = 16;
+		//One 64 byte cache line per counter
+		private static final int COUNTER_PADDING = 8;
+
+		private final AtomicReferenceArray<String> keys = new AtomicReferenceArray<String>(STRIPES * STRIPE_SIZE);
+		private final AtomicLongArray writes = new AtomicLongArray(STRIPES * COUNTER_PADDING);
+		/**
+		 * Only advanced by the thread draining the buffer
+		 */
+		private final AtomicLongArray reads = new AtomicLongArray(STRIPES * COUNTER_PADDING);
+
+		/**
+		 * Records a hit
+		 * @param key The requested string
+		 * @return True if the stripe is full and should be drained
+		 */
+		boolean offer(String key) {
+			final int stripe = (int) (Thread.currentThread().getId() & (STRIPES - 1));
+			final int counter = stripe * COUNTER_PADDING;
+			final long write = writes.get(counter);
+			if(write - reads.get(counter) >= STRIPE_SIZE) {
+				return true;
+			}
+			if(writes.compareAndSet(counter, write, write + 1)) {
+				keys.lazySet((stripe * STRIPE_SIZE) + (int) (write & (STRIPE_SIZE - 1)), key);
+			}
+			return write + 1 - reads.get(counter) >= STRIPE_SIZE;
+		}
+
+		void drainTo(FrequencySketch sketch) {
+			for(int stripe = 0; stripe < STRIPES; stripe++) {
+				final int counter = stripe * COUNTER_PADDING;
+				final long write = writes.get(counter);
+				long read = reads.get(counter);
+				while(read < write) {
+					final int index = (stripe * STRIPE_SIZE) + (int) (read & (STRIPE_SIZE - 1));
+					final String key = keys.get(index);
+					if(key == null) {
+						//Claimed but not yet written, applied on the next drain
+						break;
+					}
+					keys.lazySet(index, null);
+					sketch.increment(key.hashCode());
+					read++;
+				}
+				reads.lazySet(counter, read);
+			}
+		}
+	}
+
+	/**
+	 * Count-min sketch of recent request frequencies, halved periodically so that old popularity fades. Only
+	 * accessed while holding the eviction lock.
+	 */
+	private static final class FrequencySketch {
+		private static final int DEPTH = 4;
+		private static final int MAX_COUNT = 15;
+		private static final int[] SEEDS = { 0x97cb3127, 0x2c6fe996, 0x4f9b5d2a, 0x7a1e3c4b };
+
+		private final byte[] counts;
+		private final int mask;
+		private final int sampleSize;
+		private int samples;
+
+		FrequencySketch(int capacity) {
+			super();
+			final int width = Integer.highestOneBit(Math.max(64, capacity - 1) << 1);
+			counts = new byte[width * DEPTH];
+			mask = width - 1;
+			sampleSize = Math.max(capacity, 64) * 10;
+		}
+
+		void increment(int hash) {
+			for(int i = 0; i < DEPTH; i++) {
+				final int index = indexOf(hash, i);
+				if(counts[index] < MAX_COUNT) {
+					counts[index]++;
+				}
+			}
+			samples++;
+		}
+
+		/**
+		 * Halves all counts once enough requests have been sampled
+		 */
+		void age() {
+			if(samples < sampleSize) {
+				return;
+			}
+			samples = 0;
+			for(int i = 0; i < counts.length; i++) {
+				counts[i] >>= 1;
+			}
+		}
+
+		int frequency(int hash) {
+			int result = MAX_COUNT;
+			for(int i = 0; i < DEPTH; i++) {
+				result = Math.min(result, counts[indexOf(hash, i)]);
+			}
+			return result;
+		}
+
+		private int indexOf(int hash, int row) {
+			int result = hash * SEEDS[row];
+			result ^= result >>> 17;
+			return (row * (mask + 1)) + (result & mask);
+		}
+	}
+}
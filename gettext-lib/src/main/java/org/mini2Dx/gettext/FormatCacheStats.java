@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright 2019 Thomas Cashman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.mini2Dx.gettext;
+
+import java.util.List;
+
+/**
+ * A snapshot of the compiled format cache's statistics, see {@link GetText#getFormatCacheStats()}
+ */
+public final class FormatCacheStats {
+	private final long hits;
+	private final long misses;
+	private final long evictions;
+	private final int size;
+	private final int capacity;
+
+	FormatCacheStats(long hits, long misses, long evictions, int size, int capacity) {
+		super();
+		this.hits = hits;
+		this.misses = misses;
+		this.evictions = evictions;
+		this.size = size;
+		this.capacity = capacity;
+	}
+
+	static FormatCacheStats sum(List<FormatCacheStats> stats) {
+		long hits = 0L;
+		long misses = 0L;
+		long evictions = 0L;
+		int size = 0;
+		int capacity = 0;
+		for(FormatCacheStats next : stats) {
+			hits += next.hits;
+			misses += next.misses;
+			evictions += next.evictions;
+			size += next.size;
+			capacity += next.capacity;
+		}
+		return new FormatCacheStats(hits, misses, evictions, size, capacity);
+	}
+
+	/**
+	 * Returns the number of lookups that found a compiled format
+	 * @return The number of cache hits
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Returns the number of lookups that compiled a format
+	 * @return The number of cache misses
+	 */
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Returns the number of compiled formats removed to make room for others
+	 * @return The number of evictions
+	 */
+	public long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Returns the number of compiled formats currently cached
+	 * @return The current size
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns the maximum number of compiled formats that can be cached
+	 * @return The capacity
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Returns the fraction of lookups that found a compiled format
+	 * @return 0.0 to 1.0, or 0.0 if there were no lookups
+	 */
+	public double getHitRate() {
+		final long requests = hits + misses;
+		return requests == 0L ? 0.0 : (double) hits / requests;
+	}
+
+	@Override
+	public String toString() {
+		return "FormatCacheStats{" +
+				"hits=" + hits +
+				", misses=" + misses +
+				", evictions=" + evictions +
+				", size=" + size +
+				", capacity=" + capacity +
+				'}';
+	}
+}
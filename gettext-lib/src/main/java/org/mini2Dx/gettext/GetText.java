@@ -15,19 +15,49 @@
  ******************************************************************************/
 package org.mini2Dx.gettext;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.text.MessageFormat;
-import java.util.HashMap;
-import java.util.Locale;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Main class for using gettext. Most developer should just need this class and calling {@link #add(PoFile)} to add translations.<br>
  * <br>
- * By default, the {@link Locale} is set to {@link Locale#ENGLISH}. This can be changed via {@link #setLocale(Locale)}
+ * By default, the {@link Locale} is set to {@link Locale#ENGLISH}. This can be changed via {@link #setLocale(Locale)}<br>
+ * <br>
+ * Many files can be parsed in parallel and published together via {@link #addAll(Collection, Executor)}, or
+ * registered via {@link #register(CatalogSource)} to be loaded only when their {@link Locale} is first used.<br>
+ * <br>
+ * Translations are stored as an immutable snapshot. Adding a {@link PoFile} builds a new snapshot and publishes it
+ * in a single write so that translation lookups on other threads never lock and never observe a partially loaded file.<br>
+ * <br>
+ * Servers rendering each request in a different language can use {@link #getTranslator(Locale)} or
+ * {@link #withLocale(Locale)} instead of changing the default {@link Locale}.<br>
+ * <br>
+ * A {@link Locale} without its own translation falls back to its parent {@link Locale}s (e.g. fr_CA to fr) and then
+ * to the {@link Locale}s set via {@link #setFallbackLocales(Locale...)}. The chain is merged into a single table
+ * so that lookups never walk the chain. Lookups never lock, so a {@link Locale} without its own catalog is merged
+ * in the background the first time it is used. Until then only the most specific catalog in its chain is used.
+ * {@link #preload(Locale)} merges the chain before returning.
  */
 public class GetText {
-	private static final Map<Locale, TranslationMap> TRANSLATIONS = new HashMap<Locale, TranslationMap>();
-	private static Locale LOCALE = Locale.ENGLISH;
+	private static final Object WRITE_LOCK = new Object();
+
+	private static volatile TranslationRegistry REGISTRY = TranslationRegistry.EMPTY;
+	private static final AtomicReference<Translator> TRANSLATOR = new AtomicReference<Translator>(
+			new Translator(Locale.ENGLISH, null));
+	private static volatile StringPool STRING_POOL = null;
+	private static final CatalogLoader LOADER = new CatalogLoader(WRITE_LOCK);
+	/**
+	 * {@link Locale}s waiting to be resolved on the loader {@link Executor}
+	 */
+	private static final ConcurrentMap<Locale, Boolean> RESOLVING = new ConcurrentHashMap<Locale, Boolean>();
+
+	private static final ThreadLocal<LocaleScope> SCOPES = new ThreadLocal<LocaleScope>();
+	private static final AtomicInteger TOTAL_SCOPES = new AtomicInteger();
 
 	/**
 	 * Translates source based on currently set {@link Locale}
@@ -35,7 +65,7 @@ public class GetText {
 	 * @return The source text if no translation can be found, else returns msgstr
 	 */
 	public static String tr(String sourceText) {
-		return tr(LOCALE, sourceText);
+		return getTranslator().tr(sourceText);
 	}
 
 	/**
@@ -45,7 +75,7 @@ public class GetText {
 	 * @return The source text if no translation can be found, else returns msgstr
 	 */
 	public static String tr(String sourceText, Object... values) {
-		return tr(LOCALE, sourceText, values);
+		return getTranslator().tr(sourceText, values);
 	}
 
 	/**
@@ -55,7 +85,7 @@ public class GetText {
 	 * @return The source text if no translation can be found, else returns msgstr
 	 */
 	public static String trc(String context, String sourceText) {
-		return trc(LOCALE, context, sourceText);
+		return getTranslator().trc(context, sourceText);
 	}
 
 	/**
@@ -66,30 +96,30 @@ public class GetText {
 	 * @return The source text if no translation can be found, else returns msgstr
 	 */
 	public static String trc(String context, String sourceText, Object... values) {
-		return trc(LOCALE, context, sourceText, values);
+		return getTranslator().trc(context, sourceText, values);
 	}
 
 	/**
 	 * Translates the plural form of a source based on currently set {@link Locale}
 	 * @param sourceText The source text to translate (msgid)
 	 * @param sourcePluralText The plural source text to translate (msgid_plural)
-	 * @param n The plural index (msgstr[n])
-	 * @return The source text if no translation can be found, else returns msgstr[n]
+	 * @param n The quantity used to select the plural form
+	 * @return The source text if no translation can be found, else returns the msgstr for n
 	 */
 	public static String trn(String sourceText, String sourcePluralText, int n) {
-		return trn(LOCALE, sourceText, sourcePluralText, n);
+		return getTranslator().trn(sourceText, sourcePluralText, n);
 	}
 
 	/**
 	 * Translates the plural form of a source based on currently set {@link Locale} and injects values into the text
 	 * @param sourceText The source text to translate (msgid)
 	 * @param sourcePluralText The plural source text to translate (msgid_plural)
-	 * @param n The plural index (msgstr[n])
+	 * @param n The quantity used to select the plural form
 	 * @param values The values to be injected using {@link MessageFormat}
-	 * @return The source text if no translation can be found, else returns msgstr[n]
+	 * @return The source text if no translation can be found, else returns the msgstr for n
 	 */
 	public static String trn(String sourceText, String sourcePluralText, int n, Object... values) {
-		return trn(LOCALE, sourceText, sourcePluralText, n, values);
+		return getTranslator().trn(sourceText, sourcePluralText, n, values);
 	}
 
 	/**
@@ -97,11 +127,11 @@ public class GetText {
 	 * @param context The translation context (msgctxt)
 	 * @param sourceText The source text to translate (msgid)
 	 * @param sourcePluralText The plural source text to translate (msgid_plural)
-	 * @param n The plural index (msgstr[n])
-	 * @return The source text if no translation can be found, else returns msgstr[n]
+	 * @param n The quantity used to select the plural form
+	 * @return The source text if no translation can be found, else returns the msgstr for n
 	 */
 	public static String trnc(String context, String sourceText, String sourcePluralText, int n) {
-		return trnc(LOCALE, context, sourceText, sourcePluralText, n);
+		return getTranslator().trnc(context, sourceText, sourcePluralText, n);
 	}
 
 	/**
@@ -109,106 +139,522 @@ public class GetText {
 	 * @param context The translation context (msgctxt)
 	 * @param sourceText The source text to translate (msgid)
 	 * @param sourcePluralText The plural source text to translate (msgid_plural)
-	 * @param n The plural index (msgstr[n])
+	 * @param n The quantity used to select the plural form
 	 * @param values The values to be injected using {@link MessageFormat}
-	 * @return The source text if no translation can be found, else returns msgstr[n]
+	 * @return The source text if no translation can be found, else returns the msgstr for n
 	 */
 	public static String trnc(String context, String sourceText, String sourcePluralText, int n, Object... values) {
-		return trnc(LOCALE, context, sourceText, sourcePluralText, n, values);
+		return getTranslator().trnc(context, sourceText, sourcePluralText, n, values);
 	}
 
 	/**
 	 * Same as {@link #tr(String)} using a specific {@link Locale}
 	 */
 	public static String tr(Locale locale, String sourceText) {
-		final TranslationMap translationMap = TRANSLATIONS.get(locale);
-		if(translationMap == null) {
-			return sourceText;
-		}
-		return translationMap.tr(sourceText);
+		return Translator.tr(getTranslations(locale), sourceText);
 	}
 
 	/**
 	 * Same as {@link #tr(String, Object...)} using a specific {@link Locale}
 	 */
 	public static String tr(Locale locale, String sourceText, Object... values) {
-		final TranslationMap translationMap = TRANSLATIONS.get(locale);
-		if(translationMap == null) {
-			return MessageFormat.format(TranslationMap.messageFormatSanitise(sourceText), values);
-		}
-		return translationMap.tr(sourceText, values);
+		return Translator.tr(getTranslations(locale), sourceText, values);
 	}
 
 	/**
 	 * Same as {@link #trc(String, String)} using a specific {@link Locale}
 	 */
 	public static String trc(Locale locale, String context, String sourceText) {
-		final TranslationMap translationMap = TRANSLATIONS.get(locale);
-		if(translationMap == null) {
-			return sourceText;
-		}
-		return translationMap.trc(context, sourceText);
+		return Translator.trc(getTranslations(locale), context, sourceText);
 	}
 
 	/**
 	 * Same as {@link #trc(String, String, Object...)} using a specific {@link Locale}
 	 */
 	public static String trc(Locale locale, String context, String sourceText, Object... values) {
-		final TranslationMap translationMap = TRANSLATIONS.get(locale);
-		if(translationMap == null) {
-			return MessageFormat.format(TranslationMap.messageFormatSanitise(sourceText), values);
-		}
-		return translationMap.trc(context, sourceText, values);
+		return Translator.trc(getTranslations(locale), context, sourceText, values);
 	}
 
 	/**
 	 * Same as {@link #trn(String, String, int)} using a specific {@link Locale}
 	 */
 	public static String trn(Locale locale, String sourceText, String sourcePluralText, int n) {
-		final TranslationMap translationMap = TRANSLATIONS.get(locale);
-		if(translationMap == null) {
-			return sourcePluralText;
-		}
-		return translationMap.trn(sourceText, sourcePluralText, n);
+		return Translator.trn(getTranslations(locale), sourceText, sourcePluralText, n);
 	}
 
 	/**
 	 * Same as {@link #trn(String, String, int, Object...)} using a specific {@link Locale}
 	 */
 	public static String trn(Locale locale, String sourceText, String sourcePluralText, int n, Object... values) {
-		final TranslationMap translationMap = TRANSLATIONS.get(locale);
-		if(translationMap == null) {
-			if(n > 1) {
-				return MessageFormat.format(TranslationMap.messageFormatSanitise(sourcePluralText), values);
-			}
-			return MessageFormat.format(TranslationMap.messageFormatSanitise(sourceText), values);
-		}
-		return translationMap.trn(sourceText, sourcePluralText, n, values);
+		return Translator.trn(getTranslations(locale), sourceText, sourcePluralText, n, values);
 	}
 
 	/**
 	 * Same as {@link #trnc(String, String, String, int)} using a specific {@link Locale}
 	 */
 	public static String trnc(Locale locale, String context, String sourceText, String sourcePluralText, int n) {
-		final TranslationMap translationMap = TRANSLATIONS.get(locale);
-		if(translationMap == null) {
-			return sourcePluralText;
-		}
-		return translationMap.trnc(context, sourceText, sourcePluralText, n);
+		return Translator.trnc(getTranslations(locale), context, sourceText, sourcePluralText, n);
 	}
 
 	/**
 	 * Same as {@link #trnc(String, String, String, int, Object...)} using a specific {@link Locale}
 	 */
 	public static String trnc(Locale locale, String context, String sourceText, String sourcePluralText, int n, Object... values) {
-		final TranslationMap translationMap = TRANSLATIONS.get(locale);
-		if (translationMap == null) {
-			if(n > 1) {
-				return MessageFormat.format(TranslationMap.messageFormatSanitise(sourcePluralText), values);
-			}
-			return MessageFormat.format(TranslationMap.messageFormatSanitise(sourceText), values);
-		}
-		return translationMap.trnc(context, sourceText, sourcePluralText, n, values);
+		return Translator.trnc(getTranslations(locale), context, sourceText, sourcePluralText, n, values);
+	}
+
+	/**
+	 * Translates a pre-resolved {@link TranslationKey} based on currently set {@link Locale}
+	 * @param key The {@link TranslationKey} to translate
+	 * @return The source text if no translation can be found, else returns msgstr
+	 */
+	public static String tr(TranslationKey key) {
+		return getTranslator().tr(key);
+	}
+
+	/**
+	 * Translates a pre-resolved {@link TranslationKey} based on currently set {@link Locale} and injects values into the text
+	 * @param key The {@link TranslationKey} to translate
+	 * @param values The values to be injected using {@link MessageFormat}
+	 * @return The source text if no translation can be found, else returns msgstr
+	 */
+	public static String tr(TranslationKey key, Object... values) {
+		return getTranslator().tr(key, values);
+	}
+
+	/**
+	 * Translates the plural form of a pre-resolved {@link TranslationKey} based on currently set {@link Locale}
+	 * @param key The {@link TranslationKey} to translate
+	 * @param n The quantity used to select the plural form
+	 * @return The source text if no translation can be found, else returns the msgstr for n
+	 */
+	public static String trn(TranslationKey key, int n) {
+		return getTranslator().trn(key, n);
+	}
+
+	/**
+	 * Translates the plural form of a pre-resolved {@link TranslationKey} based on currently set {@link Locale} and injects values into the text
+	 * @param key The {@link TranslationKey} to translate
+	 * @param n The quantity used to select the plural form
+	 * @param values The values to be injected using {@link MessageFormat}
+	 * @return The source text if no translation can be found, else returns the msgstr for n
+	 */
+	public static String trn(TranslationKey key, int n, Object... values) {
+		return getTranslator().trn(key, n, values);
+	}
+
+	/**
+	 * Same as {@link #tr(TranslationKey)} using a specific {@link Locale}
+	 */
+	public static String tr(Locale locale, TranslationKey key) {
+		return Translator.tr(getTranslations(locale), key);
+	}
+
+	/**
+	 * Same as {@link #tr(TranslationKey, Object...)} using a specific {@link Locale}
+	 */
+	public static String tr(Locale locale, TranslationKey key, Object... values) {
+		return Translator.tr(getTranslations(locale), key, values);
+	}
+
+	/**
+	 * Same as {@link #trn(TranslationKey, int)} using a specific {@link Locale}
+	 */
+	public static String trn(Locale locale, TranslationKey key, int n) {
+		return Translator.trn(getTranslations(locale), key, n);
+	}
+
+	/**
+	 * Same as {@link #trn(TranslationKey, int, Object...)} using a specific {@link Locale}
+	 */
+	public static String trn(Locale locale, TranslationKey key, int n, Object... values) {
+		return Translator.trn(getTranslations(locale), key, n, values);
+	}
+
+	/**
+	 * Appends the translation of source based on currently set {@link Locale} to a {@link StringBuilder}
+	 * @param result The {@link StringBuilder} to append to
+	 * @param sourceText The source text to translate (msgid)
+	 * @return The {@link StringBuilder} that was passed in
+	 */
+	public static StringBuilder trTo(StringBuilder result, String sourceText) {
+		return getTranslator().trTo(result, sourceText);
+	}
+
+	/**
+	 * Appends the translation of source based on currently set {@link Locale} and injects values into the text
+	 * @param result The {@link StringBuilder} to append to
+	 * @param sourceText The source text to translate (msgid)
+	 * @param values The values to be injected using {@link MessageFormat}
+	 * @return The {@link StringBuilder} that was passed in
+	 */
+	public static StringBuilder trTo(StringBuilder result, String sourceText, Object... values) {
+		return getTranslator().trTo(result, sourceText, values);
+	}
+
+	/**
+	 * Appends the translation of source based on currently set {@link Locale} and injects a value into the text
+	 * @param result The {@link StringBuilder} to append to
+	 * @param sourceText The source text to translate (msgid)
+	 * @param value The value to be injected without boxing
+	 * @return The {@link StringBuilder} that was passed in
+	 */
+	public static StringBuilder trTo(StringBuilder result, String sourceText, int value) {
+		return getTranslator().trTo(result, sourceText, value);
+	}
+
+	/**
+	 * Appends the translation of source based on currently set {@link Locale} and injects a value into the text
+	 * @param result The {@link StringBuilder} to append to
+	 * @param sourceText The source text to translate (msgid)
+	 * @param value The value to be injected without boxing
+	 * @return The {@link StringBuilder} that was passed in
+	 */
+	public static StringBuilder trTo(StringBuilder result, String sourceText, long value) {
+		return getTranslator().trTo(result, sourceText, value);
+	}
+
+	/**
+	 * Appends the translation of source based on currently set {@link Locale} and injects a value into the text
+	 * @param result The {@link StringBuilder} to append to
+	 * @param sourceText The source text to translate (msgid)
+	 * @param value The value to be injected without boxing
+	 * @return The {@link StringBuilder} that was passed in
+	 */
+	public static StringBuilder trTo(StringBuilder result, String sourceText, float value) {
+		return getTranslator().trTo(result, sourceText, value);
+	}
+
+	/**
+	 * Appends the translation of source based on currently set {@link Locale} based on a specified context to a {@link StringBuilder}
+	 * @param result The {@link StringBuilder} to append to
+	 * @param context The translation context (msgctxt)
+	 * @param sourceText The source text to translate (msgid)
+	 * @return The {@link StringBuilder} that was passed in
+	 */
+	public static StringBuilder trcTo(StringBuilder result, String context, String sourceText) {
+		return getTranslator().trcTo(result, context, sourceText);
+	}
+
+	/**
+	 * Appends the translation of source based on currently set {@link Locale} based on a specified context and injects values into the text
+	 * @param result The {@link StringBuilder} to append to
+	 * @param context The translation context (msgctxt)
+	 * @param sourceText The source text to translate (msgid)
+	 * @param values The values to be injected using {@link MessageFormat}
+	 * @return The {@link StringBuilder} that was passed in
+	 */
+	public static StringBuilder trcTo(StringBuilder result, String context, String sourceText, Object... values) {
+		return getTranslator().trcTo(result, context, sourceText, values);
+	}
+
+	/**
+	 * Appends the translation of source based on currently set {@link Locale} based on a specified context and injects a value into the text
+	 * @param result The {@link StringBuilder} to append to
+	 * @param context The translation context (msgctxt)
+	 * @param sourceText The source text to translate (msgid)
+	 * @param value The value to be injected without boxing
+	 * @return The {@link StringBuilder} that was passed in
+	 */
+	public static StringBuilder trcTo(StringBuilder result, String context, String sourceText, int value) {
+		return getTranslator().trcTo(result, context, sourceText, value);
+	}
+
+	/**
+	 * Appends the translation of source based on currently set {@link Locale} based on a specified context and injects a value into the text
+	 * @param result The {@link StringBuilder} to append to
+	 * @param context The translation context (msgctxt)
+	 * @param sourceText The source text to translate (msgid)
+	 * @param value The value to be injected without boxing
+	 * @return The {@link StringBuilder} that was passed in
+	 */
+	public static StringBuilder trcTo(StringBuilder result, String context, String sourceText, long value) {
+		return getTranslator().trcTo(result, context, sourceText, value);
+	}
+
+	/**
+	 * Appends the translation of source based on currently set {@link Locale} based on a specified context and injects a value into the text
+	 * @param result The {@link StringBuilder} to append to
+	 * @param context The translation context (msgctxt)
+	 * @param sourceText The source text to translate (msgid)
+	 * @param value The value to be injected without boxing
+	 * @return The {@link StringBuilder} that was passed in
+	 */
+	public static StringBuilder trcTo(StringBuilder result, String context, String sourceText, float value) {
+		return getTranslator().trcTo(result, context, sourceText, value);
+	}
+
+	/**
+	 * Appends the translation of the plural form of a source based on currently set {@link Locale} to a {@link StringBuilder}
+	 * @param result The {@link StringBuilder} to append to
+	 * @param sourceText The source text to translate (msgid)
+	 * @param sourcePluralText The plural source text to translate (msgid_plural)
+	 * @param n The quantity used to select the plural form
+	 * @return The {@link StringBuilder} that was passed in
+	 */
+	public static StringBuilder trnTo(StringBuilder result, String sourceText, String sourcePluralText, int n) {
+		return getTranslator().trnTo(result, sourceText, sourcePluralText, n);
+	}
+
+	/**
+	 * Appends the translation of the plural form of a source based on currently set {@link Locale} and injects values into the text
+	 * @param result The {@link StringBuilder} to append to
+	 * @param sourceText The source text to translate (msgid)
+	 * @param sourcePluralText The plural source text to translate (msgid_plural)
+	 * @param n The quantity used to select the plural form
+	 * @param values The values to be injected using {@link MessageFormat}
+	 * @return The {@link StringBuilder} that was passed in
+	 */
+	public static StringBuilder trnTo(StringBuilder result, String sourceText, String sourcePluralText, int n, Object... values) {
+		return getTranslator().trnTo(result, sourceText, sourcePluralText, n, values);
+	}
+
+	/**
+	 * Appends the translation of the plural form of a source based on currently set {@link Locale} and injects a value into the text
+	 * @param result The {@link StringBuilder} to append to
+	 * @param sourceText The source text to translate (msgid)
+	 * @param sourcePluralText The plural source text to translate (msgid_plural)
+	 * @param n The quantity used to select the plural form
+	 * @param value The value to be injected without boxing
+	 * @return The {@link StringBuilder} that was passed in
+	 */
+	public static StringBuilder trnTo(StringBuilder result, String sourceText, String sourcePluralText, int n, int value) {
+		return getTranslator().trnTo(result, sourceText, sourcePluralText, n, value);
+	}
+
+	/**
+	 * Appends the translation of the plural form of a source based on currently set {@link Locale} and injects a value into the text
+	 * @param result The {@link StringBuilder} to append to
+	 * @param sourceText The source text to translate (msgid)
+	 * @param sourcePluralText The plural source text to translate (msgid_plural)
+	 * @param n The quantity used to select the plural form
+	 * @param value The value to be injected without boxing
+	 * @return The {@link StringBuilder} that was passed in
+	 */
+	public static StringBuilder trnTo(StringBuilder result, String sourceText, String sourcePluralText, int n, long value) {
+		return getTranslator().trnTo(result, sourceText, sourcePluralText, n, value);
+	}
+
+	/**
+	 * Appends the translation of the plural form of a source based on currently set {@link Locale} and injects a value into the text
+	 * @param result The {@link StringBuilder} to append to
+	 * @param sourceText The source text to translate (msgid)
+	 * @param sourcePluralText The plural source text to translate (msgid_plural)
+	 * @param n The quantity used to select the plural form
+	 * @param value The value to be injected without boxing
+	 * @return The {@link StringBuilder} that was passed in
+	 */
+	public static StringBuilder trnTo(StringBuilder result, String sourceText, String sourcePluralText, int n, float value) {
+		return getTranslator().trnTo(result, sourceText, sourcePluralText, n, value);
+	}
+
+	/**
+	 * Appends the translation of the plural form of a source based on currently set {@link Locale} based on a specified context to a {@link StringBuilder}
+	 * @param result The {@link StringBuilder} to append to
+	 * @param context The translation context (msgctxt)
+	 * @param sourceText The source text to translate (msgid)
+	 * @param sourcePluralText The plural source text to translate (msgid_plural)
+	 * @param n The quantity used to select the plural form
+	 * @return The {@link StringBuilder} that was passed in
+	 */
+	public static StringBuilder trncTo(StringBuilder result, String context, String sourceText, String sourcePluralText, int n) {
+		return getTranslator().trncTo(result, context, sourceText, sourcePluralText, n);
+	}
+
+	/**
+	 * Appends the translation of the plural form of a source based on currently set {@link Locale} based on a specified context and injects values into the text
+	 * @param result The {@link StringBuilder} to append to
+	 * @param context The translation context (msgctxt)
+	 * @param sourceText The source text to translate (msgid)
+	 * @param sourcePluralText The plural source text to translate (msgid_plural)
+	 * @param n The quantity used to select the plural form
+	 * @param values The values to be injected using {@link MessageFormat}
+	 * @return The {@link StringBuilder} that was passed in
+	 */
+	public static StringBuilder trncTo(StringBuilder result, String context, String sourceText, String sourcePluralText, int n, Object... values) {
+		return getTranslator().trncTo(result, context, sourceText, sourcePluralText, n, values);
+	}
+
+	/**
+	 * Appends the translation of the plural form of a source based on currently set {@link Locale} based on a specified context and injects a value into the text
+	 * @param result The {@link StringBuilder} to append to
+	 * @param context The translation context (msgctxt)
+	 * @param sourceText The source text to translate (msgid)
+	 * @param sourcePluralText The plural source text to translate (msgid_plural)
+	 * @param n The quantity used to select the plural form
+	 * @param value The value to be injected without boxing
+	 * @return The {@link StringBuilder} that was passed in
+	 */
+	public static StringBuilder trncTo(StringBuilder result, String context, String sourceText, String sourcePluralText, int n, int value) {
+		return getTranslator().trncTo(result, context, sourceText, sourcePluralText, n, value);
+	}
+
+	/**
+	 * Appends the translation of the plural form of a source based on currently set {@link Locale} based on a specified context and injects a value into the text
+	 * @param result The {@link StringBuilder} to append to
+	 * @param context The translation context (msgctxt)
+	 * @param sourceText The source text to translate (msgid)
+	 * @param sourcePluralText The plural source text to translate (msgid_plural)
+	 * @param n The quantity used to select the plural form
+	 * @param value The value to be injected without boxing
+	 * @return The {@link StringBuilder} that was passed in
+	 */
+	public static StringBuilder trncTo(StringBuilder result, String context, String sourceText, String sourcePluralText, int n, long value) {
+		return getTranslator().trncTo(result, context, sourceText, sourcePluralText, n, value);
+	}
+
+	/**
+	 * Appends the translation of the plural form of a source based on currently set {@link Locale} based on a specified context and injects a value into the text
+	 * @param result The {@link StringBuilder} to append to
+	 * @param context The translation context (msgctxt)
+	 * @param sourceText The source text to translate (msgid)
+	 * @param sourcePluralText The plural source text to translate (msgid_plural)
+	 * @param n The quantity used to select the plural form
+	 * @param value The value to be injected without boxing
+	 * @return The {@link StringBuilder} that was passed in
+	 */
+	public static StringBuilder trncTo(StringBuilder result, String context, String sourceText, String sourcePluralText, int n, float value) {
+		return getTranslator().trncTo(result, context, sourceText, sourcePluralText, n, value);
+	}
+
+	/**
+	 * Same as {@link #trTo(StringBuilder, String)} using a specific {@link Locale}
+	 */
+	public static StringBuilder trTo(Locale locale, StringBuilder result, String sourceText) {
+		return result.append(Translator.tr(getTranslations(locale), sourceText));
+	}
+
+	/**
+	 * Same as {@link #trTo(StringBuilder, String, Object...)} using a specific {@link Locale}
+	 */
+	public static StringBuilder trTo(Locale locale, StringBuilder result, String sourceText, Object... values) {
+		return Translator.trFormat(getTranslations(locale), sourceText).formatTo(result, values);
+	}
+
+	/**
+	 * Same as {@link #trTo(StringBuilder, String, int)} using a specific {@link Locale}
+	 */
+	public static StringBuilder trTo(Locale locale, StringBuilder result, String sourceText, int value) {
+		return Translator.trFormat(getTranslations(locale), sourceText).formatTo(result, value);
+	}
+
+	/**
+	 * Same as {@link #trTo(StringBuilder, String, long)} using a specific {@link Locale}
+	 */
+	public static StringBuilder trTo(Locale locale, StringBuilder result, String sourceText, long value) {
+		return Translator.trFormat(getTranslations(locale), sourceText).formatTo(result, value);
+	}
+
+	/**
+	 * Same as {@link #trTo(StringBuilder, String, float)} using a specific {@link Locale}
+	 */
+	public static StringBuilder trTo(Locale locale, StringBuilder result, String sourceText, float value) {
+		return Translator.trFormat(getTranslations(locale), sourceText).formatTo(result, value);
+	}
+
+	/**
+	 * Same as {@link #trcTo(StringBuilder, String, String)} using a specific {@link Locale}
+	 */
+	public static StringBuilder trcTo(Locale locale, StringBuilder result, String context, String sourceText) {
+		return result.append(Translator.trc(getTranslations(locale), context, sourceText));
+	}
+
+	/**
+	 * Same as {@link #trcTo(StringBuilder, String, String, Object...)} using a specific {@link Locale}
+	 */
+	public static StringBuilder trcTo(Locale locale, StringBuilder result, String context, String sourceText, Object... values) {
+		return Translator.trcFormat(getTranslations(locale), context, sourceText).formatTo(result, values);
+	}
+
+	/**
+	 * Same as {@link #trcTo(StringBuilder, String, String, int)} using a specific {@link Locale}
+	 */
+	public static StringBuilder trcTo(Locale locale, StringBuilder result, String context, String sourceText, int value) {
+		return Translator.trcFormat(getTranslations(locale), context, sourceText).formatTo(result, value);
+	}
+
+	/**
+	 * Same as {@link #trcTo(StringBuilder, String, String, long)} using a specific {@link Locale}
+	 */
+	public static StringBuilder trcTo(Locale locale, StringBuilder result, String context, String sourceText, long value) {
+		return Translator.trcFormat(getTranslations(locale), context, sourceText).formatTo(result, value);
+	}
+
+	/**
+	 * Same as {@link #trcTo(StringBuilder, String, String, float)} using a specific {@link Locale}
+	 */
+	public static StringBuilder trcTo(Locale locale, StringBuilder result, String context, String sourceText, float value) {
+		return Translator.trcFormat(getTranslations(locale), context, sourceText).formatTo(result, value);
+	}
+
+	/**
+	 * Same as {@link #trnTo(StringBuilder, String, String, int)} using a specific {@link Locale}
+	 */
+	public static StringBuilder trnTo(Locale locale, StringBuilder result, String sourceText, String sourcePluralText, int n) {
+		return result.append(Translator.trn(getTranslations(locale), sourceText, sourcePluralText, n));
+	}
+
+	/**
+	 * Same as {@link #trnTo(StringBuilder, String, String, int, Object...)} using a specific {@link Locale}
+	 */
+	public static StringBuilder trnTo(Locale locale, StringBuilder result, String sourceText, String sourcePluralText, int n, Object... values) {
+		return Translator.trnFormat(getTranslations(locale), sourceText, sourcePluralText, n).formatTo(result, values);
+	}
+
+	/**
+	 * Same as {@link #trnTo(StringBuilder, String, String, int, int)} using a specific {@link Locale}
+	 */
+	public static StringBuilder trnTo(Locale locale, StringBuilder result, String sourceText, String sourcePluralText, int n, int value) {
+		return Translator.trnFormat(getTranslations(locale), sourceText, sourcePluralText, n).formatTo(result, value);
+	}
+
+	/**
+	 * Same as {@link #trnTo(StringBuilder, String, String, int, long)} using a specific {@link Locale}
+	 */
+	public static StringBuilder trnTo(Locale locale, StringBuilder result, String sourceText, String sourcePluralText, int n, long value) {
+		return Translator.trnFormat(getTranslations(locale), sourceText, sourcePluralText, n).formatTo(result, value);
+	}
+
+	/**
+	 * Same as {@link #trnTo(StringBuilder, String, String, int, float)} using a specific {@link Locale}
+	 */
+	public static StringBuilder trnTo(Locale locale, StringBuilder result, String sourceText, String sourcePluralText, int n, float value) {
+		return Translator.trnFormat(getTranslations(locale), sourceText, sourcePluralText, n).formatTo(result, value);
+	}
+
+	/**
+	 * Same as {@link #trncTo(StringBuilder, String, String, String, int)} using a specific {@link Locale}
+	 */
+	public static StringBuilder trncTo(Locale locale, StringBuilder result, String context, String sourceText, String sourcePluralText, int n) {
+		return result.append(Translator.trnc(getTranslations(locale), context, sourceText, sourcePluralText, n));
+	}
+
+	/**
+	 * Same as {@link #trncTo(StringBuilder, String, String, String, int, Object...)} using a specific {@link Locale}
+	 */
+	public static StringBuilder trncTo(Locale locale, StringBuilder result, String context, String sourceText, String sourcePluralText, int n, Object... values) {
+		return Translator.trncFormat(getTranslations(locale), context, sourceText, sourcePluralText, n).formatTo(result, values);
+	}
+
+	/**
+	 * Same as {@link #trncTo(StringBuilder, String, String, String, int, int)} using a specific {@link Locale}
+	 */
+	public static StringBuilder trncTo(Locale locale, StringBuilder result, String context, String sourceText, String sourcePluralText, int n, int value) {
+		return Translator.trncFormat(getTranslations(locale), context, sourceText, sourcePluralText, n).formatTo(result, value);
+	}
+
+	/**
+	 * Same as {@link #trncTo(StringBuilder, String, String, String, int, long)} using a specific {@link Locale}
+	 */
+	public static StringBuilder trncTo(Locale locale, StringBuilder result, String context, String sourceText, String sourcePluralText, int n, long value) {
+		return Translator.trncFormat(getTranslations(locale), context, sourceText, sourcePluralText, n).formatTo(result, value);
+	}
+
+	/**
+	 * Same as {@link #trncTo(StringBuilder, String, String, String, int, float)} using a specific {@link Locale}
+	 */
+	public static StringBuilder trncTo(Locale locale, StringBuilder result, String context, String sourceText, String sourcePluralText, int n, float value) {
+		return Translator.trncFormat(getTranslations(locale), context, sourceText, sourcePluralText, n).formatTo(result, value);
 	}
 
 	/**
@@ -219,11 +665,7 @@ public class GetText {
 	 * @return Null if no such entry exists
 	 */
 	public static TranslationEntry getTranslationEntry(Locale locale, String context, String sourceText) {
-		final TranslationMap translationMap = TRANSLATIONS.get(locale);
-		if(translationMap == null) {
-			return null;
-		}
-		return translationMap.getEntry(context, sourceText);
+		return Translator.getTranslationEntry(getTranslations(locale), context, sourceText);
 	}
 
 	/**
@@ -232,28 +674,551 @@ public class GetText {
 	 * @param poFile A {@link PoFile} instance
 	 */
 	public static void add(PoFile poFile) {
-		if(!TRANSLATIONS.containsKey(poFile.getLocale())) {
-			TRANSLATIONS.put(poFile.getLocale(), new TranslationMap(poFile.getLocale()));
+		if(poFile == null) {
+			throw new NullPointerException("Null poFile reference");
+		}
+		synchronized(WRITE_LOCK) {
+			final TranslationMap translationMap = createCatalog(poFile.getLocale(),
+					REGISTRY.getCatalog(poFile.getLocale()), Collections.singletonList(poFile), STRING_POOL);
+			REGISTRY = REGISTRY.withCatalog(translationMap);
+			refreshTranslator();
+		}
+	}
+
+	/**
+	 * Replaces the entries of msgids in a catalog whose current entry is still the expected entry and publishes the
+	 * result in a single update. Used by {@link CatalogWatcher} when a file changes.
+	 * @param locale The {@link Locale} of the catalog
+	 * @param expectedEntries The entry each msgid must currently have, null if the msgid must not exist
+	 * @param replacementEntries The new entry for each msgid, null to remove the msgid
+	 */
+	static void replace(Locale locale, List<RuntimeEntry> expectedEntries, List<RuntimeEntry> replacementEntries) {
+		synchronized(WRITE_LOCK) {
+			final TranslationMap previous = REGISTRY.getCatalog(locale);
+			final TranslationMap translationMap = previous == null ? new TranslationMap(locale) :
+					new TranslationMap(previous);
+			translationMap.replace(expectedEntries, replacementEntries);
+
+			REGISTRY = REGISTRY.withCatalog(translationMap);
+			refreshTranslator();
+		}
+	}
+
+	/**
+	 * Returns the entry for a msgid from the .po entries of a {@link Locale}'s own catalog
+	 * @param locale The {@link Locale} of the catalog
+	 * @param context Null or empty for the default context, else msgctxt
+	 * @param id The msgid
+	 * @return Null if no entry exists
+	 */
+	static RuntimeEntry getCatalogEntry(Locale locale, String context, String id) {
+		final TranslationMap catalog = REGISTRY.getCatalog(locale);
+		return catalog == null ? null : catalog.getTableEntry(context, id);
+	}
+
+	/**
+	 * Loads a compiled .mo catalog for translation usage. Entries are decoded on demand, see {@link MoFile}.
+	 * Note: This does <b>not</b> need to match the current {@link Locale}
+	 * @param moFile A {@link MoFile} instance
+	 */
+	public static void add(MoFile moFile) {
+		if(moFile == null) {
+			throw new NullPointerException("Null moFile reference");
+		}
+		synchronized(WRITE_LOCK) {
+			final TranslationMap previous = REGISTRY.getCatalog(moFile.getLocale());
+			final TranslationMap translationMap = previous == null ? new TranslationMap(moFile.getLocale()) :
+					new TranslationMap(previous);
+			translationMap.add(moFile);
+
+			REGISTRY = REGISTRY.withCatalog(translationMap);
+			refreshTranslator();
+		}
+	}
+
+	/**
+	 * Loads a compressed binary catalog for translation usage. Blocks of entries are inflated on demand, see
+	 * {@link CompressedBinFile}. Note: This does <b>not</b> need to match the current {@link Locale}
+	 * @param binFile A {@link CompressedBinFile} instance
+	 */
+	public static void add(CompressedBinFile binFile) {
+		if(binFile == null) {
+			throw new NullPointerException("Null binFile reference");
+		}
+		synchronized(WRITE_LOCK) {
+			final TranslationMap previous = REGISTRY.getCatalog(binFile.getLocale());
+			final TranslationMap translationMap = previous == null ? new TranslationMap(binFile.getLocale()) :
+					new TranslationMap(previous);
+			translationMap.add(binFile);
+
+			REGISTRY = REGISTRY.withCatalog(translationMap);
+			refreshTranslator();
+		}
+	}
+
+	/**
+	 * Loads many catalogs in parallel on a {@link ForkJoinPool} and publishes them in a single update.
+	 * See {@link #addAll(Collection, Executor)}
+	 * @param sources The catalogs to load
+	 * @throws IOException Thrown if a catalog could not be read
+	 */
+	public static void addAll(Collection<? extends CatalogSource> sources) throws IOException {
+		final ForkJoinPool forkJoinPool = new ForkJoinPool();
+		try {
+			addAll(sources, forkJoinPool);
+		} finally {
+			forkJoinPool.shutdown();
+		}
+	}
+
+	/**
+	 * Loads many catalogs in parallel and publishes them in a single update.<br>
+	 * <br>
+	 * Catalogs are parsed concurrently on the {@link Executor}, after which each {@link Locale}'s
+	 * {@link TranslationMap} is built on the {@link Executor}. Catalogs of the same {@link Locale} are applied in
+	 * the order of the {@link Collection} so the result is the same as calling {@link #add(PoFile)} for each
+	 * catalog in order. Nothing is published if any catalog fails to load.
+	 * @param sources The catalogs to load
+	 * @param executor The {@link Executor} to load on
+	 * @throws IOException Thrown if a catalog could not be read
+	 */
+	public static void addAll(Collection<? extends CatalogSource> sources, Executor executor) throws IOException {
+		final List<FutureTask<PoFile>> loads = new ArrayList<FutureTask<PoFile>>(sources.size());
+		for(final CatalogSource source : sources) {
+			if(source == null) {
+				throw new NullPointerException("Null source reference");
+			}
+			loads.add(new FutureTask<PoFile>(new Callable<PoFile>() {
+				@Override
+				public PoFile call() throws Exception {
+					return source.load();
+				}
+			}));
+		}
+		for(int i = 0; i < loads.size(); i++) {
+			executor.execute(loads.get(i));
+		}
+
+		final Map<Locale, List<PoFile>> poFiles = new LinkedHashMap<Locale, List<PoFile>>();
+		try {
+			for(int i = 0; i < loads.size(); i++) {
+				final PoFile poFile = await(loads.get(i));
+				List<PoFile> localePoFiles = poFiles.get(poFile.getLocale());
+				if(localePoFiles == null) {
+					localePoFiles = new ArrayList<PoFile>(2);
+					poFiles.put(poFile.getLocale(), localePoFiles);
+				}
+				localePoFiles.add(poFile);
+			}
+		} finally {
+			for(int i = 0; i < loads.size(); i++) {
+				loads.get(i).cancel(false);
+			}
+		}
+
+		final TranslationRegistry registry = REGISTRY;
+		final StringPool stringPool = STRING_POOL;
+		final List<FutureTask<TranslationMap>> builds = new ArrayList<FutureTask<TranslationMap>>(poFiles.size());
+		for(final Map.Entry<Locale, List<PoFile>> entry : poFiles.entrySet()) {
+			final TranslationMap previous = registry.getCatalog(entry.getKey());
+			final FutureTask<TranslationMap> build = new FutureTask<TranslationMap>(new Callable<TranslationMap>() {
+				@Override
+				public TranslationMap call() {
+					return createCatalog(entry.getKey(), previous, entry.getValue(), stringPool);
+				}
+			});
+			builds.add(build);
+			executor.execute(build);
+		}
+		final List<TranslationMap> catalogs = new ArrayList<TranslationMap>(builds.size());
+		for(int i = 0; i < builds.size(); i++) {
+			catalogs.add(await(builds.get(i)));
+		}
+
+		synchronized(WRITE_LOCK) {
+			for(int i = 0; i < catalogs.size(); i++) {
+				final Locale locale = catalogs.get(i).getLocale();
+				final TranslationMap previous = REGISTRY.getCatalog(locale);
+				if(previous != registry.getCatalog(locale)) {
+					//A file for the same Locale was added while building
+					catalogs.set(i, createCatalog(locale, previous, poFiles.get(locale), stringPool));
+				}
+			}
+			REGISTRY = REGISTRY.withCatalogs(catalogs);
+			refreshTranslator();
+		}
+	}
+
+	/**
+	 * Registers a catalog without loading it. The catalog is loaded in the background the first time its
+	 * {@link Locale} (or a {@link Locale} falling back to it) is used, via {@link #setLocale(Locale)}, a translation
+	 * lookup or {@link #preload(Locale)}. Until loading completes, lookups return the source text (or the
+	 * translation of an already loaded fallback {@link Locale}) without waiting.
+	 * @param source The catalog to load on demand
+	 */
+	public static void register(CatalogSource source) {
+		if(source == null) {
+			throw new NullPointerException("Null source reference");
+		}
+		synchronized(WRITE_LOCK) {
+			LOADER.register(source);
+			if(REGISTRY.isInUse(source.getLocale()) ||
+					REGISTRY.getFallbackChain(TRANSLATOR.get().getLocale()).contains(source.getLocale())) {
+				LOADER.load(Collections.singletonList(source.getLocale()));
+			}
+		}
+	}
+
+	/**
+	 * Merges the fallback chain of a {@link Locale} and starts loading the catalogs registered via
+	 * {@link #register(CatalogSource)} for it, e.g. during a loading screen
+	 * @param locale The {@link Locale} to load
+	 * @return A {@link Future} that completes once the catalogs have been loaded and published
+	 */
+	public static Future<Void> preload(Locale locale) {
+		if(locale == null) {
+			throw new NullPointerException("Null locale reference");
+		}
+		synchronized(WRITE_LOCK) {
+			resolve(locale);
+			refreshTranslator();
+			return LOADER.load(REGISTRY.getFallbackChain(locale));
+		}
+	}
+
+	/**
+	 * Sets the {@link Executor} that catalogs registered via {@link #register(CatalogSource)} are loaded on.
+	 * Defaults to a pool of daemon threads.
+	 * @param executor The {@link Executor} to use
+	 */
+	public static void setLoadExecutor(Executor executor) {
+		if(executor == null) {
+			throw new NullPointerException("Null executor reference");
+		}
+		synchronized(WRITE_LOCK) {
+			LOADER.setExecutor(executor);
+		}
+	}
+
+	/**
+	 * Enables deduplication of strings shared between files added via {@link #add(PoFile)}, e.g. the same msgid
+	 * across many locales. Disabled by default.
+	 * @param stringPool The {@link StringPool} to use, or null to disable deduplication
+	 */
+	public static void setStringPool(StringPool stringPool) {
+		STRING_POOL = stringPool;
+	}
+
+	/**
+	 * Returns the {@link StringPool} used by {@link #add(PoFile)}
+	 * @return Null if deduplication is disabled
+	 */
+	public static StringPool getStringPool() {
+		return STRING_POOL;
+	}
+
+	/**
+	 * Sets the maximum number of compiled formats cached per {@link Locale}, applied to existing caches immediately.
+	 * Formats of translated entries are also kept with the entry after their first use, so the cache mainly serves
+	 * untranslated text. Defaults to 8192.
+	 * @param capacity The maximum number of formats per {@link Locale}
+	 */
+	public static void setFormatCacheCapacity(int capacity) {
+		FormatCache.configure(capacity, FormatCache.getDefaultEvictionPolicy());
+	}
+
+	/**
+	 * Returns the maximum number of compiled formats cached per {@link Locale}
+	 * @return 8192 by default
+	 */
+	public static int getFormatCacheCapacity() {
+		return FormatCache.getCapacity();
+	}
+
+	/**
+	 * Sets how compiled formats are evicted once a {@link Locale}'s cache is full. Defaults to {@link EvictionPolicy#LRU}.
+	 * @param evictionPolicy The {@link EvictionPolicy} to use
+	 */
+	public static void setFormatCacheEvictionPolicy(EvictionPolicy evictionPolicy) {
+		FormatCache.configure(FormatCache.getCapacity(), evictionPolicy);
+	}
+
+	/**
+	 * Returns how compiled formats are evicted once a {@link Locale}'s cache is full
+	 * @return {@link EvictionPolicy#LRU} by default
+	 */
+	public static EvictionPolicy getFormatCacheEvictionPolicy() {
+		return FormatCache.getDefaultEvictionPolicy();
+	}
+
+	/**
+	 * Returns the combined statistics of the compiled format caches of all {@link Locale}s
+	 * @return A new {@link FormatCacheStats}
+	 */
+	public static FormatCacheStats getFormatCacheStats() {
+		return FormatCache.getTotalStats();
+	}
+
+	/**
+	 * Returns the statistics of the compiled format cache for a {@link Locale}
+	 * @param locale The {@link Locale} values are formatted with
+	 * @return A new {@link FormatCacheStats}, empty if nothing has been formatted for the {@link Locale}
+	 */
+	public static FormatCacheStats getFormatCacheStats(Locale locale) {
+		final FormatCache formatCache = FormatCache.getIfPresent(locale);
+		return formatCache == null ? new FormatCacheStats(0L, 0L, 0L, 0, FormatCache.getCapacity()) : formatCache.getStats();
+	}
+
+	/**
+	 * Sets the {@link Locale}s to fall back to when a translation is missing for a {@link Locale} and its parents,
+	 * e.g. {@link Locale#ENGLISH}. Replaces any previously set fallback {@link Locale}s.
+	 * @param locales The fallback {@link Locale}s, in order
+	 */
+	public static void setFallbackLocales(Locale... locales) {
+		final List<Locale> fallbackLocales = new ArrayList<Locale>(locales.length);
+		for(Locale locale : locales) {
+			if(locale == null) {
+				throw new NullPointerException("Null locale reference");
+			}
+			fallbackLocales.add(locale);
+		}
+		synchronized(WRITE_LOCK) {
+			REGISTRY = REGISTRY.withFallbackLocales(fallbackLocales);
+			refreshTranslator();
+		}
+	}
+
+	/**
+	 * Returns the order in which translations are looked up for a {@link Locale}
+	 * @param locale The requested {@link Locale}
+	 * @return The {@link Locale}, its parent {@link Locale}s and the fallback {@link Locale}s with their parents
+	 */
+	public static List<Locale> getFallbackChain(Locale locale) {
+		if(locale == null) {
+			throw new NullPointerException("Null locale reference");
 		}
-		TRANSLATIONS.get(poFile.getLocale()).add(poFile);
+		return REGISTRY.getFallbackChain(locale);
 	}
 
 	/**
-	 * Gets the default {@link Locale}
+	 * Returns the {@link Translator} for the current thread. This is the {@link Translator} of the innermost open
+	 * {@link LocaleScope}, else the {@link Translator} for the default {@link Locale}
+	 * @return The {@link Translator} in use
+	 */
+	public static Translator getTranslator() {
+		if(TOTAL_SCOPES.get() > 0) {
+			final LocaleScope scope = SCOPES.get();
+			if(scope != null) {
+				return scope.getTranslator();
+			}
+		}
+		return TRANSLATOR.get();
+	}
+
+	/**
+	 * Returns a {@link Translator} bound to the translations currently loaded for a {@link Locale}.
+	 * Note: Files added afterwards are not visible to the returned {@link Translator}
+	 * @param locale The {@link Locale} to translate to
+	 * @return A {@link Translator} for the {@link Locale}
+	 */
+	public static Translator getTranslator(Locale locale) {
+		final Translator translator = TRANSLATOR.get();
+		if(translator.getLocale().equals(locale)) {
+			return translator;
+		}
+		return new Translator(locale, getTranslations(locale));
+	}
+
+	/**
+	 * Uses a {@link Locale} for all translations on the current thread until the returned {@link LocaleScope} is closed.
+	 * Intended for use with try-with-resources, e.g. per server request. Scopes can be nested.
 	 * @param locale The {@link Locale} to use
+	 * @return A new {@link LocaleScope} that must be closed on the same thread
+	 */
+	public static LocaleScope withLocale(Locale locale) {
+		if(locale == null) {
+			throw new NullPointerException("Null locale reference");
+		}
+		final LocaleScope scope = new LocaleScope(getTranslator(locale), SCOPES.get());
+		SCOPES.set(scope);
+		TOTAL_SCOPES.incrementAndGet();
+		return scope;
+	}
+
+	static void closeScope(LocaleScope scope) {
+		if(SCOPES.get() != scope) {
+			throw new IllegalStateException("LocaleScope must be closed in reverse order on the thread that opened it");
+		}
+		if(scope.getParent() == null) {
+			SCOPES.remove();
+		} else {
+			SCOPES.set(scope.getParent());
+		}
+		TOTAL_SCOPES.decrementAndGet();
+	}
+
+	/**
+	 * Gets the {@link Locale} in use on the current thread. This is the {@link Locale} of the innermost open
+	 * {@link LocaleScope}, else the default {@link Locale}
+	 * @return The {@link Locale} in use
 	 */
 	public static Locale getLocale() {
-		return LOCALE;
+		return getTranslator().getLocale();
 	}
 
 	/**
-	 * Sets the default {@link Locale}
+	 * Sets the default {@link Locale}. Does not wait for catalogs to be loaded or merged, see {@link #preload(Locale)}.
 	 * @param locale The {@link Locale} to use
 	 */
 	public static void setLocale(Locale locale) {
 		if(locale == null) {
 			return;
 		}
-		LOCALE = locale;
+		Translator current = TRANSLATOR.get();
+		boolean published = false;
+		while(true) {
+			final TranslationRegistry registry = REGISTRY;
+			final Translator next = new Translator(locale, getTranslations(registry, locale));
+			if(!TRANSLATOR.compareAndSet(current, next)) {
+				if(published) {
+					//The Locale was changed again
+					return;
+				}
+				current = TRANSLATOR.get();
+				continue;
+			}
+			if(REGISTRY == registry) {
+				return;
+			}
+			//Catalogs were published concurrently and may have been published for the previous Locale
+			current = next;
+			published = true;
+		}
+	}
+
+	/**
+	 * Rebuilds the default {@link Translator} after {@link #REGISTRY} changed. Must be called while holding
+	 * {@link #WRITE_LOCK}.
+	 */
+	private static void refreshTranslator() {
+		while(true) {
+			final Translator current = TRANSLATOR.get();
+			final Translator next = new Translator(current.getLocale(), resolve(current.getLocale()));
+			if(TRANSLATOR.compareAndSet(current, next)) {
+				return;
+			}
+		}
+	}
+
+	private static TranslationMap createCatalog(Locale locale, TranslationMap previous, List<PoFile> poFiles,
+	                                            StringPool stringPool) {
+		final TranslationMap result;
+		if(previous == null) {
+			result = new TranslationMap(locale);
+		} else {
+			result = new TranslationMap(previous);
+		}
+		for(int i = 0; i < poFiles.size(); i++) {
+			result.add(poFiles.get(i), stringPool);
+		}
+		return result;
+	}
+
+	private static <T> T await(Future<T> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while loading catalogs");
+		} catch (ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if(cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if(cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if(cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException(cause);
+		}
+	}
+
+	private static TranslationMap getTranslations(Locale locale) {
+		if(locale == null) {
+			return null;
+		}
+		return getTranslations(REGISTRY, locale);
+	}
+
+	private static TranslationMap getTranslations(TranslationRegistry registry, Locale locale) {
+		final TranslationMap result = registry.get(locale);
+		if(result != null || registry.isResolved(locale) || !hasTranslations(registry, locale)) {
+			return result;
+		}
+		resolveLater(locale);
+		return registry.getWithoutMerging(locale);
+	}
+
+	/**
+	 * Merges the fallback chain of a {@link Locale} and starts loading its registered catalogs on the loader
+	 * {@link Executor}, so that the calling thread never waits for {@link #WRITE_LOCK}
+	 * @param locale The requested {@link Locale}
+	 */
+	private static void resolveLater(final Locale locale) {
+		if(RESOLVING.putIfAbsent(locale, Boolean.TRUE) != null) {
+			return;
+		}
+		try {
+			LOADER.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						synchronized(WRITE_LOCK) {
+							resolve(locale);
+							refreshTranslator();
+						}
+					} finally {
+						RESOLVING.remove(locale);
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			//Retried on the next lookup
+			RESOLVING.remove(locale);
+		}
+	}
+
+	/**
+	 * Returns if the fallback chain of a {@link Locale} has a catalog or a registered {@link CatalogSource}
+	 * @param registry The current {@link TranslationRegistry}
+	 * @param locale The requested {@link Locale}
+	 * @return False if lookups for the {@link Locale} always return the source text and it does not need resolving
+	 */
+	private static boolean hasTranslations(TranslationRegistry registry, Locale locale) {
+		if(registry.hasCatalogs(locale)) {
+			return true;
+		}
+		final List<Locale> chain = registry.getFallbackChain(locale);
+		for(int i = 0; i < chain.size(); i++) {
+			if(LOADER.isRegistered(chain.get(i))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static TranslationMap resolve(Locale locale) {
+		if(!hasTranslations(REGISTRY, locale)) {
+			return null;
+		}
+		if(!REGISTRY.isResolved(locale)) {
+			REGISTRY = REGISTRY.withResolved(locale);
+			if(LOADER.hasPending()) {
+				LOADER.load(REGISTRY.getFallbackChain(locale));
+			}
+		}
+		return REGISTRY.get(locale);
 	}
 }
@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright 2019 Thomas Cashman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.mini2Dx.gettext;
+
+/**
+ * Overrides the {@link java.util.Locale} used by {@link GetText} on the current thread until closed.
+ * Created via {@link GetText#withLocale(java.util.Locale)}
+ */
+public final class LocaleScope implements AutoCloseable {
+	private final Translator translator;
+	private final LocaleScope parent;
+	private boolean closed = false;
+
+	LocaleScope(Translator translator, LocaleScope parent) {
+		super();
+		this.translator = translator;
+		this.parent = parent;
+	}
+
+	/**
+	 * Restores the {@link java.util.Locale} that was in use before this scope was opened
+	 */
+	@Override
+	public void close() {
+		if(closed) {
+			return;
+		}
+		GetText.closeScope(this);
+		closed = true;
+	}
+
+	public Translator getTranslator() {
+		return translator;
+	}
+
+	LocaleScope getParent() {
+		return parent;
+	}
+}
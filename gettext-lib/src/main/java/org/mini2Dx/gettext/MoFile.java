@@ -0,0 +1,539 @@
+/*******************************************************************************
+ * Copyright 2019 Thomas Cashman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.mini2Dx.gettext;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A compiled GNU gettext .mo catalog.<br>
+ * <br>
+ * The catalog is read directly from a {@link ByteBuffer}, typically a memory-mapped file via {@link #map(Locale, File)},
+ * so opening a catalog does not parse or decode any strings. Lookups use the hash table stored in the file and an
+ * entry is only decoded the first time it is returned. Memory-mapped catalogs are shared between processes via the
+ * operating system's page cache.<br>
+ * <br>
+ * Add a {@link MoFile} to {@link GetText} via {@link GetText#add(MoFile)}. Instances are thread-safe.
+ */
+public final class MoFile {
+	private static final int MAGIC = 0x950412de;
+	private static final int HEADER_SIZE = 28;
+	private static final char CONTEXT_SEPARATOR = '\u0004';
+
+	private final Locale locale;
+	private final ByteBuffer buffer;
+	private final int totalStrings;
+	private final int originalsOffset;
+	private final int translationsOffset;
+	private final int hashSize;
+	private final int hashOffset;
+	private final AtomicReferenceArray<RuntimeEntry> entries;
+	private final PluralForms pluralForms;
+
+	/**
+	 * Reads a .mo catalog from a {@link ByteBuffer}. The buffer's content must not change afterwards.
+	 * @param locale The {@link Locale} of the catalog
+	 * @param buffer The {@link ByteBuffer} containing the catalog from position to limit
+	 * @throws IOException Thrown if the buffer does not contain a valid .mo catalog
+	 */
+	public MoFile(Locale locale, ByteBuffer buffer) throws IOException {
+		super();
+		this.locale = locale;
+		this.buffer = buffer.slice();
+
+		if(this.buffer.capacity() < HEADER_SIZE) {
+			throw new IOException("Not a .mo file");
+		}
+		final int magic = this.buffer.order(ByteOrder.BIG_ENDIAN).getInt(0);
+		if(magic == Integer.reverseBytes(MAGIC)) {
+			this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+		} else if(magic != MAGIC) {
+			throw new IOException("Not a .mo file");
+		}
+		if((this.buffer.getInt(4) >>> 16) != 0) {
+			throw new IOException("Unsupported .mo file revision " + (this.buffer.getInt(4) >>> 16));
+		}
+		totalStrings = this.buffer.getInt(8);
+		originalsOffset = this.buffer.getInt(12);
+		translationsOffset = this.buffer.getInt(16);
+		hashSize = this.buffer.getInt(20);
+		hashOffset = this.buffer.getInt(24);
+
+		checkBounds(originalsOffset, totalStrings, 8);
+		checkBounds(translationsOffset, totalStrings, 8);
+		if(hashSize > 2) {
+			checkBounds(hashOffset, hashSize, 4);
+		}
+		entries = new AtomicReferenceArray<RuntimeEntry>(totalStrings);
+
+		final RuntimeEntry header = getRuntimeEntry(null, "");
+		final String headerString = header == null ? null : header.getString(0);
+		pluralForms = PluralForms.fromHeader(headerString, PluralForms.forLocale(locale));
+	}
+
+	/**
+	 * Memory-maps a .mo file
+	 * @param locale The {@link Locale} of the catalog
+	 * @param file The .mo file
+	 * @return A new {@link MoFile}
+	 * @throws IOException Thrown if the file could not be mapped or is not a valid .mo file
+	 */
+	public static MoFile map(Locale locale, File file) throws IOException {
+		final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		try {
+			final FileChannel fileChannel = randomAccessFile.getChannel();
+			final MappedByteBuffer buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+			return new MoFile(locale, buffer);
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+
+	/**
+	 * Returns the entry for a msgid
+	 * @param context Null or empty for the default context, else msgctxt
+	 * @param id The msgid
+	 * @return A new {@link TranslationEntry}, null if no entry exists
+	 */
+	public TranslationEntry getEntry(String context, String id) {
+		final RuntimeEntry result = getRuntimeEntry(context, id);
+		return result == null ? null : result.toTranslationEntry();
+	}
+
+	/**
+	 * Returns the entry for a msgid, decoding it on first access
+	 * @param context Null or empty for the default context, else msgctxt
+	 * @param id The msgid
+	 * @return Null if no entry exists
+	 */
+	RuntimeEntry getRuntimeEntry(String context, String id) {
+		if(id == null) {
+			return null;
+		}
+		if(context != null && context.isEmpty()) {
+			context = null;
+		}
+		final int index = indexOf(context, id);
+		if(index < 0) {
+			return null;
+		}
+		return getEntry(index);
+	}
+
+	/**
+	 * Decodes all entries in the catalog, e.g. to convert it back to a .po file
+	 * @return A new list of entries sorted by msgctxt and msgid
+	 */
+	public List<TranslationEntry> getEntries() {
+		final List<TranslationEntry> result = new ArrayList<TranslationEntry>(totalStrings);
+		for(int i = 0; i < totalStrings; i++) {
+			result.add(getEntry(i).toTranslationEntry());
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the plural rule from the catalog's Plural-Forms header, or, the built-in rule for its {@link Locale}
+	 * @return The {@link PluralForms} for the catalog's entries
+	 */
+	public PluralForms getPluralForms() {
+		return pluralForms;
+	}
+
+	public Locale getLocale() {
+		return locale;
+	}
+
+	public int size() {
+		return totalStrings;
+	}
+
+	private RuntimeEntry getEntry(int index) {
+		RuntimeEntry result = entries.get(index);
+		if(result != null) {
+			return result;
+		}
+
+		final String original = decode(getOffset(originalsOffset, index), getLength(originalsOffset, index));
+		final int pluralSeparator = original.indexOf('\0');
+		final String key = pluralSeparator < 0 ? original : original.substring(0, pluralSeparator);
+		final int contextSeparator = key.indexOf(CONTEXT_SEPARATOR);
+		final String context = contextSeparator < 0 ? null : key.substring(0, contextSeparator);
+		final String id = contextSeparator < 0 ? key : key.substring(contextSeparator + 1);
+		final String idPlural = pluralSeparator < 0 ? null : original.substring(pluralSeparator + 1);
+
+		final String translation = decode(getOffset(translationsOffset, index), getLength(translationsOffset, index));
+		int totalStrings = 1;
+		for(int i = translation.indexOf('\0'); i >= 0; i = translation.indexOf('\0', i + 1)) {
+			totalStrings++;
+		}
+		final String[] strings = new String[totalStrings];
+		int start = 0;
+		for(int i = 0; i < totalStrings; i++) {
+			final int end = i == totalStrings - 1 ? translation.length() : translation.indexOf('\0', start);
+			strings[i] = translation.substring(start, end);
+			start = end + 1;
+		}
+		result = new RuntimeEntry(context, id, idPlural, strings);
+
+		if(!entries.compareAndSet(index, null, result)) {
+			return entries.get(index);
+		}
+		return result;
+	}
+
+	private int indexOf(String context, String id) {
+		if(hashSize > 2) {
+			final int hash = hash(context, id);
+			int index = (int) ((hash & 0xFFFFFFFFL) % hashSize);
+			final int increment = 1 + (int) ((hash & 0xFFFFFFFFL) % (hashSize - 2));
+			while(true) {
+				final int stringIndex = buffer.getInt(hashOffset + (index * 4)) - 1;
+				if(stringIndex < 0) {
+					return -1;
+				}
+				if(stringIndex < totalStrings && compare(stringIndex, context, id) == 0) {
+					return stringIndex;
+				}
+				if(index >= hashSize - increment) {
+					index -= hashSize - increment;
+				} else {
+					index += increment;
+				}
+			}
+		}
+
+		//Original strings are sorted when there is no hash table
+		int low = 0;
+		int high = totalStrings - 1;
+		while(low <= high) {
+			final int middle = (low + high) >>> 1;
+			final int comparison = compare(middle, context, id);
+			if(comparison == 0) {
+				return middle;
+			} else if(comparison < 0) {
+				low = middle + 1;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Compares the msgctxt and msgid of an original string with a key without decoding the original string
+	 * @return Negative if the original string sorts before the key, 0 if equal, else positive
+	 */
+	private int compare(int index, String context, String id) {
+		int position = getOffset(originalsOffset, index);
+		//The msgid_plural follows a NUL and is not part of the key
+		final int end = position + getLength(originalsOffset, index);
+		if(position < 0 || end < position || end > buffer.capacity()) {
+			throw new IllegalStateException("Corrupt .mo file");
+		}
+		if(context != null) {
+			position = compare(position, end, context);
+			if(position < 0) {
+				return position == Integer.MIN_VALUE ? -1 : 1;
+			}
+			position = compare(position, end, CONTEXT_SEPARATOR);
+			if(position < 0) {
+				return position == Integer.MIN_VALUE ? -1 : 1;
+			}
+		}
+		position = compare(position, end, id);
+		if(position < 0) {
+			return position == Integer.MIN_VALUE ? -1 : 1;
+		}
+		return position < end && buffer.get(position) != 0 ? 1 : 0;
+	}
+
+	/**
+	 * Compares the UTF-8 encoding of a string with the bytes at a position
+	 * @return The position after the string, {@link Integer#MIN_VALUE} if the bytes sort before the string,
+	 * else -1 if the bytes sort after the string
+	 */
+	private int compare(int position, int end, String str) {
+		for(int i = 0; i < str.length(); i++) {
+			final long encoded = encode(str, i);
+			final int totalBytes = (int) (encoded >>> 32) & 0xFF;
+			for(int j = 0; j < totalBytes; j++) {
+				final int expected = (int) (encoded >>> (j * 8)) & 0xFF;
+				final int actual = position < end ? buffer.get(position) & 0xFF : 0;
+				if(actual != expected) {
+					return actual < expected ? Integer.MIN_VALUE : -1;
+				}
+				position++;
+			}
+			i += (int) (encoded >>> 40) - 1;
+		}
+		return position;
+	}
+
+	private int compare(int position, int end, char c) {
+		final int actual = position < end ? buffer.get(position) & 0xFF : 0;
+		if(actual != c) {
+			return actual < c ? Integer.MIN_VALUE : -1;
+		}
+		return position + 1;
+	}
+
+	private String decode(int offset, int length) {
+		if(offset < 0 || length < 0 || offset + length > buffer.capacity() || offset + length < offset) {
+			throw new IllegalStateException("Corrupt .mo file");
+		}
+		if(buffer.hasArray()) {
+			return new String(buffer.array(), buffer.arrayOffset() + offset, length, StandardCharsets.UTF_8);
+		}
+		final byte[] bytes = new byte[length];
+		final ByteBuffer slice = buffer.duplicate();
+		slice.position(offset);
+		slice.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private int getLength(int tableOffset, int index) {
+		return buffer.getInt(tableOffset + (index * 8));
+	}
+
+	private int getOffset(int tableOffset, int index) {
+		return buffer.getInt(tableOffset + (index * 8) + 4);
+	}
+
+	private void checkBounds(int offset, int count, int size) throws IOException {
+		if(offset < 0 || count < 0 || (long) offset + ((long) count * size) > buffer.capacity()) {
+			throw new IOException("Corrupt .mo file");
+		}
+	}
+
+	/**
+	 * Writes entries as a .mo file. Entries without a translation and fuzzy entries are omitted, except the header.
+	 * @param entries The entries to write
+	 * @param file The file to write to
+	 * @throws IOException Thrown if the file could not be written
+	 */
+	public static void write(List<TranslationEntry> entries, File file) throws IOException {
+		final OutputStream outputStream = new FileOutputStream(file);
+		try {
+			write(entries, outputStream);
+		} finally {
+			outputStream.close();
+		}
+	}
+
+	/**
+	 * Writes entries in .mo format with a hash table, compatible with GNU gettext. Entries without a translation
+	 * and fuzzy entries are omitted, except the header.
+	 * @param entries The entries to write
+	 * @param outputStream The {@link OutputStream} to write to
+	 * @throws IOException Thrown if the entries could not be written
+	 */
+	public static void write(List<TranslationEntry> entries, OutputStream outputStream) throws IOException {
+		final SortedMap<byte[], byte[]> strings = new TreeMap<byte[], byte[]>(new Comparator<byte[]>() {
+			@Override
+			public int compare(byte[] bytes1, byte[] bytes2) {
+				final int length = Math.min(bytes1.length, bytes2.length);
+				for(int i = 0; i < length; i++) {
+					if(bytes1[i] != bytes2[i]) {
+						return (bytes1[i] & 0xFF) - (bytes2[i] & 0xFF);
+					}
+				}
+				return bytes1.length - bytes2.length;
+			}
+		});
+		final Map<byte[], String> keys = new HashMap<byte[], String>();
+		for(TranslationEntry entry : entries) {
+			if(entry.getId() == null || !isIncluded(entry)) {
+				continue;
+			}
+			final String key = entry.getContext() == null || entry.getContext().isEmpty() ? entry.getId() :
+					entry.getContext() + CONTEXT_SEPARATOR + entry.getId();
+			final StringBuilder original = new StringBuilder(key);
+			if(entry.getIdPlural() != null) {
+				original.append('\0').append(entry.getIdPlural());
+			}
+			final StringBuilder translation = new StringBuilder();
+			for(int i = 0; i < Math.max(1, entry.getStrings().size()); i++) {
+				if(i > 0) {
+					translation.append('\0');
+				}
+				if(i < entry.getStrings().size() && entry.getStrings().get(i) != null) {
+					translation.append(entry.getStrings().get(i));
+				}
+			}
+			final byte[] originalBytes = original.toString().getBytes(StandardCharsets.UTF_8);
+			strings.remove(originalBytes);
+			strings.put(originalBytes, translation.toString().getBytes(StandardCharsets.UTF_8));
+			keys.put(originalBytes, key);
+		}
+
+		final int totalStrings = strings.size();
+		final int hashSize = hashSize(totalStrings);
+		final int originalsOffset = HEADER_SIZE;
+		final int translationsOffset = originalsOffset + (totalStrings * 8);
+		final int hashOffset = translationsOffset + (totalStrings * 8);
+		final ByteBuffer tables = ByteBuffer.allocate(hashOffset + (hashSize * 4)).order(ByteOrder.LITTLE_ENDIAN);
+		tables.putInt(MAGIC).putInt(0).putInt(totalStrings).putInt(originalsOffset).putInt(translationsOffset)
+				.putInt(hashSize).putInt(hashOffset);
+
+		int stringOffset = tables.capacity();
+		for(byte[] original : strings.keySet()) {
+			tables.putInt(original.length).putInt(stringOffset);
+			stringOffset += original.length + 1;
+		}
+		for(byte[] translation : strings.values()) {
+			tables.putInt(translation.length).putInt(stringOffset);
+			stringOffset += translation.length + 1;
+		}
+
+		int index = 0;
+		for(byte[] original : strings.keySet()) {
+			final String key = keys.get(original);
+			final int contextSeparator = key.indexOf(CONTEXT_SEPARATOR);
+			final int hash = contextSeparator < 0 ? hash(null, key) :
+					hash(key.substring(0, contextSeparator), key.substring(contextSeparator + 1));
+			int slot = (int) ((hash & 0xFFFFFFFFL) % hashSize);
+			if(tables.getInt(hashOffset + (slot * 4)) != 0) {
+				final int increment = 1 + (int) ((hash & 0xFFFFFFFFL) % (hashSize - 2));
+				do {
+					if(slot >= hashSize - increment) {
+						slot -= hashSize - increment;
+					} else {
+						slot += increment;
+					}
+				} while(tables.getInt(hashOffset + (slot * 4)) != 0);
+			}
+			tables.putInt(hashOffset + (slot * 4), index + 1);
+			index++;
+		}
+
+		final BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(outputStream);
+		bufferedOutputStream.write(tables.array());
+		for(byte[] original : strings.keySet()) {
+			bufferedOutputStream.write(original);
+			bufferedOutputStream.write(0);
+		}
+		for(byte[] translation : strings.values()) {
+			bufferedOutputStream.write(translation);
+			bufferedOutputStream.write(0);
+		}
+		bufferedOutputStream.flush();
+	}
+
+	private static boolean isIncluded(TranslationEntry entry) {
+		if(entry.getId().isEmpty() && (entry.getContext() == null || entry.getContext().isEmpty())) {
+			return true;
+		}
+		for(String flag : entry.getFlags()) {
+			if(flag.contains("fuzzy")) {
+				return false;
+			}
+		}
+		for(String str : entry.getStrings()) {
+			if(str != null && !str.isEmpty()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the hash table size used by GNU msgfmt, the next prime above 4/3 of the number of strings
+	 */
+	private static int hashSize(int totalStrings) {
+		int result = Math.max(3, (totalStrings * 4) / 3) | 1;
+		while(!isPrime(result)) {
+			result += 2;
+		}
+		return result;
+	}
+
+	private static boolean isPrime(int value) {
+		for(int divisor = 3; divisor * divisor <= value; divisor += 2) {
+			if(value % divisor == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Computes the hashpjw hash of the UTF-8 encoded key used by GNU gettext
+	 */
+	private static int hash(String context, String id) {
+		int hash = 0;
+		if(context != null) {
+			hash = hash(hash, context);
+			hash = hash(hash, CONTEXT_SEPARATOR);
+		}
+		return hash(hash, id);
+	}
+
+	private static int hash(int hash, String str) {
+		for(int i = 0; i < str.length(); i++) {
+			final long encoded = encode(str, i);
+			final int totalBytes = (int) (encoded >>> 32) & 0xFF;
+			for(int j = 0; j < totalBytes; j++) {
+				hash = hash(hash, (int) (encoded >>> (j * 8)) & 0xFF);
+			}
+			i += (int) (encoded >>> 40) - 1;
+		}
+		return hash;
+	}
+
+	private static int hash(int hash, int b) {
+		hash = (hash << 4) + b;
+		final int g = hash & 0xF0000000;
+		if(g != 0) {
+			hash ^= g >>> 24;
+			hash ^= g;
+		}
+		return hash;
+	}
+
+	/**
+	 * Encodes the character at an index as UTF-8 in the same way as {@link String#getBytes(java.nio.charset.Charset)}
+	 * @return The bytes in bits 0-31 (first byte lowest), the number of bytes in bits 32-39 and the number of
+	 * characters consumed in bits 40-47
+	 */
+	private static long encode(String str, int index) {
+		final char c = str.charAt(index);
+		if(c < 0x80) {
+			return c | (1L << 32) | (1L << 40);
+		}
+		if(c < 0x800) {
+			return (0xC0 | (c >> 6)) | ((0x80 | (c & 0x3F)) << 8) | (2L << 32) | (1L << 40);
+		}
+		if(Character.isSurrogate(c)) {
+			if(Character.isHighSurrogate(c) && index + 1 < str.length() && Character.isLowSurrogate(str.charAt(index + 1))) {
+				final int codePoint = Character.toCodePoint(c, str.charAt(index + 1));
+				return (0xF0 | (codePoint >> 18)) | ((0x80 | ((codePoint >> 12) & 0x3F)) << 8) |
+						((0x80 | ((codePoint >> 6) & 0x3F)) << 16) | ((long) (0x80 | (codePoint & 0x3F)) << 24) |
+						(4L << 32) | (2L << 40);
+			}
+			//Unpaired surrogates are replaced
+			return '?' | (1L << 32) | (1L << 40);
+		}
+		return (0xE0 | (c >> 12)) | ((0x80 | ((c >> 6) & 0x3F)) << 8) | ((0x80 | (c & 0x3F)) << 16) |
+				(3L << 32) | (1L << 40);
+	}
+}
@@ -0,0 +1,567 @@
+/*******************************************************************************
+ * Copyright 2019 Thomas Cashman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.mini2Dx.gettext;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A compiled Plural-Forms rule, e.g. <code>nplurals=2; plural=(n != 1);</code><br>
+ * <br>
+ * The C expression is parsed once into a tree of nodes and tabulated for small quantities, and for large quantities
+ * when the expression only depends on <code>n % constant</code>, so that selecting a plural form is an array read.
+ * Catalogs without a Plural-Forms header use the built-in rule for their language via {@link #forLocale(Locale)}.
+ */
+public final class PluralForms {
+	private static final String HEADER_NAME = "Plural-Forms:";
+
+	/**
+	 * The rule used by English and the source text: nplurals=2; plural=(n != 1);
+	 */
+	public static final PluralForms DEFAULT = parse("nplurals=2; plural=(n != 1);");
+
+	private static final Map<String, PluralForms> BUILT_IN = new HashMap<String, PluralForms>();
+
+	static {
+		final PluralForms one = parse("nplurals=1; plural=0;");
+		final PluralForms zeroAndOneSingular = parse("nplurals=2; plural=(n > 1);");
+		final PluralForms eastSlavic = parse("nplurals=3; plural=(n%10==1 && n%100!=11 ? 0 : " +
+				"n%10>=2 && n%10<=4 && (n%100<10 || n%100>=20) ? 1 : 2);");
+		final PluralForms westSlavic = parse("nplurals=3; plural=(n==1) ? 0 : (n>=2 && n<=4) ? 1 : 2;");
+
+		registerBuiltIn(one, "ja", "ko", "zh", "vi", "th", "id", "in", "ms", "lo", "my", "km", "ka", "jv", "su");
+		registerBuiltIn(zeroAndOneSingular, "fr", "pt_BR", "oc", "br", "hy", "ln", "ak", "am", "fil", "tl", "wa");
+		registerBuiltIn(eastSlavic, "ru", "uk", "be", "sr", "hr", "bs");
+		registerBuiltIn(westSlavic, "cs", "sk");
+		registerBuiltIn(parse("nplurals=3; plural=(n==1 ? 0 : n%10>=2 && n%10<=4 && (n%100<10 || n%100>=20) ? 1 : 2);"), "pl");
+		registerBuiltIn(parse("nplurals=3; plural=(n%10==1 && n%100!=11 ? 0 : " +
+				"n%10>=2 && (n%100<10 || n%100>=20) ? 1 : 2);"), "lt");
+		registerBuiltIn(parse("nplurals=3; plural=(n%10==1 && n%100!=11 ? 0 : n != 0 ? 1 : 2);"), "lv");
+		registerBuiltIn(parse("nplurals=3; plural=(n==1 ? 0 : (n==0 || (n%100 > 0 && n%100 < 20)) ? 1 : 2);"), "ro");
+		registerBuiltIn(parse("nplurals=4; plural=(n%100==1 ? 0 : n%100==2 ? 1 : n%100==3 || n%100==4 ? 2 : 3);"), "sl");
+		registerBuiltIn(parse("nplurals=5; plural=(n==1 ? 0 : n==2 ? 1 : n<7 ? 2 : n<11 ? 3 : 4);"), "ga");
+		registerBuiltIn(parse("nplurals=6; plural=(n==0 ? 0 : n==1 ? 1 : n==2 ? 2 : " +
+				"n%100>=3 && n%100<=10 ? 3 : n%100>=11 ? 4 : 5);"), "ar");
+		registerBuiltIn(parse("nplurals=4; plural=(n==1) ? 0 : (n==2) ? 1 : (n != 8 && n != 11) ? 2 : 3;"), "cy");
+		registerBuiltIn(parse("nplurals=2; plural=(n%10!=1 || n%100==11);"), "is");
+		registerBuiltIn(parse("nplurals=2; plural=(n==1 || n%10==1 ? 0 : 1);"), "mk");
+	}
+
+	/**
+	 * Quantities below this are selected from a precomputed table instead of evaluating the expression
+	 */
+	private static final int TABLE_SIZE = 1024;
+	private static final int MAX_PERIOD = 10000;
+
+	private final int totalForms;
+	private final String expression;
+	private final Node plural;
+	private final byte[] table = new byte[TABLE_SIZE];
+	private final byte[] periodTable;
+
+	private PluralForms(int totalForms, String expression, Node plural, int period) {
+		super();
+		this.totalForms = totalForms;
+		this.expression = expression;
+		this.plural = plural;
+
+		for(int n = 0; n < TABLE_SIZE; n++) {
+			table[n] = (byte) evaluateExpression(n);
+		}
+		if(period > 0) {
+			//Above TABLE_SIZE the result only depends on n % period, see Parser#getPeriod()
+			final int base = ((TABLE_SIZE + period - 1) / period) * period;
+			periodTable = new byte[period];
+			for(int i = 0; i < period; i++) {
+				periodTable[i] = (byte) evaluateExpression(base + i);
+			}
+		} else {
+			periodTable = null;
+		}
+	}
+
+	/**
+	 * Compiles a Plural-Forms value
+	 * @param pluralForms The value, e.g. <code>nplurals=2; plural=(n != 1);</code>
+	 * @return A new {@link PluralForms}
+	 * @throws IllegalArgumentException Thrown if the value is not a valid Plural-Forms rule
+	 */
+	public static PluralForms parse(String pluralForms) {
+		if(pluralForms == null) {
+			throw new NullPointerException("Null pluralForms reference");
+		}
+		int totalForms = -1;
+		String expression = null;
+		for(String part : pluralForms.split(";")) {
+			final int equalsIndex = part.indexOf('=');
+			if(equalsIndex < 0) {
+				continue;
+			}
+			final String name = part.substring(0, equalsIndex).trim();
+			final String value = part.substring(equalsIndex + 1).trim();
+			if(name.equals("nplurals")) {
+				try {
+					totalForms = Integer.parseInt(value);
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException("Invalid nplurals in Plural-Forms: " + pluralForms);
+				}
+			} else if(name.equals("plural")) {
+				expression = value;
+			}
+		}
+		if(totalForms < 1 || expression == null) {
+			throw new IllegalArgumentException("Plural-Forms must declare nplurals and plural: " + pluralForms);
+		}
+		final Parser parser = new Parser(expression);
+		final Node plural = parser.parse();
+		return new PluralForms(totalForms, expression, plural, parser.getPeriod());
+	}
+
+	/**
+	 * Compiles the Plural-Forms of a .po header (the msgstr of msgid "")
+	 * @param header The header msgstr
+	 * @return Null if the header does not declare Plural-Forms
+	 * @throws IllegalArgumentException Thrown if the declared Plural-Forms is not a valid rule
+	 */
+	public static PluralForms fromHeader(String header) {
+		if(header == null) {
+			return null;
+		}
+		int index = 0;
+		while(index < header.length()) {
+			int lineEnd = header.indexOf('\n', index);
+			int escapedLineEnd = header.indexOf("\\n", index);
+			if(lineEnd < 0 || (escapedLineEnd >= 0 && escapedLineEnd < lineEnd)) {
+				lineEnd = escapedLineEnd;
+			}
+			if(lineEnd < 0) {
+				lineEnd = header.length();
+			}
+			final String line = header.substring(index, lineEnd).trim();
+			if(line.regionMatches(true, 0, HEADER_NAME, 0, HEADER_NAME.length())) {
+				return parse(line.substring(HEADER_NAME.length()));
+			}
+			index = lineEnd + (lineEnd < header.length() && header.charAt(lineEnd) == '\\' ? 2 : 1);
+		}
+		return null;
+	}
+
+	/**
+	 * Compiles the Plural-Forms of a .po header, ignoring a malformed Plural-Forms the same as a missing one
+	 * @param header The header msgstr
+	 * @param defaultValue The rule to return if the header does not declare a valid Plural-Forms
+	 * @return The declared rule, else defaultValue
+	 */
+	static PluralForms fromHeader(String header, PluralForms defaultValue) {
+		try {
+			final PluralForms result = fromHeader(header);
+			return result == null ? defaultValue : result;
+		} catch (IllegalArgumentException e) {
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * Returns the built-in rule for a {@link Locale}
+	 * @param locale The {@link Locale}
+	 * @return {@link #DEFAULT} if there is no built-in rule for the {@link Locale}'s language
+	 */
+	public static PluralForms forLocale(Locale locale) {
+		if(locale == null) {
+			return DEFAULT;
+		}
+		PluralForms result = BUILT_IN.get(locale.getLanguage() + '_' + locale.getCountry());
+		if(result == null) {
+			result = BUILT_IN.get(locale.getLanguage());
+		}
+		return result == null ? DEFAULT : result;
+	}
+
+	private static void registerBuiltIn(PluralForms pluralForms, String... languages) {
+		for(String language : languages) {
+			BUILT_IN.put(language, pluralForms);
+		}
+	}
+
+	/**
+	 * Selects the plural form for a quantity
+	 * @param n The quantity
+	 * @return The msgstr index, 0 if the rule evaluates outside of nplurals
+	 */
+	public int evaluate(long n) {
+		if(n < 0) {
+			n = -n;
+		}
+		//n remains negative for Long.MIN_VALUE
+		if(n >= 0) {
+			if(n < TABLE_SIZE) {
+				return table[(int) n];
+			}
+			if(periodTable != null) {
+				return periodTable[(int) (n % periodTable.length)];
+			}
+		}
+		return evaluateExpression(n);
+	}
+
+	private int evaluateExpression(long n) {
+		final long result = plural.evaluate(n);
+		if(result < 0 || result >= totalForms) {
+			return 0;
+		}
+		return (int) result;
+	}
+
+	public int getTotalForms() {
+		return totalForms;
+	}
+
+	public String getExpression() {
+		return expression;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if(this == o) return true;
+		if(o == null || getClass() != o.getClass()) return false;
+		PluralForms that = (PluralForms) o;
+		return totalForms == that.totalForms && expression.equals(that.expression);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * totalForms + expression.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return "nplurals=" + totalForms + "; plural=" + expression + ";";
+	}
+
+	private abstract static class Node {
+		abstract long evaluate(long n);
+	}
+
+	private static class Variable extends Node {
+		@Override
+		long evaluate(long n) {
+			return n;
+		}
+	}
+
+	private static class Constant extends Node {
+		private final long value;
+
+		Constant(long value) {
+			super();
+			this.value = value;
+		}
+
+		@Override
+		long evaluate(long n) {
+			return value;
+		}
+	}
+
+	private static class Not extends Node {
+		private final Node operand;
+
+		Not(Node operand) {
+			super();
+			this.operand = operand;
+		}
+
+		@Override
+		long evaluate(long n) {
+			return operand.evaluate(n) == 0 ? 1 : 0;
+		}
+	}
+
+	private static class Conditional extends Node {
+		private final Node condition, whenTrue, whenFalse;
+
+		Conditional(Node condition, Node whenTrue, Node whenFalse) {
+			super();
+			this.condition = condition;
+			this.whenTrue = whenTrue;
+			this.whenFalse = whenFalse;
+		}
+
+		@Override
+		long evaluate(long n) {
+			return condition.evaluate(n) != 0 ? whenTrue.evaluate(n) : whenFalse.evaluate(n);
+		}
+	}
+
+	private static class Binary extends Node {
+		private static final int OR = 0, AND = 1, EQUAL = 2, NOT_EQUAL = 3, LESS = 4, LESS_EQUAL = 5,
+				GREATER = 6, GREATER_EQUAL = 7, ADD = 8, SUBTRACT = 9, MULTIPLY = 10, DIVIDE = 11, MODULO = 12;
+
+		private final int operator;
+		private final Node left, right;
+
+		Binary(int operator, Node left, Node right) {
+			super();
+			this.operator = operator;
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		long evaluate(long n) {
+			final long leftValue = left.evaluate(n);
+			switch(operator) {
+			case OR:
+				return leftValue != 0 || right.evaluate(n) != 0 ? 1 : 0;
+			case AND:
+				return leftValue != 0 && right.evaluate(n) != 0 ? 1 : 0;
+			}
+			final long rightValue = right.evaluate(n);
+			switch(operator) {
+			case EQUAL:
+				return leftValue == rightValue ? 1 : 0;
+			case NOT_EQUAL:
+				return leftValue != rightValue ? 1 : 0;
+			case LESS:
+				return leftValue < rightValue ? 1 : 0;
+			case LESS_EQUAL:
+				return leftValue <= rightValue ? 1 : 0;
+			case GREATER:
+				return leftValue > rightValue ? 1 : 0;
+			case GREATER_EQUAL:
+				return leftValue >= rightValue ? 1 : 0;
+			case ADD:
+				return leftValue + rightValue;
+			case SUBTRACT:
+				return leftValue - rightValue;
+			case MULTIPLY:
+				return leftValue * rightValue;
+			case DIVIDE:
+				return rightValue == 0 ? 0 : leftValue / rightValue;
+			default:
+				return rightValue == 0 ? 0 : leftValue % rightValue;
+			}
+		}
+	}
+
+	/**
+	 * Recursive descent parser for the C subset used by Plural-Forms, with C operator precedence
+	 */
+	private static class Parser {
+		private final String expression;
+		private int position;
+
+		private int totalVariables, periodicVariables;
+		private long period = 1, bound = 0;
+
+		Parser(String expression) {
+			super();
+			this.expression = expression;
+		}
+
+		/**
+		 * Returns the period of the expression once n exceeds {@link #TABLE_SIZE}. This is known when n is only
+		 * used as <code>n % constant</code> or compared to constants below {@link #TABLE_SIZE}, which is the case
+		 * for the common rules.
+		 * @return 0 if the expression is not known to be periodic
+		 */
+		int getPeriod() {
+			if(totalVariables != periodicVariables || bound > TABLE_SIZE || period > MAX_PERIOD) {
+				return 0;
+			}
+			return (int) period;
+		}
+
+		private Node compare(int operator, Node left, Node right) {
+			if(left instanceof Variable && right instanceof Constant) {
+				periodicVariables++;
+				bound = Math.max(bound, ((Constant) right).value + 1);
+			} else if(left instanceof Constant && right instanceof Variable) {
+				periodicVariables++;
+				bound = Math.max(bound, ((Constant) left).value + 1);
+			}
+			return new Binary(operator, left, right);
+		}
+
+		private Node modulo(Node left, Node right) {
+			if(left instanceof Variable && right instanceof Constant && ((Constant) right).value > 0 &&
+					((Constant) right).value <= MAX_PERIOD) {
+				periodicVariables++;
+				final long divisor = ((Constant) right).value;
+				long a = period, b = divisor;
+				while(b != 0) {
+					final long remainder = a % b;
+					a = b;
+					b = remainder;
+				}
+				period = Math.min(period / a * divisor, MAX_PERIOD + 1);
+			}
+			return new Binary(Binary.MODULO, left, right);
+		}
+
+		Node parse() {
+			final Node result = parseConditional();
+			skipWhitespace();
+			if(position != expression.length()) {
+				throw error();
+			}
+			return result;
+		}
+
+		private Node parseConditional() {
+			final Node condition = parseOr();
+			if(!consume("?")) {
+				return condition;
+			}
+			final Node whenTrue = parseConditional();
+			if(!consume(":")) {
+				throw error();
+			}
+			return new Conditional(condition, whenTrue, parseConditional());
+		}
+
+		private Node parseOr() {
+			Node result = parseAnd();
+			while(consume("||")) {
+				result = new Binary(Binary.OR, result, parseAnd());
+			}
+			return result;
+		}
+
+		private Node parseAnd() {
+			Node result = parseEquality();
+			while(consume("&&")) {
+				result = new Binary(Binary.AND, result, parseEquality());
+			}
+			return result;
+		}
+
+		private Node parseEquality() {
+			Node result = parseRelational();
+			while(true) {
+				if(consume("==")) {
+					result = compare(Binary.EQUAL, result, parseRelational());
+				} else if(consume("!=")) {
+					result = compare(Binary.NOT_EQUAL, result, parseRelational());
+				} else {
+					return result;
+				}
+			}
+		}
+
+		private Node parseRelational() {
+			Node result = parseAdditive();
+			while(true) {
+				if(consume("<=")) {
+					result = compare(Binary.LESS_EQUAL, result, parseAdditive());
+				} else if(consume(">=")) {
+					result = compare(Binary.GREATER_EQUAL, result, parseAdditive());
+				} else if(consume("<")) {
+					result = compare(Binary.LESS, result, parseAdditive());
+				} else if(consume(">")) {
+					result = compare(Binary.GREATER, result, parseAdditive());
+				} else {
+					return result;
+				}
+			}
+		}
+
+		private Node parseAdditive() {
+			Node result = parseMultiplicative();
+			while(true) {
+				if(consume("+")) {
+					result = new Binary(Binary.ADD, result, parseMultiplicative());
+				} else if(consume("-")) {
+					result = new Binary(Binary.SUBTRACT, result, parseMultiplicative());
+				} else {
+					return result;
+				}
+			}
+		}
+
+		private Node parseMultiplicative() {
+			Node result = parseUnary();
+			while(true) {
+				if(consume("*")) {
+					result = new Binary(Binary.MULTIPLY, result, parseUnary());
+				} else if(consume("/")) {
+					result = new Binary(Binary.DIVIDE, result, parseUnary());
+				} else if(consume("%")) {
+					result = modulo(result, parseUnary());
+				} else {
+					return result;
+				}
+			}
+		}
+
+		private Node parseUnary() {
+			skipWhitespace();
+			if(position < expression.length() && expression.charAt(position) == '!' &&
+					!expression.startsWith("!=", position)) {
+				position++;
+				return new Not(parseUnary());
+			}
+			return parsePrimary();
+		}
+
+		private Node parsePrimary() {
+			skipWhitespace();
+			if(consume("(")) {
+				final Node result = parseConditional();
+				if(!consume(")")) {
+					throw error();
+				}
+				return result;
+			}
+			if(consume("n")) {
+				totalVariables++;
+				return new Variable();
+			}
+			final int start = position;
+			while(position < expression.length() && Character.isDigit(expression.charAt(position))) {
+				position++;
+			}
+			if(start == position) {
+				throw error();
+			}
+			try {
+				return new Constant(Long.parseLong(expression.substring(start, position)));
+			} catch (NumberFormatException e) {
+				throw error();
+			}
+		}
+
+		private boolean consume(String token) {
+			skipWhitespace();
+			if(!expression.startsWith(token, position)) {
+				return false;
+			}
+			position += token.length();
+			return true;
+		}
+
+		private void skipWhitespace() {
+			while(position < expression.length() && Character.isWhitespace(expression.charAt(position))) {
+				position++;
+			}
+		}
+
+		private IllegalArgumentException error() {
+			return new IllegalArgumentException("Invalid plural expression at index " + position + ": " + expression);
+		}
+	}
+}
@@ -15,13 +15,14 @@
  ******************************************************************************/
 package org.mini2Dx.gettext;
 
-import org.antlr.v4.runtime.*;
-import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
 import org.mini2Dx.gettext.antlr.GetTextBaseListener;
-import org.mini2Dx.gettext.antlr.GetTextLexer;
 import org.mini2Dx.gettext.antlr.GetTextParser;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
@@ -31,8 +32,6 @@ import java.util.Locale;
  * Parses a .po file and stores a {@link TranslationEntry} for each translation
  */
 public class PoFile extends GetTextBaseListener {
-	private static final LexerErrorListener LEXER_ERROR_LISTENER = new LexerErrorListener();
-	private static final ParserErrorListener PARSER_ERROR_LISTENER = new ParserErrorListener();
 	private static final String EMPTY_STRING = "";
 
 	private final Locale locale;
@@ -62,7 +61,11 @@ public class PoFile extends GetTextBaseListener {
 		this.locale = locale;
 		this.parseSettings = parseSettings;
 
-		read(CharStreams.fromReader(reader));
+		if(parseSettings.antlr) {
+			read(CharStreams.fromReader(reader));
+		} else {
+			read(new PoParser(reader, parseSettings));
+		}
 		reader.close();
 	}
 
@@ -71,10 +74,47 @@ public class PoFile extends GetTextBaseListener {
 		this.locale = locale;
 		this.parseSettings = parseSettings;
 
-		read(CharStreams.fromStream(inputStream));
+		if(parseSettings.antlr) {
+			read(CharStreams.fromStream(inputStream));
+		} else {
+			read(new PoParser(new InputStreamReader(inputStream, StandardCharsets.UTF_8), parseSettings));
+		}
 		inputStream.close();
 	}
 
+	/**
+	 * Parses a UTF-8 encoded .po file from a {@link ByteBuffer}, e.g. a memory-mapped file
+	 * @param locale The {@link Locale} of the file
+	 * @param byteBuffer The {@link ByteBuffer} to read from position to limit
+	 */
+	public PoFile(Locale locale, ByteBuffer byteBuffer) {
+		this(locale, byteBuffer, PoParseSettings.DEFAULT);
+	}
+
+	/**
+	 * Parses a UTF-8 encoded .po file from a {@link ByteBuffer}, e.g. a memory-mapped file
+	 * @param locale The {@link Locale} of the file
+	 * @param byteBuffer The {@link ByteBuffer} to read from position to limit
+	 * @param parseSettings The {@link PoParseSettings} to use
+	 */
+	public PoFile(Locale locale, ByteBuffer byteBuffer, PoParseSettings parseSettings) {
+		super();
+		this.locale = locale;
+		this.parseSettings = parseSettings;
+
+		final CharBuffer charBuffer = StandardCharsets.UTF_8.decode(byteBuffer);
+		if(parseSettings.antlr) {
+			read(CharStreams.fromString(charBuffer.toString()));
+		} else {
+			try {
+				read(new PoParser(charBuffer, parseSettings));
+			} catch (IOException e) {
+				//PoParser only throws IOException when reading from a Reader
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
 	public PoFile(Locale locale) {
 		super();
 		this.locale = locale;
@@ -82,53 +122,112 @@ public class PoFile extends GetTextBaseListener {
 	}
 
 	private void read(CharStream charStream) {
-		final GetTextLexer lexer = new GetTextLexer(charStream);
-		lexer.removeErrorListeners();
-		lexer.addErrorListener(LEXER_ERROR_LISTENER);
-		final GetTextParser parser = new GetTextParser(new BufferedTokenStream(lexer));
-		parser.removeErrorListeners();
-		parser.addErrorListener(PARSER_ERROR_LISTENER);
+		AntlrPipeline.parse(charStream, this);
+	}
 
-		final GetTextParser.PoContext context = parser.po();
-		final ParseTreeWalker parseTreeWalker = new ParseTreeWalker();
+	/**
+	 * Discards entries read by an attempt of {@link AntlrPipeline} that is about to be retried
+	 */
+	void clearEntries() {
+		entries.clear();
+		currentEntry = null;
+	}
 
-		parseTreeWalker.walk(this, context);
+	private void read(PoParser parser) throws IOException {
+		TranslationEntry entry;
+		while((entry = parser.next()) != null) {
+			entries.add(entry);
+		}
 	}
 
+	/**
+	 * Writes the entries to a .po file via {@link PoWriter}
+	 * @param file The file to write to
+	 * @throws IOException Thrown if the file could not be written
+	 */
 	public void saveTo(File file) throws IOException {
-		final PrintWriter printWriter = new PrintWriter(file, StandardCharsets.UTF_8.name());
-		for(TranslationEntry translationEntry : entries) {
-			translationEntry.writeTo(printWriter);
-			printWriter.println();
+		final PoWriter poWriter = new PoWriter(new FileOutputStream(file));
+		try {
+			poWriter.write(entries);
+		} finally {
+			poWriter.close();
 		}
-		printWriter.flush();
-		printWriter.close();
 	}
 
+	/**
+	 * Writes the entries to an indexed binary file which can be read via {@link #readFromBin(Locale, InputStream)}
+	 * @param file The file to write to
+	 * @throws IOException Thrown if the file could not be written
+	 */
 	public void saveToBin(File file) throws IOException {
-		final DataOutputStream outputStream = new DataOutputStream(new FileOutputStream(file));
-		outputStream.writeInt(entries.size());
-		for(TranslationEntry translationEntry : entries) {
-			translationEntry.writeTo(outputStream);
+		saveToBin(file, false);
+	}
+
+	/**
+	 * Writes the entries to an indexed binary file which can be read via {@link #readFromBin(Locale, InputStream)}
+	 * @param file The file to write to
+	 * @param compress True to compress the entries in blocks, which can be read on demand via
+	 *                 {@link CompressedBinFile#map(Locale, File)}
+	 * @throws IOException Thrown if the file could not be written
+	 */
+	public void saveToBin(File file, boolean compress) throws IOException {
+		final OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(file));
+		try {
+			if(compress) {
+				BinFormat.writeCompressed(entries, outputStream);
+			} else {
+				BinFormat.write(entries, outputStream);
+			}
+		} finally {
+			outputStream.close();
 		}
-		outputStream.flush();
-		outputStream.close();
+	}
+
+	/**
+	 * Compiles the entries to a GNU gettext .mo file which can be memory-mapped via {@link MoFile#map(Locale, File)}
+	 * @param file The file to write to
+	 * @throws IOException Thrown if the file could not be written
+	 */
+	public void saveToMo(File file) throws IOException {
+		MoFile.write(entries, file);
 	}
 
 	public static PoFile readFromBin(Locale locale, InputStream inputStream) throws IOException {
-		final DataInputStream dataInputStream = new DataInputStream(inputStream);
-		final int totalEntries = dataInputStream.readInt();
+		return readFromBin(locale, inputStream, null);
+	}
 
+	/**
+	 * Reads a file written by {@link #saveToBin(File)} or {@link #saveToBin(File, boolean)}. Files written by earlier
+	 * versions are also supported.
+	 * @param locale The {@link Locale} of the file
+	 * @param inputStream The {@link InputStream} to read from
+	 * @param stringPool The {@link StringPool} to deduplicate strings with, or null to keep the strings as they are
+	 * @return A new {@link PoFile}
+	 * @throws IOException Thrown if the file could not be read
+	 */
+	public static PoFile readFromBin(Locale locale, InputStream inputStream, StringPool stringPool) throws IOException {
 		final PoFile poFile = new PoFile(locale);
-		for(int i = 0; i < totalEntries; i++) {
-			final TranslationEntry translationEntry = new TranslationEntry();
-			translationEntry.readFrom(dataInputStream);
-			poFile.entries.add(translationEntry);
+		try {
+			poFile.entries.addAll(BinFormat.read(inputStream, stringPool));
+		} finally {
+			inputStream.close();
 		}
-		dataInputStream.close();
 		return poFile;
 	}
 
+	/**
+	 * Reads a single entry from a file written by {@link #saveToBin(File)} via its index, without reading the
+	 * remaining entries. Note: The checksum is not verified.
+	 * @param buffer The {@link ByteBuffer} containing the file, e.g. a memory-mapped file
+	 * @param context Null or empty for the default context, else msgctxt
+	 * @param id The msgid
+	 * @return Null if the file contains no such entry
+	 * @throws IOException Thrown if the buffer does not contain a file written by {@link #saveToBin(File)}
+	 */
+	public static TranslationEntry readEntryFromBin(ByteBuffer buffer, String context, String id) throws IOException {
+		return BinFormat.find(buffer, context, id);
+	}
+
 	@Override
 	public void enterEntry(GetTextParser.EntryContext ctx) {
 		currentEntry = new TranslationEntry();
@@ -138,6 +237,8 @@ public class PoFile extends GetTextBaseListener {
 	public void exitEntry(GetTextParser.EntryContext ctx) {
 		entries.add(currentEntry);
 		currentEntry = null;
+		//The entry has been read so its subtree does not need to be kept until the end of the file
+		ctx.getParent().removeLastChild();
 	}
 
 	@Override
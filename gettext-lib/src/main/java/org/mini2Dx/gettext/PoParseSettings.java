@@ -42,4 +42,10 @@ public class PoParseSettings {
 	 * True if translator comments should be stored
 	 */
 	public boolean translatorComments = true;
+
+	/**
+	 * True if the ANTLR GetText grammar should be used instead of the faster hand-written parser.
+	 * Both accept the same files and produce the same entries.
+	 */
+	public boolean antlr = false;
 }
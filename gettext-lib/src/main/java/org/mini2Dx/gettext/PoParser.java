@@ -0,0 +1,491 @@
+/*******************************************************************************
+ * Copyright 2019 Thomas Cashman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.mini2Dx.gettext;
+
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+
+/**
+ * Single-pass .po parser that reads one {@link TranslationEntry} at a time.<br>
+ * <br>
+ * Accepts exactly the files accepted by the GetText.g4 grammar, including how the grammar resolves its ambiguities,
+ * and produces the same entries as {@link PoFile}'s ANTLR listener. The grammar remains the reference implementation.
+ */
+final class PoParser {
+	private static final int BUFFER_SIZE = 8192;
+	private static final int EOF = -1;
+
+	private static final int NONE = 0, MSGID = 1, MSGID_PLURAL = 2, MSGCTXT = 3, MSGSTR = 4;
+	private static final String[] KEYWORDS = new String[] { null, "msgid", "msgid_plural", "msgctxt", "msgstr" };
+
+	private final Reader reader;
+	private final PoParseSettings parseSettings;
+	private final StringBuilder text = new StringBuilder();
+
+	private char[] buffer;
+	private int position, limit;
+	private long bufferOffset;
+
+	private int line = 1;
+	private long lineStart = 0;
+	private int totalEntries = 0;
+	private boolean finished = false;
+
+	PoParser(Reader reader, PoParseSettings parseSettings) {
+		super();
+		this.reader = reader;
+		this.parseSettings = parseSettings;
+		this.buffer = new char[BUFFER_SIZE];
+	}
+
+	PoParser(CharBuffer charBuffer, PoParseSettings parseSettings) {
+		super();
+		this.reader = null;
+		this.parseSettings = parseSettings;
+		if(charBuffer.hasArray()) {
+			buffer = charBuffer.array();
+			position = charBuffer.arrayOffset() + charBuffer.position();
+			limit = charBuffer.arrayOffset() + charBuffer.limit();
+		} else {
+			buffer = new char[charBuffer.remaining()];
+			charBuffer.duplicate().get(buffer);
+			limit = buffer.length;
+		}
+		bufferOffset = -position;
+	}
+
+	/**
+	 * Parses the next entry
+	 * @return Null if the end of the file has been reached
+	 * @throws IOException Thrown if the underlying {@link Reader} could not be read
+	 * @throws ParseCancellationException Thrown if the file is not a valid .po file
+	 */
+	TranslationEntry next() throws IOException {
+		if(finished) {
+			return null;
+		}
+		//emptyLine* between entries, NEWLINE* before EOF
+		boolean whitespaceLines = false;
+		while(true) {
+			final int whitespace = countWhitespace(0);
+			final int c = peek(whitespace);
+			if(isNewline(c)) {
+				whitespaceLines |= whitespace > 0;
+				skip(whitespace);
+				consumeNewline();
+				continue;
+			}
+			if(c == EOF) {
+				if(whitespace > 0 || whitespaceLines || totalEntries == 0) {
+					skip(whitespace);
+					throw error("expected msgid, msgid_plural, msgctxt, msgstr or comment");
+				}
+				finished = true;
+				return null;
+			}
+			if(whitespace > 0) {
+				skip(whitespace);
+				throw error("unexpected character");
+			}
+			break;
+		}
+
+		final TranslationEntry entry = new TranslationEntry();
+		while(peek(0) == '#') {
+			parseComment(entry);
+			if(!isNewline(peek(0))) {
+				throw error("expected newline after comment");
+			}
+			consumeNewline();
+		}
+		parseMessage(entry);
+		while(isNewline(peek(0)) && keywordAt(newlineLength(0)) != NONE) {
+			consumeNewline();
+			parseMessage(entry);
+		}
+		totalEntries++;
+		return entry;
+	}
+
+	private void parseComment(TranslationEntry entry) throws IOException {
+		skip(1);
+		int type = peek(0);
+		switch(type) {
+		case ':':
+		case '|':
+		case ',':
+		case '.':
+			final int next = peek(1);
+			if(next == EOF || isNewline(next)) {
+				type = '#';
+			} else {
+				skip(1);
+			}
+			break;
+		default:
+			type = '#';
+			break;
+		}
+
+		text.setLength(0);
+		readUnquoted(text);
+
+		switch(type) {
+		case ':':
+			if(parseSettings.reference) {
+				entry.setReference(text.toString());
+			}
+			break;
+		case '|':
+			if(parseSettings.mergeComments) {
+				entry.getMergeComments().add(text.toString());
+			}
+			break;
+		case ',':
+			if(parseSettings.flags) {
+				entry.getFlags().add(text.toString());
+			}
+			break;
+		case '.':
+			if(parseSettings.extractedComments) {
+				entry.getExtractedComments().add(text.toString());
+			}
+			break;
+		default:
+			if(text.length() > 0 && parseSettings.translatorComments) {
+				entry.getTranslatorComments().add(text.toString());
+			}
+			break;
+		}
+	}
+
+	private void parseMessage(TranslationEntry entry) throws IOException {
+		final int keyword = keywordAt(0);
+		if(keyword == NONE) {
+			throw error("expected msgid, msgid_plural, msgctxt or msgstr");
+		}
+		skip(KEYWORDS[keyword].length());
+
+		switch(keyword) {
+		case MSGID:
+			entry.setId(parseMessageText(true));
+			break;
+		case MSGID_PLURAL:
+			entry.setIdPlural(parseMessageText(true));
+			break;
+		case MSGCTXT:
+			entry.setContext(parseMessageText(true));
+			break;
+		default:
+			if(isNumericString()) {
+				parseNumericString(entry);
+			} else {
+				entry.setString(0, parseMessageText(false));
+			}
+			break;
+		}
+	}
+
+	/**
+	 * Parses the text after a keyword. Continuation lines may be indented by any whitespace for msgid, msgid_plural
+	 * and msgctxt but by at most one whitespace for msgstr.
+	 */
+	private String parseMessageText(boolean indentedContinuations) throws IOException {
+		final int whitespace = countWhitespace(0);
+		if(whitespace == 0) {
+			throw error("expected whitespace");
+		}
+		text.setLength(0);
+		if(peek(whitespace) == '"') {
+			skip(whitespace);
+			readQuotedLines(indentedContinuations);
+			return text.toString();
+		}
+		//Unquoted text begins after a single whitespace
+		skip(1);
+		readUnquoted(text);
+		if(text.length() == 0) {
+			throw error("expected text");
+		}
+		return repairEscapedQuotes(text);
+	}
+
+	private boolean isNumericString() throws IOException {
+		int offset = isWhitespace(peek(0)) ? 1 : 0;
+		if(peek(offset) != '[') {
+			return false;
+		}
+		offset++;
+		final int digitsStart = offset;
+		while(isDigit(peek(offset))) {
+			offset++;
+		}
+		if(offset == digitsStart || peek(offset) != ']') {
+			return false;
+		}
+		offset++;
+		final int whitespace = countWhitespace(offset);
+		if(whitespace == 0) {
+			return false;
+		}
+		final int c = peek(offset + whitespace);
+		if(c == EOF || isNewline(c)) {
+			//Unquoted text of a single whitespace
+			return whitespace > 1;
+		}
+		return true;
+	}
+
+	private void parseNumericString(TranslationEntry entry) throws IOException {
+		if(isWhitespace(peek(0))) {
+			skip(1);
+		}
+		skip(1);
+		text.setLength(0);
+		while(isDigit(peek(0))) {
+			text.append((char) peek(0));
+			skip(1);
+		}
+		final int index = Integer.parseInt(text.toString());
+		skip(1);
+
+		final int whitespace = countWhitespace(0);
+		final int c = peek(whitespace);
+		text.setLength(0);
+		if(c == '"') {
+			skip(whitespace);
+			readQuotedLines(false);
+			entry.setString(index, text.toString());
+			return;
+		}
+		if(c == EOF || isNewline(c)) {
+			skip(whitespace - 1);
+		} else {
+			skip(whitespace);
+		}
+		readUnquoted(text);
+		entry.setString(index, repairEscapedQuotes(text));
+	}
+
+	private void readQuotedLines(boolean indentedContinuations) throws IOException {
+		readQuoted(text);
+		while(isNewline(peek(0))) {
+			final int newline = newlineLength(0);
+			final int whitespace = countWhitespace(newline);
+			if(whitespace > 1 && !indentedContinuations) {
+				break;
+			}
+			if(peek(newline + whitespace) != '"') {
+				break;
+			}
+			consumeNewline();
+			skip(whitespace);
+			readQuoted(text);
+		}
+		final int c = peek(0);
+		if(c == EOF || isNewline(c)) {
+			return;
+		}
+		//The grammar does not require a newline between entries
+		if(c != '#' && keywordAt(0) == NONE) {
+			throw error("expected newline");
+		}
+	}
+
+	private void readQuoted(StringBuilder result) throws IOException {
+		skip(1);
+		while(true) {
+			final int c = peek(0);
+			switch(c) {
+			case EOF:
+				throw error("unterminated quoted text");
+			case '"':
+				skip(1);
+				return;
+			case '\\':
+				if(peek(1) == '"') {
+					result.append('"');
+					skip(2);
+				} else {
+					result.append('\\');
+					skip(1);
+				}
+				break;
+			case '\r':
+			case '\n':
+				//Quoted text may contain raw newlines
+				final int newline = newlineLength(0);
+				for(int i = 0; i < newline; i++) {
+					result.append(buffer[position + i]);
+				}
+				consumeNewline();
+				break;
+			default:
+				result.append((char) c);
+				skip(1);
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Reads unquoted text up to the end of the line. As with the grammar, a stray '"' ends the text at the last
+	 * keyword before it so that the remainder of the line is parsed as a new entry.
+	 */
+	private void readUnquoted(StringBuilder result) throws IOException {
+		int length = 0;
+		int lastKeyword = 0;
+		while(true) {
+			final int c = peek(length);
+			if(c == EOF || isNewline(c)) {
+				break;
+			}
+			if(c == '"') {
+				if(lastKeyword == 0) {
+					skip(length);
+					throw error("unexpected '\"'");
+				}
+				length = lastKeyword;
+				break;
+			}
+			if(c == '\\' && peek(length + 1) == '"') {
+				length += 2;
+				continue;
+			}
+			if(length > 0 && c == 'm' && keywordAt(length) != NONE) {
+				lastKeyword = length;
+			}
+			length++;
+		}
+		result.append(buffer, position, length);
+		skip(length);
+	}
+
+	private int keywordAt(int offset) throws IOException {
+		if(peek(offset) != 'm' || peek(offset + 1) != 's' || peek(offset + 2) != 'g') {
+			return NONE;
+		}
+		if(matches(offset + 3, "id")) {
+			return matches(offset + 5, "_plural") ? MSGID_PLURAL : MSGID;
+		}
+		if(matches(offset + 3, "str")) {
+			return MSGSTR;
+		}
+		if(matches(offset + 3, "ctxt")) {
+			return MSGCTXT;
+		}
+		return NONE;
+	}
+
+	private boolean matches(int offset, String str) throws IOException {
+		for(int i = 0; i < str.length(); i++) {
+			if(peek(offset + i) != str.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private int countWhitespace(int offset) throws IOException {
+		int result = 0;
+		while(isWhitespace(peek(offset + result))) {
+			result++;
+		}
+		return result;
+	}
+
+	private int newlineLength(int offset) throws IOException {
+		if(peek(offset) == '\r' && peek(offset + 1) == '\n') {
+			return 2;
+		}
+		return 1;
+	}
+
+	private void consumeNewline() throws IOException {
+		skip(newlineLength(0));
+		line++;
+		lineStart = bufferOffset + position;
+	}
+
+	private int peek(int offset) throws IOException {
+		if(position + offset >= limit && !fill(offset + 1)) {
+			return EOF;
+		}
+		return buffer[position + offset];
+	}
+
+	private void skip(int length) {
+		position += length;
+	}
+
+	/**
+	 * Reads from the {@link Reader} until at least the requested number of characters are available
+	 * @return False if the end of the input was reached first
+	 */
+	private boolean fill(int required) throws IOException {
+		if(reader == null) {
+			return false;
+		}
+		if(position > 0) {
+			System.arraycopy(buffer, position, buffer, 0, limit - position);
+			bufferOffset += position;
+			limit -= position;
+			position = 0;
+		}
+		if(required > buffer.length) {
+			final char[] expanded = new char[Math.max(required, buffer.length * 2)];
+			System.arraycopy(buffer, 0, expanded, 0, limit);
+			buffer = expanded;
+		}
+		while(limit < required) {
+			final int read = reader.read(buffer, limit, buffer.length - limit);
+			if(read < 0) {
+				return false;
+			}
+			limit += read;
+		}
+		return true;
+	}
+
+	private ParseCancellationException error(String message) {
+		final int column = (int) (bufferOffset + position - lineStart);
+		return new ParseCancellationException("Error parsing .po file. Line " + line + ":" + column + " - " + message);
+	}
+
+	private static String repairEscapedQuotes(StringBuilder str) {
+		for(int i = 0; i < str.length() - 1; i++) {
+			if(str.charAt(i) == '\\' && str.charAt(i + 1) == '"') {
+				str.deleteCharAt(i);
+			}
+		}
+		return str.toString();
+	}
+
+	private static boolean isNewline(int c) {
+		return c == '\n' || c == '\r';
+	}
+
+	private static boolean isWhitespace(int c) {
+		return c == ' ' || c == '\t';
+	}
+
+	private static boolean isDigit(int c) {
+		return c >= '0' && c <= '9';
+	}
+}
@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright 2019 Thomas Cashman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.mini2Dx.gettext;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads a .po file one {@link TranslationEntry} at a time without loading the whole file into memory.<br>
+ * <br>
+ * Memory use is bounded by the largest entry in the file rather than the file size, making it suitable for
+ * converting, merging or gathering statistics on very large catalogs. Entries are identical to those in
+ * {@link PoFile#getEntries()}. {@link PoParseSettings#antlr} is ignored since the ANTLR grammar cannot stream.<br>
+ * <br>
+ * The reader can be iterated once, e.g. <code>for(TranslationEntry entry : poReader)</code>. Errors during
+ * iteration are thrown as {@link IllegalStateException} wrapping the underlying {@link IOException}.
+ */
+public class PoReader implements Iterable<TranslationEntry>, Iterator<TranslationEntry>, Closeable {
+	private final Reader reader;
+	private final PoParser parser;
+
+	private TranslationEntry nextEntry = null;
+	private boolean iterated = false;
+
+	public PoReader(File file) throws IOException {
+		this(file, PoParseSettings.DEFAULT);
+	}
+
+	public PoReader(File file, PoParseSettings parseSettings) throws IOException {
+		this(new FileInputStream(file), parseSettings);
+	}
+
+	public PoReader(InputStream inputStream) {
+		this(inputStream, PoParseSettings.DEFAULT);
+	}
+
+	public PoReader(InputStream inputStream, PoParseSettings parseSettings) {
+		this(new InputStreamReader(inputStream, StandardCharsets.UTF_8), parseSettings);
+	}
+
+	public PoReader(Reader reader) {
+		this(reader, PoParseSettings.DEFAULT);
+	}
+
+	public PoReader(Reader reader, PoParseSettings parseSettings) {
+		super();
+		this.reader = reader;
+		this.parser = new PoParser(reader, parseSettings);
+	}
+
+	/**
+	 * Reads the next entry from the file
+	 * @return Null if the end of the file has been reached
+	 * @throws IOException Thrown if the file could not be read
+	 * @throws org.antlr.v4.runtime.misc.ParseCancellationException Thrown if the file is not a valid .po file
+	 */
+	public TranslationEntry read() throws IOException {
+		if(nextEntry != null) {
+			final TranslationEntry result = nextEntry;
+			nextEntry = null;
+			return result;
+		}
+		return parser.next();
+	}
+
+	@Override
+	public boolean hasNext() {
+		if(nextEntry != null) {
+			return true;
+		}
+		try {
+			nextEntry = parser.next();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return nextEntry != null;
+	}
+
+	@Override
+	public TranslationEntry next() {
+		if(!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		final TranslationEntry result = nextEntry;
+		nextEntry = null;
+		return result;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Iterator<TranslationEntry> iterator() {
+		if(iterated) {
+			throw new IllegalStateException("PoReader can only be iterated once");
+		}
+		iterated = true;
+		return this;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+}
@@ -0,0 +1,325 @@
+/*******************************************************************************
+ * Copyright 2019 Thomas Cashman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.mini2Dx.gettext;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Streams {@link TranslationEntry} instances to a .po file.<br>
+ * <br>
+ * As with {@link PoFile}, escape sequences in strings (e.g. <code>\n</code>) are written as they are. Unescaped
+ * double quotes, newline, carriage return and tab characters are escaped. Strings that are longer than the wrap width
+ * or contain a <code>\n</code> escape are wrapped the same way as GNU gettext, starting with an empty string and
+ * continuing on the following lines, broken after each <code>\n</code> and at spaces.
+ */
+public class PoWriter implements Closeable, Flushable {
+	/**
+	 * The default maximum line width, the same as GNU gettext
+	 */
+	public static final int DEFAULT_WRAP_WIDTH = 79;
+
+	private static final int BUFFER_SIZE = 8192;
+	private static final String NEWLINE = System.lineSeparator();
+
+	private final Writer writer;
+	private final char[] buffer = new char[BUFFER_SIZE];
+	private final StringBuilder escaped = new StringBuilder(256);
+
+	private int position = 0;
+	private int wrapWidth = DEFAULT_WRAP_WIDTH;
+	private boolean firstEntry = true;
+
+	/**
+	 * Constructor
+	 * @param outputStream The {@link OutputStream} to write UTF-8 to
+	 */
+	public PoWriter(OutputStream outputStream) {
+		this(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Constructor
+	 * @param writer The {@link Writer} to write to. Output is buffered by the {@link PoWriter}.
+	 */
+	public PoWriter(Writer writer) {
+		super();
+		this.writer = writer;
+	}
+
+	/**
+	 * Writes an entry, separated from the previous entry by an empty line
+	 * @param entry The {@link TranslationEntry} to write
+	 * @throws IOException Thrown if the entry could not be written
+	 */
+	public void write(TranslationEntry entry) throws IOException {
+		if(!firstEntry) {
+			writeNewline();
+		}
+		firstEntry = false;
+		writeEntry(entry);
+	}
+
+	/**
+	 * Writes a list of entries
+	 * @param entries The {@link TranslationEntry} instances to write
+	 * @throws IOException Thrown if an entry could not be written
+	 */
+	public void write(List<TranslationEntry> entries) throws IOException {
+		for(int i = 0; i < entries.size(); i++) {
+			write(entries.get(i));
+		}
+	}
+
+	void writeEntry(TranslationEntry entry) throws IOException {
+		writeComments("# ", entry.getTranslatorComments());
+		writeComments("#. ", entry.getExtractedComments());
+		writeComments("#, ", entry.getFlags());
+		writeComments("#| ", entry.getMergeComments());
+		if(entry.getReference() != null && !entry.getReference().isEmpty()) {
+			writeComment("#: ", entry.getReference());
+		}
+
+		final String context = entry.getContext();
+		if(context != null && !context.isEmpty()) {
+			writeString("msgctxt", context);
+		}
+		if(entry.getId() != null) {
+			writeString("msgid", entry.getId());
+		}
+		final boolean plural = entry.getIdPlural() != null && !entry.getIdPlural().isEmpty();
+		if(plural) {
+			writeString("msgid_plural", entry.getIdPlural());
+		}
+
+		final List<String> strings = entry.getStrings();
+		if(strings.isEmpty()) {
+			if(plural) {
+				writeString("msgstr[0]", "");
+				writeString("msgstr[1]", "");
+				writeString("msgstr[2]", "");
+			} else {
+				writeString("msgstr", "");
+			}
+		} else if(plural || strings.size() > 1) {
+			for(int i = 0; i < strings.size(); i++) {
+				writeString("msgstr[" + i + "]", strings.get(i));
+			}
+		} else {
+			writeString("msgstr", strings.get(0));
+		}
+	}
+
+	private void writeComments(String prefix, List<String> comments) throws IOException {
+		for(int i = 0; i < comments.size(); i++) {
+			final String comment = comments.get(i);
+			if(comment.isEmpty()) {
+				continue;
+			}
+			writeComment(prefix, comment);
+		}
+	}
+
+	private void writeComment(String prefix, String comment) throws IOException {
+		append(prefix);
+		//Parsed comments keep the space following the # marker
+		final int start = comment.charAt(0) == ' ' ? 1 : 0;
+		append(comment, start, comment.length());
+		writeNewline();
+	}
+
+	private void writeString(String keyword, String str) throws IOException {
+		append(keyword);
+		append(' ');
+		if(str == null || str.isEmpty()) {
+			append("\"\"");
+			writeNewline();
+			return;
+		}
+		escape(str);
+
+		final int length = escaped.length();
+		final int maxLineLength = wrapWidth - 2;
+		if(wrapWidth <= 0 || (keyword.length() + 1 + length <= maxLineLength && !containsNewline())) {
+			writeQuoted(0, length);
+			return;
+		}
+
+		append("\"\"");
+		writeNewline();
+		int lineStart = 0;
+		int lastSpace = -1;
+		int i = 0;
+		while(i < length) {
+			final char c = escaped.charAt(i);
+			final int next = c == '\\' ? i + 2 : i + 1;
+			if(next - lineStart > maxLineLength && lastSpace > lineStart) {
+				writeQuoted(lineStart, lastSpace);
+				lineStart = lastSpace;
+				lastSpace = -1;
+				continue;
+			}
+			if(c == ' ') {
+				lastSpace = next;
+			}
+			i = next;
+			if(c == '\\' && escaped.charAt(next - 1) == 'n') {
+				writeQuoted(lineStart, i);
+				lineStart = i;
+				lastSpace = -1;
+			}
+		}
+		if(lineStart < length) {
+			writeQuoted(lineStart, length);
+		}
+	}
+
+	/**
+	 * Returns if the escaped string contains a <code>\n</code> escape before its end
+	 */
+	private boolean containsNewline() {
+		final int length = escaped.length();
+		for(int i = 0; i < length - 2; i++) {
+			if(escaped.charAt(i) == '\\') {
+				if(escaped.charAt(i + 1) == 'n') {
+					return true;
+				}
+				i++;
+			}
+		}
+		return false;
+	}
+
+	private void escape(String str) {
+		escaped.setLength(0);
+		final int length = str.length();
+		int backslashes = 0;
+		for(int i = 0; i < length; i++) {
+			final char c = str.charAt(i);
+			switch(c) {
+			case '\\':
+				escaped.append(c);
+				backslashes++;
+				continue;
+			case '"':
+				//A quote following an odd number of backslashes is already escaped
+				if((backslashes & 1) == 0) {
+					escaped.append('\\');
+				}
+				escaped.append(c);
+				break;
+			case '\n':
+				escaped.append('\\').append('n');
+				break;
+			case '\r':
+				escaped.append('\\').append('r');
+				break;
+			case '\t':
+				escaped.append('\\').append('t');
+				break;
+			default:
+				escaped.append(c);
+				break;
+			}
+			backslashes = 0;
+		}
+		if((backslashes & 1) == 1) {
+			//Do not escape the closing quote
+			escaped.append('\\');
+		}
+	}
+
+	private void writeQuoted(int start, int end) throws IOException {
+		append('"');
+		while(start < end) {
+			if(position == BUFFER_SIZE) {
+				flushBuffer();
+			}
+			final int count = Math.min(end - start, BUFFER_SIZE - position);
+			escaped.getChars(start, start + count, buffer, position);
+			position += count;
+			start += count;
+		}
+		append('"');
+		writeNewline();
+	}
+
+	private void writeNewline() throws IOException {
+		append(NEWLINE);
+	}
+
+	private void append(String str) throws IOException {
+		append(str, 0, str.length());
+	}
+
+	private void append(String str, int start, int end) throws IOException {
+		while(start < end) {
+			if(position == BUFFER_SIZE) {
+				flushBuffer();
+			}
+			final int count = Math.min(end - start, BUFFER_SIZE - position);
+			str.getChars(start, start + count, buffer, position);
+			position += count;
+			start += count;
+		}
+	}
+
+	private void append(char c) throws IOException {
+		if(position == BUFFER_SIZE) {
+			flushBuffer();
+		}
+		buffer[position++] = c;
+	}
+
+	private void flushBuffer() throws IOException {
+		if(position > 0) {
+			writer.write(buffer, 0, position);
+			position = 0;
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		flushBuffer();
+		writer.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			flushBuffer();
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Returns the maximum width of msgid, msgid_plural and msgstr lines
+	 * @return {@link #DEFAULT_WRAP_WIDTH} by default
+	 */
+	public int getWrapWidth() {
+		return wrapWidth;
+	}
+
+	/**
+	 * Sets the maximum width of msgid, msgid_plural and msgstr lines. Words longer than this are not broken.
+	 * @param wrapWidth The width in characters, or 0 to disable wrapping
+	 */
+	public void setWrapWidth(int wrapWidth) {
+		this.wrapWidth = wrapWidth;
+	}
+}
@@ -0,0 +1,221 @@
+/*******************************************************************************
+ * Copyright 2019 Thomas Cashman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.mini2Dx.gettext;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Immutable form of a {@link TranslationEntry} stored by {@link TranslationMap}.
+ * Entries without comments, flags or a reference, e.g. those parsed with these disabled in {@link PoParseSettings},
+ * only keep what lookups need.
+ */
+class RuntimeEntry {
+	private static final String[] NO_STRINGS = new String[0];
+
+	private final String context;
+	private final String id;
+	private final String idPlural;
+	private final String[] strings;
+	private final boolean translated;
+	/**
+	 * Compiled formats of each msgstr, created on first use
+	 */
+	private volatile EntryFormats formats;
+
+	RuntimeEntry(String context, String id, String idPlural, String[] strings) {
+		super();
+		this.context = context;
+		this.id = id;
+		this.idPlural = idPlural;
+		this.strings = strings.length == 0 ? NO_STRINGS : strings;
+
+		boolean translated = false;
+		for(int i = 0; i < strings.length; i++) {
+			if(strings[i] != null && !strings[i].isEmpty()) {
+				translated = true;
+				break;
+			}
+		}
+		this.translated = translated;
+	}
+
+	static RuntimeEntry of(TranslationEntry entry) {
+		return of(entry, null);
+	}
+
+	/**
+	 * Creates the immutable form of a {@link TranslationEntry} without modifying the {@link TranslationEntry}
+	 * @param entry The {@link TranslationEntry}
+	 * @param stringPool The {@link StringPool} to share the entry's strings with, or null to keep the strings as they are
+	 * @return A new {@link RuntimeEntry}
+	 */
+	static RuntimeEntry of(TranslationEntry entry, StringPool stringPool) {
+		final String[] strings = toArray(entry.getStrings(), stringPool);
+		if(entry.getTranslatorComments().isEmpty() && entry.getExtractedComments().isEmpty() &&
+				entry.getFlags().isEmpty() && entry.getMergeComments().isEmpty() && entry.getReference() == null) {
+			return new RuntimeEntry(intern(entry.getContext(), stringPool), intern(entry.getId(), stringPool),
+					intern(entry.getIdPlural(), stringPool), strings);
+		}
+		return new AnnotatedEntry(entry, strings, stringPool);
+	}
+
+	/**
+	 * Returns the msgstr for a plural form
+	 * @param index The plural form, clamped to the last available msgstr
+	 * @return Null if there is no msgstr or it is empty
+	 */
+	String getString(int index) {
+		if(strings.length == 0) {
+			return null;
+		}
+		final String result = strings[Math.min(index, strings.length - 1)];
+		if(result == null || result.isEmpty()) {
+			return null;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the compiled format of the msgstr for a plural form, compiling it on first use
+	 * @param index The plural form, clamped to the last available msgstr
+	 * @param formatCache The {@link FormatCache} of the {@link Locale} to format values with
+	 * @return Null if there is no msgstr or it is empty
+	 */
+	CompiledMessageFormat getFormat(int index, FormatCache formatCache) {
+		final String str = getString(index);
+		if(str == null) {
+			return null;
+		}
+		EntryFormats formats = this.formats;
+		if(formats == null) {
+			//Losing a race only discards formats that are still in the FormatCache
+			formats = new EntryFormats(formatCache, strings.length);
+			this.formats = formats;
+		}
+		if(formats.formatCache != formatCache) {
+			//The entry is shared with a catalog for another Locale, e.g. via a fallback chain
+			return formatCache.get(str);
+		}
+		final int slot = Math.min(index, strings.length - 1);
+		CompiledMessageFormat result = formats.formats[slot];
+		if(result == null) {
+			//CompiledMessageFormat is immutable so can be published without synchronization
+			result = formatCache.get(str);
+			formats.formats[slot] = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns if any msgstr is non-empty
+	 * @return False if the entry is untranslated
+	 */
+	boolean isTranslated() {
+		return translated;
+	}
+
+	/**
+	 * Converts this entry into a new {@link TranslationEntry}
+	 * @return A new {@link TranslationEntry}
+	 */
+	TranslationEntry toTranslationEntry() {
+		final TranslationEntry result = new TranslationEntry();
+		copyTo(result);
+		return result;
+	}
+
+	void copyTo(TranslationEntry result) {
+		result.setContext(context);
+		result.setId(id);
+		result.setIdPlural(idPlural);
+		for(int i = 0; i < strings.length; i++) {
+			result.setString(i, strings[i]);
+		}
+	}
+
+	String getContext() {
+		return context;
+	}
+
+	String getId() {
+		return id;
+	}
+
+	String getIdPlural() {
+		return idPlural;
+	}
+
+	private static String[] toArray(List<String> list, StringPool stringPool) {
+		if(list.isEmpty()) {
+			return NO_STRINGS;
+		}
+		final String[] result = list.toArray(new String[list.size()]);
+		if(stringPool != null) {
+			for(int i = 0; i < result.length; i++) {
+				result[i] = stringPool.intern(result[i]);
+			}
+		}
+		return result;
+	}
+
+	private static String intern(String str, StringPool stringPool) {
+		return stringPool == null ? str : stringPool.intern(str);
+	}
+
+	private static final class EntryFormats {
+		final FormatCache formatCache;
+		final CompiledMessageFormat[] formats;
+
+		EntryFormats(FormatCache formatCache, int totalStrings) {
+			super();
+			this.formatCache = formatCache;
+			this.formats = new CompiledMessageFormat[totalStrings];
+		}
+	}
+
+	/**
+	 * Keeps the comments, flags and reference of an entry for {@link GetText#getTranslationEntry(Locale, String, String)}
+	 */
+	private static final class AnnotatedEntry extends RuntimeEntry {
+		private final String[] translatorComments;
+		private final String[] extractedComments;
+		private final String[] flags;
+		private final String[] mergeComments;
+		private final String reference;
+
+		AnnotatedEntry(TranslationEntry entry, String[] strings, StringPool stringPool) {
+			super(intern(entry.getContext(), stringPool), intern(entry.getId(), stringPool),
+					intern(entry.getIdPlural(), stringPool), strings);
+			translatorComments = toArray(entry.getTranslatorComments(), stringPool);
+			extractedComments = toArray(entry.getExtractedComments(), stringPool);
+			flags = toArray(entry.getFlags(), stringPool);
+			mergeComments = toArray(entry.getMergeComments(), stringPool);
+			reference = intern(entry.getReference(), stringPool);
+		}
+
+		@Override
+		void copyTo(TranslationEntry result) {
+			super.copyTo(result);
+			result.getTranslatorComments().addAll(Arrays.asList(translatorComments));
+			result.getExtractedComments().addAll(Arrays.asList(extractedComments));
+			result.getFlags().addAll(Arrays.asList(flags));
+			result.getMergeComments().addAll(Arrays.asList(mergeComments));
+			result.setReference(reference);
+		}
+	}
+}
@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright 2019 Thomas Cashman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.mini2Dx.gettext;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shares identical strings between catalogs, e.g. the same msgid loaded for many locales.<br>
+ * <br>
+ * Deduplication is opt-in via {@link GetText#setStringPool(StringPool)},
+ * {@link TranslationMap#add(PoFile, StringPool)} or {@link PoFile#readFromBin(java.util.Locale, java.io.InputStream, StringPool)}.
+ * The pool keeps a reference to every string it has seen, so it can be {@link #clear()}ed once all catalogs are loaded.
+ */
+public final class StringPool {
+	private static final int OBJECT_HEADER_BYTES = 16;
+	private static final int STRING_BYTES = 24;
+
+	private final ConcurrentMap<String, String> strings = new ConcurrentHashMap<String, String>();
+	private final AtomicLong bytesSaved = new AtomicLong();
+	private final AtomicLong totalShared = new AtomicLong();
+
+	/**
+	 * Returns the pooled instance of a string
+	 * @param str The string, may be null
+	 * @return The pooled instance equal to the string
+	 */
+	public String intern(String str) {
+		if(str == null) {
+			return null;
+		}
+		final String existing = strings.putIfAbsent(str, str);
+		if(existing == null) {
+			return str;
+		}
+		if(existing != str) {
+			totalShared.incrementAndGet();
+			bytesSaved.addAndGet(estimateSize(str));
+		}
+		return existing;
+	}
+
+	/**
+	 * Replaces all strings of a {@link TranslationEntry} with their pooled instances
+	 * @param entry The {@link TranslationEntry}
+	 */
+	public void intern(TranslationEntry entry) {
+		entry.intern(this);
+	}
+
+	/**
+	 * Returns the estimated heap of the duplicate strings replaced by a pooled instance so far, i.e. the heap released
+	 * once nothing else references the duplicates
+	 * @return The number of bytes
+	 */
+	public long getBytesSaved() {
+		return bytesSaved.get();
+	}
+
+	/**
+	 * Returns how many duplicate strings were replaced by a pooled instance
+	 * @return The number of duplicate strings
+	 */
+	public long getTotalShared() {
+		return totalShared.get();
+	}
+
+	/**
+	 * Returns the number of distinct strings in the pool
+	 * @return The number of strings
+	 */
+	public int size() {
+		return strings.size();
+	}
+
+	/**
+	 * Removes all strings from the pool. Strings already shared remain shared.
+	 */
+	public void clear() {
+		strings.clear();
+	}
+
+	static long estimateSize(String str) {
+		//String object plus its char array, both aligned to 8 bytes
+		return STRING_BYTES + align(OBJECT_HEADER_BYTES + (str.length() * 2L));
+	}
+
+	private static long align(long bytes) {
+		return (bytes + 7L) & ~7L;
+	}
+}
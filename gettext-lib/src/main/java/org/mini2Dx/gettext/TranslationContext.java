@@ -18,6 +18,11 @@ package org.mini2Dx.gettext;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * @deprecated No longer used by {@link TranslationMap}, which stores all contexts in a single
+ * {@link TranslationTable}. Use {@link TranslationMap#trc(String, String)} instead.
+ */
+@Deprecated
 public class TranslationContext {
 	private final Map<String, TranslationEntry> entriesBySingularId = new HashMap<String, TranslationEntry>();
 	private final Map<String, TranslationEntry> entriesByPluralId = new HashMap<String, TranslationEntry>();
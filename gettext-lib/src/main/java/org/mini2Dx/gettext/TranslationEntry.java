@@ -27,73 +27,29 @@ import java.util.Objects;
  * A single entry from a .po file
  */
 public class TranslationEntry {
-	private final List<String> translatorComments = new ArrayList<String>(2);
-	private final List<String> extractedComments = new ArrayList<String>(2);
-	private final List<String> flags = new ArrayList<String>(2);
-	private final List<String> mergeComments = new ArrayList<String>(2);
+	private static final int INITIAL_CAPACITY = 2;
+
+	private final ArrayList<String> translatorComments = new ArrayList<String>(INITIAL_CAPACITY);
+	private final ArrayList<String> extractedComments = new ArrayList<String>(INITIAL_CAPACITY);
+	private final ArrayList<String> flags = new ArrayList<String>(INITIAL_CAPACITY);
+	private final ArrayList<String> mergeComments = new ArrayList<String>(INITIAL_CAPACITY);
 	private String reference;
 
 	private String context;
 	private String id, idPlural;
-	private final ArrayList<String> strings = new ArrayList<String>(2);
+	private final ArrayList<String> strings = new ArrayList<String>(INITIAL_CAPACITY);
 
+	/**
+	 * Writes this entry in .po format. Use {@link PoWriter} when writing many entries.
+	 * @param printWriter The {@link PrintWriter} to write to
+	 */
 	public void writeTo(PrintWriter printWriter) {
-		for(String comment : translatorComments) {
-			if(comment.length() == 0) {
-				continue;
-			}
-			printWriter.println("# " + trimComment(comment));
-		}
-		for(String comment : extractedComments) {
-			if(comment.length() == 0) {
-				continue;
-			}
-			printWriter.println("#. " + trimComment(comment));
-		}
-		for(String comment : flags) {
-			if(comment.length() == 0) {
-				continue;
-			}
-			printWriter.println("#, " + trimComment(comment));
-		}
-		for(String comment : mergeComments) {
-			if(comment.length() == 0) {
-				continue;
-			}
-			printWriter.println("#| " + trimComment(comment));
-		}
-		if(reference != null && !reference.isEmpty()) {
-			printWriter.println("#: " + trimComment(reference));
-		}
-		if(context != null && !context.isEmpty()) {
-			printWriter.println("msgctxt \"" + context + "\"");
-		}
-		if(id != null && !id.isEmpty()) {
-			printWriter.println("msgid \"" + Utils.escapeDoubleQuotes(id) + "\"");
-		}
-		if(idPlural != null && !idPlural.isEmpty()) {
-			printWriter.println("msgid_plural \"" + Utils.escapeDoubleQuotes(idPlural) + "\"");
-		}
-		if(strings.isEmpty()) {
-			if(idPlural != null && !idPlural.isEmpty()) {
-				printWriter.println("msgstr[0] \"\"");
-				printWriter.println("msgstr[1] \"\"");
-				printWriter.println("msgstr[2] \"\"");
-			} else {
-				printWriter.println("msgstr \"\"");
-			}
-		} else if(strings.size() > 1) {
-			for(int i = 0; i < strings.size(); i++) {
-				final String str = strings.get(i);
-				if(str == null) {
-					printWriter.println("msgstr[" + i + "] \"\"");
-				} else {
-					printWriter.println("msgstr[" + i + "] \"" + Utils.escapeDoubleQuotes(str) + "\"");
-				}
-			}
-			printWriter.println("msgid_plural \"" + Utils.escapeDoubleQuotes(idPlural) + "\"");
-		} else {
-			printWriter.println("msgstr \"" + Utils.escapeDoubleQuotes(strings.get(0)) + "\"");
+		final PoWriter poWriter = new PoWriter(printWriter);
+		try {
+			poWriter.writeEntry(this);
+			poWriter.flush();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
 		}
 	}
 
@@ -207,6 +163,24 @@ public class TranslationEntry {
 		}
 	}
 
+	void intern(StringPool stringPool) {
+		reference = stringPool.intern(reference);
+		context = stringPool.intern(context);
+		id = stringPool.intern(id);
+		idPlural = stringPool.intern(idPlural);
+		intern(stringPool, translatorComments);
+		intern(stringPool, extractedComments);
+		intern(stringPool, flags);
+		intern(stringPool, mergeComments);
+		intern(stringPool, strings);
+	}
+
+	private static void intern(StringPool stringPool, List<String> list) {
+		for(int i = 0; i < list.size(); i++) {
+			list.set(i, stringPool.intern(list.get(i)));
+		}
+	}
+
 	public List<String> getTranslatorComments() {
 		return translatorComments;
 	}
@@ -268,16 +242,6 @@ public class TranslationEntry {
 		strings.set(index, str);
 	}
 
-	private String trimComment(String str) {
-		if(str.length() == 0) {
-			return str;
-		}
-		if(str.charAt(0) == ' ') {
-			return str.substring(1);
-		}
-		return str;
-	}
-
 	@Override
 	public boolean equals(Object o) {
 		if (this == o) return true;
@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright 2019 Thomas Cashman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.mini2Dx.gettext;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A pre-resolved (msgctxt, msgid, msgid_plural) handle.<br>
+ * <br>
+ * Each (msgctxt, msgid, msgid_plural) used by a {@link TranslationKey} is assigned a slot shared by all locales.
+ * Catalog keys are not assigned slots. Each catalog resolves a slot against its entries on first use and keeps the result
+ * in an array indexed by slot, so translating a {@link TranslationKey} again is a single array read instead of
+ * hashing the source text.
+ */
+public final class TranslationKey {
+	private static final ConcurrentMap<SlotKey, Integer> SLOTS = new ConcurrentHashMap<SlotKey, Integer>();
+	private static volatile int TOTAL_SLOTS = 0;
+
+	private final String context;
+	private final String id;
+	private final String idPlural;
+	private final int slot;
+
+	private TranslationKey(String context, String id, String idPlural) {
+		super();
+		if(id == null) {
+			throw new NullPointerException("Null sourceText reference");
+		}
+		this.context = context;
+		this.id = id;
+		this.idPlural = idPlural;
+		this.slot = slotOf(context, id, idPlural);
+	}
+
+	/**
+	 * Resolves a {@link TranslationKey} for a msgid
+	 * @param sourceText The source text to translate (msgid)
+	 * @return A new {@link TranslationKey}
+	 */
+	public static TranslationKey of(String sourceText) {
+		return new TranslationKey(null, sourceText, null);
+	}
+
+	/**
+	 * Resolves a {@link TranslationKey} for a msgid within a context
+	 * @param context The translation context (msgctxt)
+	 * @param sourceText The source text to translate (msgid)
+	 * @return A new {@link TranslationKey}
+	 */
+	public static TranslationKey of(String context, String sourceText) {
+		return new TranslationKey(context, sourceText, null);
+	}
+
+	/**
+	 * Resolves a {@link TranslationKey} for a msgid with a plural form
+	 * @param sourceText The source text to translate (msgid)
+	 * @param sourcePluralText The plural source text to translate (msgid_plural)
+	 * @return A new {@link TranslationKey}
+	 */
+	public static TranslationKey ofPlural(String sourceText, String sourcePluralText) {
+		return new TranslationKey(null, sourceText, sourcePluralText);
+	}
+
+	/**
+	 * Resolves a {@link TranslationKey} for a msgid with a plural form within a context
+	 * @param context The translation context (msgctxt)
+	 * @param sourceText The source text to translate (msgid)
+	 * @param sourcePluralText The plural source text to translate (msgid_plural)
+	 * @return A new {@link TranslationKey}
+	 */
+	public static TranslationKey ofPlural(String context, String sourceText, String sourcePluralText) {
+		return new TranslationKey(context, sourceText, sourcePluralText);
+	}
+
+	/**
+	 * Returns the slot for a (msgctxt, msgid, msgid_plural), assigning a new slot if no {@link TranslationKey} has
+	 * used it before
+	 * @param context Null or empty for the default context, else msgctxt
+	 * @param id The msgid
+	 * @param idPlural Null for a singular key, else msgid_plural
+	 * @return The slot index
+	 */
+	static int slotOf(String context, String id, String idPlural) {
+		final SlotKey key = new SlotKey(context == null || context.isEmpty() ? null : context, id, idPlural);
+		final Integer slot = SLOTS.get(key);
+		if(slot != null) {
+			return slot;
+		}
+		synchronized(SLOTS) {
+			final Integer existingSlot = SLOTS.get(key);
+			if(existingSlot != null) {
+				return existingSlot;
+			}
+			final int result = TOTAL_SLOTS;
+			SLOTS.put(key, result);
+			TOTAL_SLOTS = result + 1;
+			return result;
+		}
+	}
+
+	/**
+	 * Returns the number of slots assigned so far
+	 * @return One more than the highest slot index
+	 */
+	static int getTotalSlots() {
+		return TOTAL_SLOTS;
+	}
+
+	public String getContext() {
+		return context;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String getIdPlural() {
+		return idPlural;
+	}
+
+	int getSlot() {
+		return slot;
+	}
+
+	@Override
+	public String toString() {
+		return "TranslationKey{" +
+				"context='" + context + '\'' +
+				", id='" + id + '\'' +
+				", idPlural='" + idPlural + '\'' +
+				", slot=" + slot +
+				'}';
+	}
+
+	private static final class SlotKey {
+		private final String context;
+		private final String id;
+		private final String idPlural;
+		private final int hash;
+
+		SlotKey(String context, String id, String idPlural) {
+			super();
+			this.context = context;
+			this.id = id;
+			this.idPlural = idPlural;
+			this.hash = (id.hashCode() * 31 + (context == null ? 0 : context.hashCode())) * 31 +
+					(idPlural == null ? 0 : idPlural.hashCode());
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if(this == o) {
+				return true;
+			}
+			if(!(o instanceof SlotKey)) {
+				return false;
+			}
+			final SlotKey slotKey = (SlotKey) o;
+			return hash == slotKey.hash && id.equals(slotKey.id) &&
+					(context == null ? slotKey.context == null : context.equals(slotKey.context)) &&
+					(idPlural == null ? slotKey.idPlural == null : idPlural.equals(slotKey.idPlural));
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
@@ -15,119 +15,536 @@
  ******************************************************************************/
 package org.mini2Dx.gettext;
 
-import java.text.MessageFormat;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 
+/**
+ * Stores the translations for a single {@link Locale}.<br>
+ * <br>
+ * Note: {@link #add(PoFile)} is not thread-safe. Once a {@link TranslationMap} is shared between threads it should
+ * be treated as read-only and new files added to a copy created via {@link #TranslationMap(TranslationMap)}
+ */
 public class TranslationMap {
 	private final Locale locale;
-	private final TranslationContext defaultContext = new TranslationContext();
-	private final Map<String, TranslationContext> contexts = new HashMap<String, TranslationContext>();
+	private TranslationTable table = TranslationTable.EMPTY;
+	private PluralForms pluralForms;
+	/**
+	 * Catalogs consulted in order when {@link #table} has no translation for a key, null if there are none
+	 */
+	private Layer[] layers = null;
 
-	private final Map<String, MessageFormat> messageFormatsCache = new HashMap<String, MessageFormat>();
+	private final FormatCache formatCache;
 
 	public TranslationMap(Locale locale) {
 		super();
 		this.locale = locale;
+		this.pluralForms = PluralForms.forLocale(locale);
+		this.formatCache = FormatCache.forLocale(locale);
+	}
+
+	/**
+	 * Creates a copy of an existing {@link TranslationMap}
+	 * @param translationMap The {@link TranslationMap} to copy
+	 */
+	public TranslationMap(TranslationMap translationMap) {
+		super();
+		this.locale = translationMap.locale;
+		this.table = translationMap.table;
+		this.pluralForms = translationMap.pluralForms;
+		this.layers = translationMap.layers;
+		this.formatCache = translationMap.formatCache;
+	}
+
+	/**
+	 * Creates a {@link TranslationMap} for a locale by merging a fallback chain of {@link TranslationMap}s
+	 * @param locale The {@link Locale} the merged map is requested for
+	 * @param chain The {@link TranslationMap}s to merge, most specific first
+	 */
+	TranslationMap(Locale locale, List<TranslationMap> chain) {
+		super();
+		this.locale = locale;
+		this.pluralForms = chain.get(0).pluralForms;
+		this.formatCache = FormatCache.forLocale(locale);
+		if(chain.size() == 1) {
+			table = chain.get(0).table;
+			layers = chain.get(0).layers;
+			return;
+		}
+
+		//Consecutive tables sharing a plural rule are merged so that lookups only fall through to another layer
+		//for .mo files or a fallback language with a different rule
+		final List<Layer> merged = new ArrayList<Layer>();
+		for(int i = 0; i < chain.size(); i++) {
+			final TranslationMap translationMap = chain.get(i);
+			addLayer(merged, new Layer(translationMap.table, translationMap.pluralForms));
+			if(translationMap.layers != null) {
+				for(Layer layer : translationMap.layers) {
+					addLayer(merged, layer.table != null ?
+							new Layer(layer.table, layer.getPluralForms(translationMap.pluralForms)) : layer);
+				}
+			}
+		}
+		if(!merged.isEmpty() && merged.get(0).table != null && merged.get(0).pluralForms.equals(pluralForms)) {
+			table = merged.remove(0).table;
+		}
+		if(!merged.isEmpty()) {
+			layers = merged.toArray(new Layer[merged.size()]);
+		}
+	}
+
+	private static void addLayer(List<Layer> layers, Layer layer) {
+		if(layer.table == null) {
+			layers.add(layer);
+			return;
+		}
+		if(layer.table.size() == 0) {
+			return;
+		}
+		if(!layers.isEmpty()) {
+			final Layer overlay = layers.get(layers.size() - 1);
+			if(overlay.table != null && overlay.pluralForms.equals(layer.pluralForms)) {
+				layers.set(layers.size() - 1,
+						new Layer(TranslationTable.merge(layer.table, overlay.table), layer.pluralForms));
+				return;
+			}
+		}
+		layers.add(layer);
 	}
 
 	public String tr(String sourceText) {
-		return defaultContext.tr(sourceText);
+		return getResult(sourceText, getRuntimeEntry(null, sourceText));
 	}
 
 	public String tr(String sourceText, Object... values) {
-		return format(sourceText, tr(sourceText), values);
+		return trFormat(sourceText).format(values);
+	}
+
+	/**
+	 * Returns the {@link CompiledMessageFormat} for the translation of a msgid
+	 * @param sourceText The source text to translate (msgid)
+	 * @return The compiled msgstr, or, compiled source text if no translation exists
+	 */
+	public CompiledMessageFormat trFormat(String sourceText) {
+		return getFormat(sourceText, getRuntimeEntry(null, sourceText));
 	}
 
 	public String trc(String context, String sourceText) {
-		final TranslationContext translationContext = contexts.get(context);
-		if(translationContext == null) {
-			return sourceText;
-		}
-		return translationContext.tr(sourceText);
+		return getResult(sourceText, getRuntimeEntry(context, sourceText));
 	}
 
 	public String trc(String context, String sourceText, Object... values) {
-		return MessageFormat.format(messageFormatSanitise(tr(sourceText)), values);
+		return trcFormat(context, sourceText).format(values);
+	}
+
+	/**
+	 * Returns the {@link CompiledMessageFormat} for the translation of a msgid within a context
+	 * @param context The translation context (msgctxt)
+	 * @param sourceText The source text to translate (msgid)
+	 * @return The compiled msgstr, or, compiled source text if no translation exists
+	 */
+	public CompiledMessageFormat trcFormat(String context, String sourceText) {
+		return getFormat(sourceText, getRuntimeEntry(context, sourceText));
 	}
 
 	public String trn(String sourceText, String sourcePluralText, int n) {
-		return defaultContext.trn(sourceText, sourcePluralText, n);
+		return trnc(null, sourceText, sourcePluralText, n);
 	}
 
 	public String trn(String sourceText, String sourcePluralText, int n, Object... values) {
-		final String id;
-		if(sourcePluralText != null && !sourcePluralText.isEmpty()) {
-			id = sourcePluralText + "-" + n;
-		} else {
-			id = sourceText + "-" + n;
-		}
-		return format(id, trn(sourceText, sourcePluralText, n), values);
+		return trnFormat(sourceText, sourcePluralText, n).format(values);
+	}
+
+	/**
+	 * Returns the {@link CompiledMessageFormat} for the plural translation of a msgid
+	 * @param sourceText The source text to translate (msgid)
+	 * @param sourcePluralText The plural source text to translate (msgid_plural)
+	 * @param n The quantity used to select the plural form
+	 * @return The compiled msgstr for n, or, compiled source text if no translation exists
+	 */
+	public CompiledMessageFormat trnFormat(String sourceText, String sourcePluralText, int n) {
+		return trncFormat(null, sourceText, sourcePluralText, n);
 	}
 
 	public String trnc(String context, String sourceText, String sourcePluralText, int n) {
-		final TranslationContext translationContext = contexts.get(context);
-		if(translationContext == null) {
+		final RuntimeEntry entry = getPluralEntry(table, context, sourceText, sourcePluralText);
+		if(layers != null && (entry == null || !entry.isTranslated())) {
+			return getLayeredPluralResult(context, sourceText, sourcePluralText, n);
+		}
+		return getPluralResult(sourceText, sourcePluralText, entry, pluralForms, n);
+	}
+
+	/**
+	 * Translates a pre-resolved {@link TranslationKey}
+	 * @param key The {@link TranslationKey}
+	 * @return The msgid if no translation can be found, else returns msgstr
+	 */
+	public String tr(TranslationKey key) {
+		return getResult(key.getId(), getRuntimeEntry(key));
+	}
+
+	/**
+	 * Translates a pre-resolved {@link TranslationKey} and injects values into the text
+	 * @param key The {@link TranslationKey}
+	 * @param values The values to be injected
+	 * @return The msgid if no translation can be found, else returns msgstr
+	 */
+	public String tr(TranslationKey key, Object... values) {
+		return getFormat(key.getId(), getRuntimeEntry(key)).format(values);
+	}
+
+	/**
+	 * Translates the plural form of a pre-resolved {@link TranslationKey}
+	 * @param key The {@link TranslationKey}
+	 * @param n The quantity used to select the plural form
+	 * @return The msgid if no translation can be found, else returns the msgstr for n
+	 */
+	public String trn(TranslationKey key, int n) {
+		if(layers != null) {
+			return trnc(key.getContext(), key.getId(), key.getIdPlural(), n);
+		}
+		final RuntimeEntry entry = getRuntimeEntry(key);
+		return getPluralResult(key.getId(), key.getIdPlural(), entry, pluralForms, n);
+	}
+
+	/**
+	 * Translates the plural form of a pre-resolved {@link TranslationKey} and injects values into the text
+	 * @param key The {@link TranslationKey}
+	 * @param n The quantity used to select the plural form
+	 * @param values The values to be injected
+	 * @return The msgid if no translation can be found, else returns the msgstr for n
+	 */
+	public String trn(TranslationKey key, int n, Object... values) {
+		if(layers != null) {
+			return trncFormat(key.getContext(), key.getId(), key.getIdPlural(), n).format(values);
+		}
+		final RuntimeEntry entry = getRuntimeEntry(key);
+		return getPluralFormat(key.getId(), key.getIdPlural(), entry, pluralForms, n).format(values);
+	}
+
+	/**
+	 * Returns the underlying {@link TranslationEntry} for a {@link TranslationKey}
+	 * @param key The {@link TranslationKey}
+	 * @return A new copy of the entry, null if no such entry exists
+	 */
+	public TranslationEntry getEntry(TranslationKey key) {
+		final RuntimeEntry result = getRuntimeEntry(key);
+		return result == null ? null : result.toTranslationEntry();
+	}
+
+	private RuntimeEntry getRuntimeEntry(TranslationKey key) {
+		final RuntimeEntry result = table.getByKey(key);
+		if(layers == null || (result != null && result.isTranslated())) {
+			return result;
+		}
+		if(key.getIdPlural() == null) {
+			return getRuntimeEntry(key.getContext(), key.getId());
+		}
+		for(Layer layer : layers) {
+			final RuntimeEntry entry = layer.table != null ?
+					getPluralEntry(layer.table, key.getContext(), key.getId(), key.getIdPlural()) :
+					layer.getRuntimeEntry(key.getContext(), key.getId());
+			if(entry != null && entry.isTranslated()) {
+				return entry;
+			}
+		}
+		return result;
+	}
+
+	private String getLayeredPluralResult(String context, String sourceText, String sourcePluralText, int n) {
+		for(Layer layer : layers) {
+			final RuntimeEntry entry = layer.table != null ?
+					getPluralEntry(layer.table, context, sourceText, sourcePluralText) :
+					layer.getRuntimeEntry(context, sourceText);
+			if(entry != null && entry.isTranslated()) {
+				final PluralForms layerPluralForms = layer.getPluralForms(pluralForms);
+				return getPluralResult(sourceText, sourcePluralText, entry, layerPluralForms, n);
+			}
+		}
+		return getSourceText(sourceText, sourcePluralText, n);
+	}
+
+	private CompiledMessageFormat getLayeredPluralFormat(String context, String sourceText, String sourcePluralText, int n) {
+		for(Layer layer : layers) {
+			final RuntimeEntry entry = layer.table != null ?
+					getPluralEntry(layer.table, context, sourceText, sourcePluralText) :
+					layer.getRuntimeEntry(context, sourceText);
+			if(entry != null && entry.isTranslated()) {
+				final PluralForms layerPluralForms = layer.getPluralForms(pluralForms);
+				return getPluralFormat(sourceText, sourcePluralText, entry, layerPluralForms, n);
+			}
+		}
+		return formatCache.get(getSourceText(sourceText, sourcePluralText, n));
+	}
+
+	private static RuntimeEntry getPluralEntry(TranslationTable table, String context, String sourceText,
+	                                           String sourcePluralText) {
+		final RuntimeEntry result = table.getByPluralForm(context, sourcePluralText);
+		if(result == null) {
+			return table.getBySingularForm(context, sourceText);
+		}
+		return result;
+	}
+
+	private String getPluralResult(String sourceText, String sourcePluralText, RuntimeEntry entry,
+	                               PluralForms pluralForms, int n) {
+		final String result = entry == null ? null : entry.getString(pluralForms.evaluate(n));
+		if(result == null) {
+			return getSourceText(sourceText, sourcePluralText, n);
+		}
+		return result;
+	}
+
+	private CompiledMessageFormat getPluralFormat(String sourceText, String sourcePluralText, RuntimeEntry entry,
+	                                              PluralForms pluralForms, int n) {
+		final CompiledMessageFormat result = entry == null ? null : entry.getFormat(pluralForms.evaluate(n), formatCache);
+		if(result == null) {
+			return formatCache.get(getSourceText(sourceText, sourcePluralText, n));
+		}
+		return result;
+	}
+
+	/**
+	 * Selects between the source text and plural source text using the {@link PluralForms#DEFAULT} rule
+	 * @param sourceText The source text (msgid)
+	 * @param sourcePluralText The plural source text (msgid_plural), may be null
+	 * @param n The quantity
+	 * @return The source text or plural source text
+	 */
+	static String getSourceText(String sourceText, String sourcePluralText, long n) {
+		if(sourcePluralText == null || PluralForms.DEFAULT.evaluate(n) == 0) {
 			return sourceText;
 		}
-		return translationContext.trn(sourceText, sourcePluralText, n);
+		return sourcePluralText;
 	}
 
 	public String trnc(String context, String sourceText, String sourcePluralText, int n, Object... values) {
-		final String id;
-		if(sourcePluralText != null && !sourcePluralText.isEmpty()) {
-			id = sourcePluralText + "-" + n;
-		} else {
-			id = sourceText + "-" + n;
+		return trncFormat(context, sourceText, sourcePluralText, n).format(values);
+	}
+
+	/**
+	 * Returns the {@link CompiledMessageFormat} for the plural translation of a msgid within a context
+	 * @param context The translation context (msgctxt)
+	 * @param sourceText The source text to translate (msgid)
+	 * @param sourcePluralText The plural source text to translate (msgid_plural)
+	 * @param n The quantity used to select the plural form
+	 * @return The compiled msgstr for n, or, compiled source text if no translation exists
+	 */
+	public CompiledMessageFormat trncFormat(String context, String sourceText, String sourcePluralText, int n) {
+		final RuntimeEntry entry = getPluralEntry(table, context, sourceText, sourcePluralText);
+		if(layers != null && (entry == null || !entry.isTranslated())) {
+			return getLayeredPluralFormat(context, sourceText, sourcePluralText, n);
 		}
-		return format(id, trnc(context, sourceText, sourcePluralText, n), values);
+		return getPluralFormat(sourceText, sourcePluralText, entry, pluralForms, n);
 	}
 
 	public TranslationEntry getEntry(String sourceText) {
 		return getEntry(null, sourceText);
 	}
 
+	/**
+	 * Returns the underlying {@link TranslationEntry} for a msgid
+	 * @param context Null or empty for the default context, else msgctxt
+	 * @param sourceText The msgid
+	 * @return A new copy of the entry, null if no such entry exists
+	 */
 	public TranslationEntry getEntry(String context, String sourceText) {
-		final TranslationContext translationContext;
-		if(context == null || context.isEmpty()) {
-			translationContext = defaultContext;
-		} else {
-			if(!contexts.containsKey(context)) {
-				contexts.put(context, new TranslationContext());
+		final RuntimeEntry result = getRuntimeEntry(context, sourceText);
+		return result == null ? null : result.toTranslationEntry();
+	}
+
+	private RuntimeEntry getRuntimeEntry(String context, String sourceText) {
+		final RuntimeEntry result = table.getBySingularForm(context, sourceText);
+		if(layers == null || (result != null && result.isTranslated())) {
+			return result;
+		}
+		for(Layer layer : layers) {
+			final RuntimeEntry entry = layer.table != null ? layer.table.getBySingularForm(context, sourceText) :
+					layer.getRuntimeEntry(context, sourceText);
+			if(entry != null && entry.isTranslated()) {
+				return entry;
 			}
-			translationContext = contexts.get(context);
 		}
-		return translationContext.getEntryBySingularForm(sourceText);
+		return result;
 	}
 
-	private String format(String id, String str, Object... values) {
-		if(!messageFormatsCache.containsKey(id)) {
-			messageFormatsCache.put(id, new MessageFormat(messageFormatSanitise(str), locale));
+	private CompiledMessageFormat getFormat(String sourceText, RuntimeEntry entry) {
+		final CompiledMessageFormat result = entry == null ? null : entry.getFormat(0, formatCache);
+		if(result == null) {
+			return formatCache.get(sourceText);
 		}
-		return messageFormatsCache.get(id).format(values,
-				new StringBuffer(str.length() + (values == null ? 1 : values.length)), null).toString();
+		return result;
 	}
 
 	public void add(PoFile poFile) {
+		add(poFile, null);
+	}
+
+	/**
+	 * Adds the entries of a {@link PoFile}, sharing identical strings with other catalogs via a {@link StringPool}.
+	 * The {@link PoFile}'s entries are not modified.
+	 * @param poFile The {@link PoFile} to add
+	 * @param stringPool The {@link StringPool} to deduplicate strings with, or null to keep the strings as they are
+	 */
+	public void add(PoFile poFile, StringPool stringPool) {
 		if(poFile == null) {
 			throw new NullPointerException("Null poFile reference");
 		}
-		for(TranslationEntry entry : poFile.getEntries()) {
-			final TranslationContext context;
-			if(entry.getContext() != null && !entry.getContext().isEmpty()) {
-				if(!contexts.containsKey(entry.getContext())) {
-					contexts.put(entry.getContext(), new TranslationContext());
-				}
-				context = contexts.get(entry.getContext());
-			} else {
-				context = defaultContext;
+		table = TranslationTable.with(table, poFile.getEntries(), stringPool);
+		readHeader(poFile.getEntries());
+	}
+
+	/**
+	 * Replaces the entries of msgids whose current entry is still the expected entry, e.g. after a file changed on
+	 * disk, see {@link TranslationTable#replace(TranslationTable, List, List)}
+	 * @param expectedEntries The entry each msgid must currently have, null if the msgid must not exist
+	 * @param replacementEntries The new entry for each msgid, null to remove the msgid
+	 */
+	void replace(List<RuntimeEntry> expectedEntries, List<RuntimeEntry> replacementEntries) {
+		table = TranslationTable.replace(table, expectedEntries, replacementEntries);
+		final RuntimeEntry header = table.getBySingularForm(null, "");
+		if(header != null) {
+			pluralForms = PluralForms.fromHeader(header.getString(0), pluralForms);
+		}
+	}
+
+	/**
+	 * Returns the entry for a msgid from the entries added via {@link #add(PoFile)}, ignoring other catalogs
+	 * @param context Null or empty for the default context, else msgctxt
+	 * @param id The msgid
+	 * @return Null if no entry exists
+	 */
+	RuntimeEntry getTableEntry(String context, String id) {
+		return table.getBySingularForm(context, id);
+	}
+
+	private void readHeader(List<TranslationEntry> entries) {
+		for(TranslationEntry entry : entries) {
+			if(entry.getId() == null || !entry.getId().isEmpty() || entry.getStrings().isEmpty() ||
+					(entry.getContext() != null && !entry.getContext().isEmpty())) {
+				continue;
 			}
-			context.add(entry);
+			pluralForms = PluralForms.fromHeader(entry.getStrings().get(0), pluralForms);
+		}
+	}
+
+	/**
+	 * Adds a compiled .mo catalog. Its entries are decoded on demand and take precedence over entries added
+	 * before it, the same as for {@link #add(PoFile)}.
+	 * @param moFile The {@link MoFile} to add
+	 */
+	public void add(MoFile moFile) {
+		if(moFile == null) {
+			throw new NullPointerException("Null moFile reference");
 		}
+		addLayer(new Layer(moFile), moFile.getPluralForms());
+	}
+
+	/**
+	 * Adds a compressed binary catalog. Its blocks are inflated on demand and its entries take precedence over
+	 * entries added before it, the same as for {@link #add(PoFile)}.
+	 * @param binFile The {@link CompressedBinFile} to add
+	 */
+	public void add(CompressedBinFile binFile) {
+		if(binFile == null) {
+			throw new NullPointerException("Null binFile reference");
+		}
+		addLayer(new Layer(binFile), binFile.getPluralForms());
+	}
+
+	private void addLayer(Layer layer, PluralForms layerPluralForms) {
+		final List<Layer> nextLayers = new ArrayList<Layer>();
+		nextLayers.add(layer);
+		if(table.size() > 0) {
+			nextLayers.add(new Layer(table, pluralForms));
+		}
+		if(layers != null) {
+			nextLayers.addAll(Arrays.asList(layers));
+		}
+		table = TranslationTable.EMPTY;
+		layers = nextLayers.toArray(new Layer[nextLayers.size()]);
+		pluralForms = layerPluralForms;
+	}
+
+	private String getResult(String sourceText, RuntimeEntry entry) {
+		final String result = entry == null ? null : entry.getString(0);
+		if(result == null) {
+			return sourceText;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the plural rule from the Plural-Forms header, or, the built-in rule for this map's {@link Locale}
+	 * @return The {@link PluralForms} in use
+	 */
+	public PluralForms getPluralForms() {
+		return pluralForms;
+	}
+
+	public Locale getLocale() {
+		return locale;
 	}
 
 	public static String messageFormatSanitise(String str) {
 		return str.replace("'", "''");
 	}
+
+	/**
+	 * A catalog consulted after {@link #table}, either a {@link TranslationTable}, a {@link MoFile} or a
+	 * {@link CompressedBinFile}
+	 */
+	private static class Layer {
+		final TranslationTable table;
+		/**
+		 * The plural rule of a {@link TranslationTable} layer, null if it uses the rule of its {@link TranslationMap}
+		 */
+		final PluralForms pluralForms;
+		final MoFile moFile;
+		final CompressedBinFile binFile;
+
+		Layer(TranslationTable table, PluralForms pluralForms) {
+			super();
+			this.table = table;
+			this.pluralForms = pluralForms;
+			this.moFile = null;
+			this.binFile = null;
+		}
+
+		Layer(MoFile moFile) {
+			super();
+			this.table = null;
+			this.pluralForms = null;
+			this.moFile = moFile;
+			this.binFile = null;
+		}
+
+		Layer(CompressedBinFile binFile) {
+			super();
+			this.table = null;
+			this.pluralForms = null;
+			this.moFile = null;
+			this.binFile = binFile;
+		}
+
+		/**
+		 * Returns an entry of a {@link MoFile} or {@link CompressedBinFile} layer
+		 */
+		RuntimeEntry getRuntimeEntry(String context, String sourceText) {
+			return moFile != null ? moFile.getRuntimeEntry(context, sourceText) :
+					binFile.getRuntimeEntry(context, sourceText);
+		}
+
+		/**
+		 * Returns the {@link PluralForms} of this layer
+		 * @param defaultPluralForms The rule of the owning {@link TranslationMap}
+		 */
+		PluralForms getPluralForms(PluralForms defaultPluralForms) {
+			if(table != null) {
+				return pluralForms != null ? pluralForms : defaultPluralForms;
+			}
+			return moFile != null ? moFile.getPluralForms() : binFile.getPluralForms();
+		}
+	}
 }
@@ -0,0 +1,239 @@
+/*******************************************************************************
+ * Copyright 2019 Thomas Cashman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.mini2Dx.gettext;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of all loaded translations.<br>
+ * <br>
+ * Catalogs are stored per {@link Locale} as they were added. Each requested {@link Locale} is resolved once to a
+ * single {@link TranslationMap} merging every catalog in its fallback chain, so that lookups never walk the chain.
+ * When a catalog changes only the resolved {@link Locale}s whose chain contains it are rebuilt. {@link Locale}s whose
+ * chain has no catalog are not resolved, so that arbitrary requested {@link Locale}s are not kept.
+ */
+final class TranslationRegistry {
+	static final TranslationRegistry EMPTY = new TranslationRegistry(Collections.<Locale, TranslationMap>emptyMap(),
+			Collections.<Locale, TranslationMap>emptyMap(), Collections.<Locale>emptyList());
+
+	private final Map<Locale, TranslationMap> catalogs;
+	private final Map<Locale, TranslationMap> resolved;
+	private final List<Locale> fallbackLocales;
+
+	private TranslationRegistry(Map<Locale, TranslationMap> catalogs, Map<Locale, TranslationMap> resolved,
+	                            List<Locale> fallbackLocales) {
+		super();
+		this.catalogs = catalogs;
+		this.resolved = resolved;
+		this.fallbackLocales = fallbackLocales;
+	}
+
+	/**
+	 * Returns the merged {@link TranslationMap} for a requested {@link Locale}
+	 * @param locale The requested {@link Locale}
+	 * @return Null if the {@link Locale} has not been resolved or no catalog exists in its fallback chain
+	 */
+	TranslationMap get(Locale locale) {
+		return resolved.get(locale);
+	}
+
+	/**
+	 * Returns translations for a {@link Locale} that has not been resolved without merging catalogs. If its fallback
+	 * chain contains more than one catalog only the most specific catalog is used.
+	 * @param locale The requested {@link Locale}
+	 * @return Null if no catalog exists in the {@link Locale}'s fallback chain
+	 */
+	TranslationMap getWithoutMerging(Locale locale) {
+		final List<Locale> chain = getFallbackChain(locale);
+		for(int i = 0; i < chain.size(); i++) {
+			final TranslationMap translationMap = catalogs.get(chain.get(i));
+			if(translationMap == null) {
+				continue;
+			}
+			if(translationMap.getLocale().equals(locale)) {
+				return translationMap;
+			}
+			return new TranslationMap(locale, Collections.singletonList(translationMap));
+		}
+		return null;
+	}
+
+	/**
+	 * Returns if any {@link Locale} in the fallback chain of a {@link Locale} has a catalog
+	 * @param locale The requested {@link Locale}
+	 * @return False if lookups for the {@link Locale} always return the source text
+	 */
+	boolean hasCatalogs(Locale locale) {
+		final List<Locale> chain = getFallbackChain(locale);
+		for(int i = 0; i < chain.size(); i++) {
+			if(catalogs.containsKey(chain.get(i))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns if a {@link Locale} has been resolved to a merged {@link TranslationMap}
+	 * @param locale The requested {@link Locale}
+	 * @return True if {@link #get(Locale)} can be used for the {@link Locale}
+	 */
+	boolean isResolved(Locale locale) {
+		return resolved.containsKey(locale);
+	}
+
+	/**
+	 * Returns if a catalog {@link Locale} is in the fallback chain of any resolved {@link Locale}
+	 * @param catalogLocale The {@link Locale} of the catalog
+	 * @return True if translations for the {@link Locale} are in use
+	 */
+	boolean isInUse(Locale catalogLocale) {
+		for(Locale locale : resolved.keySet()) {
+			if(getFallbackChain(locale).contains(catalogLocale)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the catalog added for exactly this {@link Locale}
+	 * @param locale The {@link Locale} of the catalog
+	 * @return Null if no catalog has been added for the {@link Locale}
+	 */
+	TranslationMap getCatalog(Locale locale) {
+		return catalogs.get(locale);
+	}
+
+	/**
+	 * Returns the fallback chain for a requested {@link Locale}, most specific first
+	 * @param locale The requested {@link Locale}
+	 * @return The {@link Locale}, its parent {@link Locale}s and the fallback {@link Locale}s with their parents
+	 */
+	List<Locale> getFallbackChain(Locale locale) {
+		final List<Locale> result = new ArrayList<Locale>(4);
+		addWithParents(result, locale);
+		for(int i = 0; i < fallbackLocales.size(); i++) {
+			addWithParents(result, fallbackLocales.get(i));
+		}
+		return result;
+	}
+
+	/**
+	 * Creates a new registry with a catalog added or replaced
+	 * @param catalog The catalog for {@link TranslationMap#getLocale()}
+	 * @return A new {@link TranslationRegistry}
+	 */
+	TranslationRegistry withCatalog(TranslationMap catalog) {
+		return withCatalogs(Collections.singletonList(catalog));
+	}
+
+	/**
+	 * Creates a new registry with several catalogs added or replaced at once
+	 * @param catalogs The catalogs, at most one per {@link TranslationMap#getLocale()}
+	 * @return A new {@link TranslationRegistry}
+	 */
+	TranslationRegistry withCatalogs(Collection<TranslationMap> catalogs) {
+		final Map<Locale, TranslationMap> nextCatalogs = new HashMap<Locale, TranslationMap>(this.catalogs);
+		for(TranslationMap catalog : catalogs) {
+			nextCatalogs.put(catalog.getLocale(), catalog);
+		}
+
+		final Map<Locale, TranslationMap> nextResolved = new HashMap<Locale, TranslationMap>(resolved);
+		for(Locale locale : resolved.keySet()) {
+			final List<Locale> chain = getFallbackChain(locale);
+			for(TranslationMap catalog : catalogs) {
+				if(chain.contains(catalog.getLocale())) {
+					nextResolved.put(locale, resolve(locale, nextCatalogs));
+					break;
+				}
+			}
+		}
+		for(TranslationMap catalog : catalogs) {
+			if(!nextResolved.containsKey(catalog.getLocale())) {
+				nextResolved.put(catalog.getLocale(), resolve(catalog.getLocale(), nextCatalogs));
+			}
+		}
+		return new TranslationRegistry(Collections.unmodifiableMap(nextCatalogs),
+				Collections.unmodifiableMap(nextResolved), fallbackLocales);
+	}
+
+	/**
+	 * Creates a new registry with a requested {@link Locale} resolved
+	 * @param locale The requested {@link Locale}
+	 * @return A new {@link TranslationRegistry}
+	 */
+	TranslationRegistry withResolved(Locale locale) {
+		final Map<Locale, TranslationMap> nextResolved = new HashMap<Locale, TranslationMap>(resolved);
+		nextResolved.put(locale, resolve(locale, catalogs));
+		return new TranslationRegistry(catalogs, Collections.unmodifiableMap(nextResolved), fallbackLocales);
+	}
+
+	/**
+	 * Creates a new registry with different fallback {@link Locale}s. All resolved {@link Locale}s are rebuilt.
+	 * @param fallbackLocales The {@link Locale}s to fall back to, in order
+	 * @return A new {@link TranslationRegistry}
+	 */
+	TranslationRegistry withFallbackLocales(List<Locale> fallbackLocales) {
+		final TranslationRegistry result = new TranslationRegistry(catalogs, resolved,
+				Collections.unmodifiableList(new ArrayList<Locale>(fallbackLocales)));
+		final Map<Locale, TranslationMap> nextResolved = new HashMap<Locale, TranslationMap>();
+		for(Locale locale : resolved.keySet()) {
+			nextResolved.put(locale, result.resolve(locale, catalogs));
+		}
+		return new TranslationRegistry(catalogs, Collections.unmodifiableMap(nextResolved), result.fallbackLocales);
+	}
+
+	private TranslationMap resolve(Locale locale, Map<Locale, TranslationMap> catalogs) {
+		final List<Locale> chain = getFallbackChain(locale);
+		final List<TranslationMap> translationMaps = new ArrayList<TranslationMap>(chain.size());
+		for(int i = 0; i < chain.size(); i++) {
+			final TranslationMap translationMap = catalogs.get(chain.get(i));
+			if(translationMap != null) {
+				translationMaps.add(translationMap);
+			}
+		}
+		if(translationMaps.isEmpty()) {
+			return null;
+		}
+		if(translationMaps.size() == 1 && translationMaps.get(0).getLocale().equals(locale)) {
+			return translationMaps.get(0);
+		}
+		return new TranslationMap(locale, translationMaps);
+	}
+
+	private static void addWithParents(List<Locale> result, Locale locale) {
+		addIfAbsent(result, locale);
+		if(!locale.getVariant().isEmpty() || !locale.getScript().isEmpty()) {
+			addIfAbsent(result, new Locale(locale.getLanguage(), locale.getCountry()));
+		}
+		if(!locale.getCountry().isEmpty()) {
+			addIfAbsent(result, new Locale(locale.getLanguage()));
+		}
+	}
+
+	private static void addIfAbsent(List<Locale> result, Locale locale) {
+		if(!result.contains(locale)) {
+			result.add(locale);
+		}
+	}
+}
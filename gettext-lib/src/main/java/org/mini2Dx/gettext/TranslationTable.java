@@ -0,0 +1,293 @@
+/*******************************************************************************
+ * Copyright 2019 Thomas Cashman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.mini2Dx.gettext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable open-addressing table of {@link RuntimeEntry} instances keyed by (msgctxt, msgid) and
+ * (msgctxt, msgid_plural). All contexts share a single table so each lookup is a single probe sequence.
+ */
+class TranslationTable {
+	static final TranslationTable EMPTY = new TranslationTable(0);
+
+	private static final byte SINGULAR = 1;
+	private static final byte PLURAL = 2;
+	private static final Object MISSING = new Object();
+
+	private final int mask;
+	private final int[] hashes;
+	private final byte[] kinds;
+	private final String[] contexts;
+	private final String[] ids;
+	private final RuntimeEntry[] entries;
+	private int size;
+	/**
+	 * Entries resolved by {@link TranslationKey} slot, {@link #MISSING} if this table has no entry for the slot
+	 */
+	private volatile Object[] entriesBySlot = new Object[0];
+
+	private TranslationTable(int totalKeys) {
+		super();
+		int capacity = 2;
+		while(capacity < totalKeys * 2) {
+			capacity <<= 1;
+		}
+		mask = capacity - 1;
+		hashes = new int[capacity];
+		kinds = new byte[capacity];
+		contexts = new String[capacity];
+		ids = new String[capacity];
+		entries = new RuntimeEntry[capacity];
+	}
+
+	/**
+	 * Creates a new table containing the keys of an existing table and a list of entries.
+	 * Entries later in the list replace existing entries with the same key.
+	 * @param table The existing table
+	 * @param additionalEntries The entries to add
+	 * @return A new {@link TranslationTable}
+	 */
+	static TranslationTable with(TranslationTable table, List<TranslationEntry> additionalEntries) {
+		return with(table, additionalEntries, null);
+	}
+
+	/**
+	 * Creates a new table containing the keys of an existing table and a list of entries.
+	 * Entries later in the list replace existing entries with the same key.
+	 * @param table The existing table
+	 * @param additionalEntries The entries to add
+	 * @param stringPool The {@link StringPool} to share the added entries' strings with, or null
+	 * @return A new {@link TranslationTable}
+	 */
+	static TranslationTable with(TranslationTable table, List<TranslationEntry> additionalEntries,
+	                             StringPool stringPool) {
+		final TranslationTable result = new TranslationTable(table.size + (additionalEntries.size() * 2));
+		for(int i = 0; i < table.hashes.length; i++) {
+			if(table.kinds[i] == 0) {
+				continue;
+			}
+			result.put(table.hashes[i], table.kinds[i], table.contexts[i], table.ids[i], table.entries[i]);
+		}
+		result.putAll(additionalEntries, stringPool);
+		return result;
+	}
+
+	/**
+	 * Creates a new table with the entries of some msgids replaced, but only where a msgid's current entry is still
+	 * the expected entry, e.g. the entry a reloaded file previously provided. All keys of a replaced entry are
+	 * removed, including its msgid_plural unless another entry has since taken it over.
+	 * @param table The existing table
+	 * @param expectedEntries The entry each msgid must currently have, null if the msgid must not exist
+	 * @param replacementEntries The new entry for each msgid, null to remove the msgid
+	 * @return A new {@link TranslationTable}
+	 */
+	static TranslationTable replace(TranslationTable table, List<RuntimeEntry> expectedEntries,
+	                                List<RuntimeEntry> replacementEntries) {
+		final Map<RuntimeEntry, Boolean> replaced = new IdentityHashMap<RuntimeEntry, Boolean>();
+		final List<RuntimeEntry> added = new ArrayList<RuntimeEntry>();
+		for(int i = 0; i < expectedEntries.size(); i++) {
+			final RuntimeEntry expected = expectedEntries.get(i);
+			final RuntimeEntry replacement = replacementEntries.get(i);
+			final RuntimeEntry key = expected != null ? expected : replacement;
+			if(key == null || table.getBySingularForm(key.getContext(), key.getId()) != expected) {
+				continue;
+			}
+			if(expected != null) {
+				replaced.put(expected, Boolean.TRUE);
+			}
+			if(replacement != null) {
+				added.add(replacement);
+			}
+		}
+
+		final TranslationTable result = new TranslationTable(table.size + (added.size() * 2));
+		for(int i = 0; i < table.hashes.length; i++) {
+			if(table.kinds[i] == 0 || replaced.containsKey(table.entries[i])) {
+				continue;
+			}
+			result.put(table.hashes[i], table.kinds[i], table.contexts[i], table.ids[i], table.entries[i]);
+		}
+		for(int i = 0; i < added.size(); i++) {
+			result.put(added.get(i));
+		}
+		return result;
+	}
+
+	/**
+	 * Creates a new table containing the keys of a fallback table overlaid with the keys of a more specific table.
+	 * Untranslated entries in the overlay do not replace translated entries in the fallback table.
+	 * @param fallback The fallback table
+	 * @param overlay The more specific table
+	 * @return A new {@link TranslationTable}
+	 */
+	static TranslationTable merge(TranslationTable fallback, TranslationTable overlay) {
+		final TranslationTable result = new TranslationTable(fallback.size + overlay.size);
+		for(int i = 0; i < fallback.hashes.length; i++) {
+			if(fallback.kinds[i] == 0) {
+				continue;
+			}
+			result.put(fallback.hashes[i], fallback.kinds[i], fallback.contexts[i], fallback.ids[i], fallback.entries[i]);
+		}
+		for(int i = 0; i < overlay.hashes.length; i++) {
+			if(overlay.kinds[i] == 0) {
+				continue;
+			}
+			if(!overlay.entries[i].isTranslated() &&
+					result.get(overlay.contexts[i], overlay.ids[i], overlay.kinds[i]) != null) {
+				continue;
+			}
+			result.put(overlay.hashes[i], overlay.kinds[i], overlay.contexts[i], overlay.ids[i], overlay.entries[i]);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the entry for a msgid
+	 * @param context Null or empty for the default context, else msgctxt
+	 * @param id The msgid
+	 * @return Null if no entry exists
+	 */
+	RuntimeEntry getBySingularForm(String context, String id) {
+		return get(normaliseContext(context), id, SINGULAR);
+	}
+
+	/**
+	 * Returns the entry for a msgid_plural
+	 * @param context Null or empty for the default context, else msgctxt
+	 * @param idPlural The msgid_plural
+	 * @return Null if no entry exists
+	 */
+	RuntimeEntry getByPluralForm(String context, String idPlural) {
+		return get(normaliseContext(context), idPlural, PLURAL);
+	}
+
+	/**
+	 * Returns the entry for a {@link TranslationKey}, resolving the key's slot on first use. Plural keys are resolved
+	 * by msgid_plural first and then by msgid, the same as a lookup by source text
+	 * @param key The {@link TranslationKey}
+	 * @return Null if no entry exists
+	 */
+	RuntimeEntry getByKey(TranslationKey key) {
+		final int slot = key.getSlot();
+		Object[] slots = entriesBySlot;
+		final Object cached = slot < slots.length ? slots[slot] : null;
+		if(cached != null) {
+			return cached == MISSING ? null : (RuntimeEntry) cached;
+		}
+
+		RuntimeEntry result = key.getIdPlural() == null ? null : getByPluralForm(key.getContext(), key.getIdPlural());
+		if(result == null) {
+			result = getBySingularForm(key.getContext(), key.getId());
+		}
+		if(slot >= slots.length) {
+			slots = Arrays.copyOf(slots, Math.max(slot + 1, TranslationKey.getTotalSlots()));
+		}
+		//Entries are immutable so a racing thread at worst resolves the same slot again
+		slots[slot] = result == null ? MISSING : result;
+		entriesBySlot = slots;
+		return result;
+	}
+
+	/**
+	 * Returns the entries stored under a msgid
+	 * @return A new list of entries
+	 */
+	List<RuntimeEntry> toEntryList() {
+		final List<RuntimeEntry> result = new ArrayList<RuntimeEntry>(size);
+		for(int i = 0; i < hashes.length; i++) {
+			if(kinds[i] == SINGULAR) {
+				result.add(entries[i]);
+			}
+		}
+		return result;
+	}
+
+	int size() {
+		return size;
+	}
+
+	private RuntimeEntry get(String context, String id, byte kind) {
+		if(id == null) {
+			return null;
+		}
+		final int hash = hash(context, id, kind);
+		int index = hash & mask;
+		while(kinds[index] != 0) {
+			if(hashes[index] == hash && kinds[index] == kind && id.equals(ids[index]) &&
+					(context == null ? contexts[index] == null : context.equals(contexts[index]))) {
+				return entries[index];
+			}
+			index = (index + 1) & mask;
+		}
+		return null;
+	}
+
+	private void putAll(List<TranslationEntry> additionalEntries, StringPool stringPool) {
+		for(int i = 0; i < additionalEntries.size(); i++) {
+			put(RuntimeEntry.of(additionalEntries.get(i), stringPool));
+		}
+	}
+
+	private void put(RuntimeEntry entry) {
+		final String context = normaliseContext(entry.getContext());
+		if(entry.getId() != null) {
+			put(hash(context, entry.getId(), SINGULAR), SINGULAR, context, entry.getId(), entry);
+		}
+		if(entry.getIdPlural() != null) {
+			put(hash(context, entry.getIdPlural(), PLURAL), PLURAL, context, entry.getIdPlural(), entry);
+		}
+	}
+
+	private void put(int hash, byte kind, String context, String id, RuntimeEntry entry) {
+		int index = hash & mask;
+		while(kinds[index] != 0) {
+			if(hashes[index] == hash && kinds[index] == kind && id.equals(ids[index]) &&
+					(context == null ? contexts[index] == null : context.equals(contexts[index]))) {
+				entries[index] = entry;
+				return;
+			}
+			index = (index + 1) & mask;
+		}
+		hashes[index] = hash;
+		kinds[index] = kind;
+		contexts[index] = context;
+		ids[index] = id;
+		entries[index] = entry;
+		size++;
+	}
+
+	private static String normaliseContext(String context) {
+		if(context == null || context.isEmpty()) {
+			return null;
+		}
+		return context;
+	}
+
+	private static int hash(String context, String id, byte kind) {
+		int hash = id.hashCode() * 31 + (context == null ? 0 : context.hashCode());
+		hash = hash * 31 + kind;
+		//Spread the bits so that similar keys do not cluster
+		hash ^= hash >>> 16;
+		hash *= 0x85ebca6b;
+		hash ^= hash >>> 13;
+		return hash;
+	}
+}
@@ -0,0 +1,419 @@
+/*******************************************************************************
+ * Copyright 2019 Thomas Cashman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.mini2Dx.gettext;
+
+import java.util.Locale;
+
+/**
+ * Translates text for a single {@link Locale}.<br>
+ * <br>
+ * A {@link Translator} is bound to the translations that were loaded when it was created via
+ * {@link GetText#getTranslator(Locale)} and never looks up the {@link Locale} again. This makes it suitable for
+ * servers where each request is rendered in a different language.
+ */
+public final class Translator {
+	private final Locale locale;
+	private final TranslationMap translationMap;
+
+	/**
+	 * Constructor
+	 * @param locale The {@link Locale} being translated to
+	 * @param translationMap The translations for the {@link Locale}, or null if there are none
+	 */
+	public Translator(Locale locale, TranslationMap translationMap) {
+		super();
+		this.locale = locale;
+		this.translationMap = translationMap;
+	}
+
+	/**
+	 * Same as {@link GetText#tr(String)} for this {@link Translator}'s {@link Locale}
+	 */
+	public String tr(String sourceText) {
+		return tr(translationMap, sourceText);
+	}
+
+	/**
+	 * Same as {@link GetText#tr(String, Object...)} for this {@link Translator}'s {@link Locale}
+	 */
+	public String tr(String sourceText, Object... values) {
+		return tr(translationMap, sourceText, values);
+	}
+
+	/**
+	 * Same as {@link GetText#trc(String, String)} for this {@link Translator}'s {@link Locale}
+	 */
+	public String trc(String context, String sourceText) {
+		return trc(translationMap, context, sourceText);
+	}
+
+	/**
+	 * Same as {@link GetText#trc(String, String, Object...)} for this {@link Translator}'s {@link Locale}
+	 */
+	public String trc(String context, String sourceText, Object... values) {
+		return trc(translationMap, context, sourceText, values);
+	}
+
+	/**
+	 * Same as {@link GetText#trn(String, String, int)} for this {@link Translator}'s {@link Locale}
+	 */
+	public String trn(String sourceText, String sourcePluralText, int n) {
+		return trn(translationMap, sourceText, sourcePluralText, n);
+	}
+
+	/**
+	 * Same as {@link GetText#trn(String, String, int, Object...)} for this {@link Translator}'s {@link Locale}
+	 */
+	public String trn(String sourceText, String sourcePluralText, int n, Object... values) {
+		return trn(translationMap, sourceText, sourcePluralText, n, values);
+	}
+
+	/**
+	 * Same as {@link GetText#trnc(String, String, String, int)} for this {@link Translator}'s {@link Locale}
+	 */
+	public String trnc(String context, String sourceText, String sourcePluralText, int n) {
+		return trnc(translationMap, context, sourceText, sourcePluralText, n);
+	}
+
+	/**
+	 * Same as {@link GetText#trnc(String, String, String, int, Object...)} for this {@link Translator}'s {@link Locale}
+	 */
+	public String trnc(String context, String sourceText, String sourcePluralText, int n, Object... values) {
+		return trnc(translationMap, context, sourceText, sourcePluralText, n, values);
+	}
+
+	/**
+	 * Same as {@link GetText#tr(TranslationKey)} for this {@link Translator}'s {@link Locale}
+	 */
+	public String tr(TranslationKey key) {
+		return tr(translationMap, key);
+	}
+
+	/**
+	 * Same as {@link GetText#tr(TranslationKey, Object...)} for this {@link Translator}'s {@link Locale}
+	 */
+	public String tr(TranslationKey key, Object... values) {
+		return tr(translationMap, key, values);
+	}
+
+	/**
+	 * Same as {@link GetText#trn(TranslationKey, int)} for this {@link Translator}'s {@link Locale}
+	 */
+	public String trn(TranslationKey key, int n) {
+		return trn(translationMap, key, n);
+	}
+
+	/**
+	 * Same as {@link GetText#trn(TranslationKey, int, Object...)} for this {@link Translator}'s {@link Locale}
+	 */
+	public String trn(TranslationKey key, int n, Object... values) {
+		return trn(translationMap, key, n, values);
+	}
+
+	/**
+	 * Same as {@link GetText#trTo(StringBuilder, String)} for this {@link Translator}'s {@link Locale}
+	 */
+	public StringBuilder trTo(StringBuilder result, String sourceText) {
+		return result.append(tr(translationMap, sourceText));
+	}
+
+	/**
+	 * Same as {@link GetText#trTo(StringBuilder, String, Object...)} for this {@link Translator}'s {@link Locale}
+	 */
+	public StringBuilder trTo(StringBuilder result, String sourceText, Object... values) {
+		return trFormat(translationMap, sourceText).formatTo(result, values);
+	}
+
+	/**
+	 * Same as {@link GetText#trTo(StringBuilder, String, int)} for this {@link Translator}'s {@link Locale}
+	 */
+	public StringBuilder trTo(StringBuilder result, String sourceText, int value) {
+		return trFormat(translationMap, sourceText).formatTo(result, value);
+	}
+
+	/**
+	 * Same as {@link GetText#trTo(StringBuilder, String, long)} for this {@link Translator}'s {@link Locale}
+	 */
+	public StringBuilder trTo(StringBuilder result, String sourceText, long value) {
+		return trFormat(translationMap, sourceText).formatTo(result, value);
+	}
+
+	/**
+	 * Same as {@link GetText#trTo(StringBuilder, String, float)} for this {@link Translator}'s {@link Locale}
+	 */
+	public StringBuilder trTo(StringBuilder result, String sourceText, float value) {
+		return trFormat(translationMap, sourceText).formatTo(result, value);
+	}
+
+	/**
+	 * Same as {@link GetText#trcTo(StringBuilder, String, String)} for this {@link Translator}'s {@link Locale}
+	 */
+	public StringBuilder trcTo(StringBuilder result, String context, String sourceText) {
+		return result.append(trc(translationMap, context, sourceText));
+	}
+
+	/**
+	 * Same as {@link GetText#trcTo(StringBuilder, String, String, Object...)} for this {@link Translator}'s {@link Locale}
+	 */
+	public StringBuilder trcTo(StringBuilder result, String context, String sourceText, Object... values) {
+		return trcFormat(translationMap, context, sourceText).formatTo(result, values);
+	}
+
+	/**
+	 * Same as {@link GetText#trcTo(StringBuilder, String, String, int)} for this {@link Translator}'s {@link Locale}
+	 */
+	public StringBuilder trcTo(StringBuilder result, String context, String sourceText, int value) {
+		return trcFormat(translationMap, context, sourceText).formatTo(result, value);
+	}
+
+	/**
+	 * Same as {@link GetText#trcTo(StringBuilder, String, String, long)} for this {@link Translator}'s {@link Locale}
+	 */
+	public StringBuilder trcTo(StringBuilder result, String context, String sourceText, long value) {
+		return trcFormat(translationMap, context, sourceText).formatTo(result, value);
+	}
+
+	/**
+	 * Same as {@link GetText#trcTo(StringBuilder, String, String, float)} for this {@link Translator}'s {@link Locale}
+	 */
+	public StringBuilder trcTo(StringBuilder result, String context, String sourceText, float value) {
+		return trcFormat(translationMap, context, sourceText).formatTo(result, value);
+	}
+
+	/**
+	 * Same as {@link GetText#trnTo(StringBuilder, String, String, int)} for this {@link Translator}'s {@link Locale}
+	 */
+	public StringBuilder trnTo(StringBuilder result, String sourceText, String sourcePluralText, int n) {
+		return result.append(trn(translationMap, sourceText, sourcePluralText, n));
+	}
+
+	/**
+	 * Same as {@link GetText#trnTo(StringBuilder, String, String, int, Object...)} for this {@link Translator}'s {@link Locale}
+	 */
+	public StringBuilder trnTo(StringBuilder result, String sourceText, String sourcePluralText, int n, Object... values) {
+		return trnFormat(translationMap, sourceText, sourcePluralText, n).formatTo(result, values);
+	}
+
+	/**
+	 * Same as {@link GetText#trnTo(StringBuilder, String, String, int, int)} for this {@link Translator}'s {@link Locale}
+	 */
+	public StringBuilder trnTo(StringBuilder result, String sourceText, String sourcePluralText, int n, int value) {
+		return trnFormat(translationMap, sourceText, sourcePluralText, n).formatTo(result, value);
+	}
+
+	/**
+	 * Same as {@link GetText#trnTo(StringBuilder, String, String, int, long)} for this {@link Translator}'s {@link Locale}
+	 */
+	public StringBuilder trnTo(StringBuilder result, String sourceText, String sourcePluralText, int n, long value) {
+		return trnFormat(translationMap, sourceText, sourcePluralText, n).formatTo(result, value);
+	}
+
+	/**
+	 * Same as {@link GetText#trnTo(StringBuilder, String, String, int, float)} for this {@link Translator}'s {@link Locale}
+	 */
+	public StringBuilder trnTo(StringBuilder result, String sourceText, String sourcePluralText, int n, float value) {
+		return trnFormat(translationMap, sourceText, sourcePluralText, n).formatTo(result, value);
+	}
+
+	/**
+	 * Same as {@link GetText#trncTo(StringBuilder, String, String, String, int)} for this {@link Translator}'s {@link Locale}
+	 */
+	public StringBuilder trncTo(StringBuilder result, String context, String sourceText, String sourcePluralText, int n) {
+		return result.append(trnc(translationMap, context, sourceText, sourcePluralText, n));
+	}
+
+	/**
+	 * Same as {@link GetText#trncTo(StringBuilder, String, String, String, int, Object...)} for this {@link Translator}'s {@link Locale}
+	 */
+	public StringBuilder trncTo(StringBuilder result, String context, String sourceText, String sourcePluralText, int n, Object... values) {
+		return trncFormat(translationMap, context, sourceText, sourcePluralText, n).formatTo(result, values);
+	}
+
+	/**
+	 * Same as {@link GetText#trncTo(StringBuilder, String, String, String, int, int)} for this {@link Translator}'s {@link Locale}
+	 */
+	public StringBuilder trncTo(StringBuilder result, String context, String sourceText, String sourcePluralText, int n, int value) {
+		return trncFormat(translationMap, context, sourceText, sourcePluralText, n).formatTo(result, value);
+	}
+
+	/**
+	 * Same as {@link GetText#trncTo(StringBuilder, String, String, String, int, long)} for this {@link Translator}'s {@link Locale}
+	 */
+	public StringBuilder trncTo(StringBuilder result, String context, String sourceText, String sourcePluralText, int n, long value) {
+		return trncFormat(translationMap, context, sourceText, sourcePluralText, n).formatTo(result, value);
+	}
+
+	/**
+	 * Same as {@link GetText#trncTo(StringBuilder, String, String, String, int, float)} for this {@link Translator}'s {@link Locale}
+	 */
+	public StringBuilder trncTo(StringBuilder result, String context, String sourceText, String sourcePluralText, int n, float value) {
+		return trncFormat(translationMap, context, sourceText, sourcePluralText, n).formatTo(result, value);
+	}
+
+	/**
+	 * Returns the underlying {@link TranslationEntry} for a specific msgid
+	 * @param context Null if default context should be used, or, msgctxt
+	 * @param sourceText The source text to translate (msgid)
+	 * @return Null if no such entry exists
+	 */
+	public TranslationEntry getTranslationEntry(String context, String sourceText) {
+		return getTranslationEntry(translationMap, context, sourceText);
+	}
+
+	/**
+	 * Returns the {@link Locale} being translated to
+	 * @return The {@link Locale}
+	 */
+	public Locale getLocale() {
+		return locale;
+	}
+
+	/**
+	 * Returns the translations this {@link Translator} is bound to
+	 * @return Null if no translations were loaded for the {@link Locale}
+	 */
+	public TranslationMap getTranslationMap() {
+		return translationMap;
+	}
+
+	static String tr(TranslationMap translationMap, String sourceText) {
+		if(translationMap == null) {
+			return sourceText;
+		}
+		return translationMap.tr(sourceText);
+	}
+
+	static String tr(TranslationMap translationMap, String sourceText, Object... values) {
+		if(translationMap == null) {
+			return sourceFormat(sourceText).format(values);
+		}
+		return translationMap.tr(sourceText, values);
+	}
+
+	static String trc(TranslationMap translationMap, String context, String sourceText) {
+		if(translationMap == null) {
+			return sourceText;
+		}
+		return translationMap.trc(context, sourceText);
+	}
+
+	static String trc(TranslationMap translationMap, String context, String sourceText, Object... values) {
+		if(translationMap == null) {
+			return sourceFormat(sourceText).format(values);
+		}
+		return translationMap.trc(context, sourceText, values);
+	}
+
+	static String trn(TranslationMap translationMap, String sourceText, String sourcePluralText, int n) {
+		if(translationMap == null) {
+			return TranslationMap.getSourceText(sourceText, sourcePluralText, n);
+		}
+		return translationMap.trn(sourceText, sourcePluralText, n);
+	}
+
+	static String trn(TranslationMap translationMap, String sourceText, String sourcePluralText, int n, Object... values) {
+		if(translationMap == null) {
+			return sourceFormat(TranslationMap.getSourceText(sourceText, sourcePluralText, n)).format(values);
+		}
+		return translationMap.trn(sourceText, sourcePluralText, n, values);
+	}
+
+	static String trnc(TranslationMap translationMap, String context, String sourceText, String sourcePluralText, int n) {
+		if(translationMap == null) {
+			return TranslationMap.getSourceText(sourceText, sourcePluralText, n);
+		}
+		return translationMap.trnc(context, sourceText, sourcePluralText, n);
+	}
+
+	static String trnc(TranslationMap translationMap, String context, String sourceText, String sourcePluralText, int n, Object... values) {
+		if(translationMap == null) {
+			return sourceFormat(TranslationMap.getSourceText(sourceText, sourcePluralText, n)).format(values);
+		}
+		return translationMap.trnc(context, sourceText, sourcePluralText, n, values);
+	}
+
+	static String tr(TranslationMap translationMap, TranslationKey key) {
+		if(translationMap == null) {
+			return key.getId();
+		}
+		return translationMap.tr(key);
+	}
+
+	static String tr(TranslationMap translationMap, TranslationKey key, Object... values) {
+		if(translationMap == null) {
+			return sourceFormat(key.getId()).format(values);
+		}
+		return translationMap.tr(key, values);
+	}
+
+	static String trn(TranslationMap translationMap, TranslationKey key, int n) {
+		if(translationMap == null) {
+			return TranslationMap.getSourceText(key.getId(), key.getIdPlural(), n);
+		}
+		return translationMap.trn(key, n);
+	}
+
+	static String trn(TranslationMap translationMap, TranslationKey key, int n, Object... values) {
+		if(translationMap == null) {
+			return sourceFormat(TranslationMap.getSourceText(key.getId(), key.getIdPlural(), n)).format(values);
+		}
+		return translationMap.trn(key, n, values);
+	}
+
+	static CompiledMessageFormat trFormat(TranslationMap translationMap, String sourceText) {
+		if(translationMap == null) {
+			return sourceFormat(sourceText);
+		}
+		return translationMap.trFormat(sourceText);
+	}
+
+	static CompiledMessageFormat trcFormat(TranslationMap translationMap, String context, String sourceText) {
+		if(translationMap == null) {
+			return sourceFormat(sourceText);
+		}
+		return translationMap.trcFormat(context, sourceText);
+	}
+
+	static CompiledMessageFormat trnFormat(TranslationMap translationMap, String sourceText, String sourcePluralText, int n) {
+		if(translationMap == null) {
+			return sourceFormat(TranslationMap.getSourceText(sourceText, sourcePluralText, n));
+		}
+		return translationMap.trnFormat(sourceText, sourcePluralText, n);
+	}
+
+	static CompiledMessageFormat trncFormat(TranslationMap translationMap, String context, String sourceText, String sourcePluralText, int n) {
+		if(translationMap == null) {
+			return sourceFormat(TranslationMap.getSourceText(sourceText, sourcePluralText, n));
+		}
+		return translationMap.trncFormat(context, sourceText, sourcePluralText, n);
+	}
+
+	static TranslationEntry getTranslationEntry(TranslationMap translationMap, String context, String sourceText) {
+		if(translationMap == null) {
+			return null;
+		}
+		return translationMap.getEntry(context, sourceText);
+	}
+
+	/**
+	 * Returns the format for untranslated text when no translations are loaded. As with
+	 * {@link java.text.MessageFormat#format(String, Object...)}, values are formatted using the default
+	 * {@link Locale.Category#FORMAT} {@link Locale}.
+	 */
+	private static CompiledMessageFormat sourceFormat(String sourceText) {
+		return FormatCache.forLocale(Locale.getDefault(Locale.Category.FORMAT)).get(sourceText);
+	}
+}
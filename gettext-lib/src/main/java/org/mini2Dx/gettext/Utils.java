@@ -15,10 +15,28 @@
  ******************************************************************************/
 package org.mini2Dx.gettext;
 
-import java.util.regex.Matcher;
-
 public class Utils {
+	/**
+	 * Escapes double quotes that are not already preceded by a backslash
+	 * @param str The string to escape
+	 * @return The original string if it contains no unescaped double quotes
+	 */
 	public static String escapeDoubleQuotes(String str) {
-		return str.replaceAll("(?<!\\\\)\"",Matcher.quoteReplacement("\\\""));
+		StringBuilder result = null;
+		int start = 0;
+		for(int i = 0; i < str.length(); i++) {
+			if(str.charAt(i) != '"' || (i > 0 && str.charAt(i - 1) == '\\')) {
+				continue;
+			}
+			if(result == null) {
+				result = new StringBuilder(str.length() + 8);
+			}
+			result.append(str, start, i).append('\\');
+			start = i;
+		}
+		if(result == null) {
+			return str;
+		}
+		return result.append(str, start, str.length()).toString();
 	}
 }
@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright 2019 Thomas Cashman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.mini2Dx.gettext;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+
+public class CatalogWatcherTest {
+	private static final long TIMEOUT_MILLIS = 30000L;
+
+	@Test
+	public void testReload() throws Exception {
+		final Locale icelandic = new Locale("is");
+		final File directory = Files.createTempDirectory("gettext").toFile();
+		final File file = new File(directory, "is.po");
+		write(file, "msgid \"Hello\"\nmsgstr \"Halló\"\n\n" +
+				"msgid \"Yes\"\nmsgstr \"Já\"\n\n" +
+				"msgid \"No\"\nmsgstr \"Nei\"\n");
+
+		final CatalogWatcher catalogWatcher = new CatalogWatcher();
+		try {
+			catalogWatcher.watch(icelandic, file);
+			Assert.assertEquals("Halló", GetText.tr(icelandic, "Hello"));
+			Assert.assertEquals("Já", GetText.tr(icelandic, "Yes"));
+			final CompiledMessageFormat format = GetText.getTranslator(icelandic).getTranslationMap().trFormat("Yes");
+
+			write(file, "msgid \"Hello\"\nmsgstr \"Hæ\"\n\n" +
+					"msgid \"Yes\"\nmsgstr \"Já\"\n\n" +
+					"msgid \"Goodbye\"\nmsgstr \"Bless\"\n");
+			final long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+			while(catalogWatcher.poll() == 0) {
+				Assert.assertTrue("File change was not detected", System.currentTimeMillis() < deadline);
+				Thread.sleep(10L);
+			}
+
+			Assert.assertEquals("Hæ", GetText.tr(icelandic, "Hello"));
+			Assert.assertEquals("Bless", GetText.tr(icelandic, "Goodbye"));
+			Assert.assertEquals("No", GetText.tr(icelandic, "No"));
+			Assert.assertSame(format, GetText.getTranslator(icelandic).getTranslationMap().trFormat("Yes"));
+		} finally {
+			catalogWatcher.close();
+		}
+	}
+
+	@Test
+	public void testReloadPluralChange() throws Exception {
+		final Locale luxembourgish = new Locale("lb");
+		final String header = "msgid \"\"\nmsgstr \"Plural-Forms: nplurals=2; plural=(n != 1);\\n\"\n\n";
+		final File directory = Files.createTempDirectory("gettext").toFile();
+		final File file = new File(directory, "lb.po");
+		write(file, header + "msgid \"apple\"\nmsgid_plural \"apples\"\nmsgstr[0] \"Apel\"\nmsgstr[1] \"Aepfel\"\n");
+
+		final CatalogWatcher catalogWatcher = new CatalogWatcher();
+		try {
+			catalogWatcher.watch(luxembourgish, file);
+			Assert.assertEquals("Aepfel", GetText.trn(luxembourgish, "apple", "apples", 2));
+
+			write(file, header + "msgid \"apple\"\nmsgid_plural \"apple(s)\"\nmsgstr[0] \"Apel\"\nmsgstr[1] \"Aepfel2\"\n");
+			final long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+			while(catalogWatcher.poll() == 0) {
+				Assert.assertTrue("File change was not detected", System.currentTimeMillis() < deadline);
+				Thread.sleep(10L);
+			}
+
+			Assert.assertEquals("Aepfel2", GetText.trn(luxembourgish, "apple", "apple(s)", 2));
+			Assert.assertEquals("Aepfel2", GetText.trn(luxembourgish, "apple", "apples", 2));
+		} finally {
+			catalogWatcher.close();
+		}
+	}
+
+	@Test
+	public void testReloadWithMultipleFiles() throws Exception {
+		final Locale sami = new Locale("se");
+		final File directory = Files.createTempDirectory("gettext").toFile();
+		final File first = new File(directory, "first.po");
+		final File second = new File(directory, "second.po");
+		write(first, "msgid \"Hello\"\nmsgstr \"First hello\"\n\n" +
+				"msgid \"Yes\"\nmsgstr \"First yes\"\n\n" +
+				"msgid \"Only\"\nmsgstr \"First only\"\n");
+		write(second, "msgid \"Hello\"\nmsgstr \"Second hello\"\n\n" +
+				"msgid \"Yes\"\nmsgstr \"Second yes\"\n");
+
+		final CatalogWatcher catalogWatcher = new CatalogWatcher();
+		try {
+			catalogWatcher.watch(sami, first);
+			catalogWatcher.watch(sami, second);
+			Assert.assertEquals("Second hello", GetText.tr(sami, "Hello"));
+			Assert.assertEquals("First only", GetText.tr(sami, "Only"));
+
+			//Changes to the first file do not override the second file
+			write(first, "msgid \"Hello\"\nmsgstr \"First hello 2\"\n\n" +
+					"msgid \"Only\"\nmsgstr \"First only 2\"\n\n" +
+					"msgid \"New\"\nmsgstr \"First new\"\n");
+			awaitReload(catalogWatcher);
+			Assert.assertEquals("Second hello", GetText.tr(sami, "Hello"));
+			Assert.assertEquals("Second yes", GetText.tr(sami, "Yes"));
+			Assert.assertEquals("First only 2", GetText.tr(sami, "Only"));
+			Assert.assertEquals("First new", GetText.tr(sami, "New"));
+
+			//Entries removed from the second file fall back to the first file
+			write(second, "msgid \"Only\"\nmsgstr \"Second only\"\n");
+			awaitReload(catalogWatcher);
+			Assert.assertEquals("First hello 2", GetText.tr(sami, "Hello"));
+			Assert.assertEquals("Yes", GetText.tr(sami, "Yes"));
+			Assert.assertEquals("Second only", GetText.tr(sami, "Only"));
+
+			write(second, "msgid \"Hello\"\nmsgstr \"Second hello 2\"\n");
+			awaitReload(catalogWatcher);
+			Assert.assertEquals("Second hello 2", GetText.tr(sami, "Hello"));
+			Assert.assertEquals("First only 2", GetText.tr(sami, "Only"));
+		} finally {
+			catalogWatcher.close();
+		}
+	}
+
+	@Test
+	public void testReplace() {
+		final Locale faroese = new Locale("fo");
+		final PoFile poFile = new PoFile(faroese);
+		final TranslationEntry hello = new TranslationEntry();
+		hello.setId("Hello");
+		hello.setString(0, "Hey");
+		final TranslationEntry yes = new TranslationEntry();
+		yes.setId("Yes");
+		yes.setString(0, "Ja");
+		poFile.getEntries().add(hello);
+		poFile.getEntries().add(yes);
+		GetText.add(poFile);
+
+		final TranslationEntry updatedYes = new TranslationEntry();
+		updatedYes.setId("Yes");
+		updatedYes.setString(0, "Já");
+		final RuntimeEntry previousYes = GetText.getCatalogEntry(faroese, null, "Yes");
+		GetText.replace(faroese, Arrays.asList(GetText.getCatalogEntry(faroese, null, "Hello"), previousYes),
+				Arrays.asList(null, RuntimeEntry.of(updatedYes)));
+		Assert.assertEquals("Hello", GetText.tr(faroese, "Hello"));
+		Assert.assertEquals("Já", GetText.tr(faroese, "Yes"));
+
+		//Entries that changed since are not replaced
+		updatedYes.setString(0, "Jú");
+		GetText.replace(faroese, Collections.singletonList(previousYes),
+				Collections.singletonList(RuntimeEntry.of(updatedYes)));
+		Assert.assertEquals("Já", GetText.tr(faroese, "Yes"));
+	}
+
+	private static void awaitReload(CatalogWatcher catalogWatcher) throws InterruptedException {
+		final long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		while(catalogWatcher.poll() == 0) {
+			Assert.assertTrue("File change was not detected", System.currentTimeMillis() < deadline);
+			Thread.sleep(10L);
+		}
+	}
+
+	private static void write(File file, String content) throws IOException {
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright 2019 Thomas Cashman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.mini2Dx.gettext;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.text.MessageFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CompiledMessageFormatTest {
+	private static final Locale[] LOCALES = new Locale[] {
+			Locale.ENGLISH, Locale.GERMANY, Locale.FRANCE, Locale.JAPAN,
+			Locale.forLanguageTag("ca-ES"), Locale.forLanguageTag("hi-IN"),
+			Locale.forLanguageTag("ar-EG"), Locale.forLanguageTag("th-TH-u-nu-thai")
+	};
+	private static final String[] PATTERNS = new String[] {
+			"",
+			"No arguments",
+			"found {0} fatal error",
+			"{0}{1}{0}",
+			"{1} before {0}",
+			"missing {3} argument",
+			"It''s {0}''s turn",
+			"'{0}' is quoted",
+			"{0,number,#.##} and {0,number,integer}",
+			"{0,choice,0#none|1#one|1<{0,number} items}",
+			"{0,date,yyyy-MM-dd}",
+			"nested {0,number,'{'#'}'} braces",
+	};
+	private static final Object[][] VALUES = new Object[][] {
+			null,
+			new Object[0],
+			new Object[] { 7 },
+			new Object[] { -1234567, "text" },
+			new Object[] { Long.MIN_VALUE, Long.MAX_VALUE },
+			new Object[] { (short) 12, (byte) -3 },
+			new Object[] { 1234.5678, 0.1f },
+			new Object[] { new BigDecimal("12345678901234567890.123"), new AtomicInteger(5) },
+			new Object[] { null, new Object() { public String toString() { return "custom"; } } },
+			new Object[] { 0 },
+			new Object[] { 1 },
+			new Object[] { new Date(0L), 2 },
+	};
+
+	@Test
+	public void testMatchesMessageFormat() {
+		for(Locale locale : LOCALES) {
+			for(String pattern : PATTERNS) {
+				final CompiledMessageFormat compiledMessageFormat = CompiledMessageFormat.compile(pattern, locale);
+				for(Object[] values : VALUES) {
+					String expected;
+					try {
+						expected = new MessageFormat(pattern, locale).format(values);
+					} catch (IllegalArgumentException e) {
+						expected = e.getClass().getName();
+					}
+					String result;
+					try {
+						result = compiledMessageFormat.format(values);
+					} catch (IllegalArgumentException e) {
+						result = e.getClass().getName();
+					}
+					Assert.assertEquals(pattern + " " + locale, expected, result);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testMatchesSanitisedMessageFormat() {
+		final String str = "example's {0} fatal error";
+		final String expected = MessageFormat.format(TranslationMap.messageFormatSanitise(str), 7);
+		final String result = CompiledMessageFormat.compile(TranslationMap.messageFormatSanitise(str), Locale.getDefault()).format(7);
+		Assert.assertEquals(expected, result);
+	}
+
+	@Test
+	public void testFormatToAppends() {
+		final StringBuilder result = new StringBuilder("> ");
+		CompiledMessageFormat.compile("found {0} fatal error", Locale.ENGLISH).formatTo(result, 1000);
+		Assert.assertEquals("> found 1,000 fatal error", result.toString());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnmatchedBraces() {
+		CompiledMessageFormat.compile("found {0 fatal error", Locale.ENGLISH);
+	}
+
+	@Test
+	public void testConcurrentFormat() throws InterruptedException {
+		final CompiledMessageFormat compiledMessageFormat = CompiledMessageFormat.compile("{0} and {1,number,#.##}", Locale.GERMANY);
+		final String expected = new MessageFormat("{0} and {1,number,#.##}", Locale.GERMANY).format(new Object[] { 1234.5, 3.14159 });
+		final AtomicInteger failures = new AtomicInteger();
+
+		final Thread[] threads = new Thread[8];
+		for(int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					for(int j = 0; j < 10000; j++) {
+						if(!expected.equals(compiledMessageFormat.format(1234.5, 3.14159))) {
+							failures.incrementAndGet();
+						}
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for(Thread thread : threads) {
+			thread.join();
+		}
+		Assert.assertEquals(0, failures.get());
+	}
+}
@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright 2019 Thomas Cashman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.mini2Dx.gettext;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class CompressedBinFileTest {
+	private static final Locale CATALAN = Locale.forLanguageTag("ca-ES");
+
+	@Test
+	public void testSaveToBin() throws IOException {
+		final PoFile poFile = new PoFile(CATALAN, CompressedBinFileTest.class.getResourceAsStream("/sample_ca.po"));
+		final File file = File.createTempFile("sample_ca", ".bin");
+		file.deleteOnExit();
+		poFile.saveToBin(file, true);
+
+		final CompressedBinFile binFile = CompressedBinFile.map(CATALAN, file);
+		Assert.assertEquals(poFile.getEntries().size(), binFile.size());
+		for(TranslationEntry expected : poFile.getEntries()) {
+			Assert.assertEquals(expected, binFile.getEntry(expected.getContext(), expected.getId()));
+		}
+		Assert.assertNull(binFile.getEntry(null, "Missing entry"));
+		Assert.assertEquals(poFile.getEntries(), binFile.getEntries());
+		Assert.assertEquals(poFile.getEntries(), PoFile.readFromBin(CATALAN, new FileInputStream(file)).getEntries());
+	}
+
+	@Test
+	public void testBlocks() throws IOException {
+		final PoFile poFile = new PoFile(CATALAN);
+		for(int i = 0; i < 5000; i++) {
+			final TranslationEntry entry = new TranslationEntry();
+			entry.setContext(i % 2 == 0 ? null : "context");
+			entry.setId("Message number " + i);
+			entry.setString(0, "Missatge número " + i);
+			poFile.getEntries().add(entry);
+		}
+		final File file = File.createTempFile("blocks", ".bin");
+		file.deleteOnExit();
+		poFile.saveToBin(file, true);
+
+		final File uncompressedFile = File.createTempFile("blocks", ".bin");
+		uncompressedFile.deleteOnExit();
+		poFile.saveToBin(uncompressedFile);
+		Assert.assertTrue(file.length() * 2 < uncompressedFile.length());
+
+		final CompressedBinFile binFile = new CompressedBinFile(CATALAN,
+				ByteBuffer.wrap(Files.readAllBytes(file.toPath())), 2);
+		for(int i = 4999; i >= 0; i--) {
+			final String context = i % 2 == 0 ? null : "context";
+			Assert.assertEquals("Missatge número " + i, binFile.getEntry(context, "Message number " + i).getStrings().get(0));
+			Assert.assertNull(binFile.getEntry(i % 2 == 0 ? "context" : null, "Message number " + i));
+		}
+		final ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+		Assert.assertEquals("Missatge número 77", PoFile.readEntryFromBin(buffer, "context", "Message number 77").getStrings().get(0));
+		Assert.assertNull(PoFile.readEntryFromBin(buffer, null, "Message number 77"));
+	}
+
+	@Test
+	public void testConcurrentLookups() throws Exception {
+		final PoFile poFile = new PoFile(CATALAN);
+		for(int i = 0; i < 2000; i++) {
+			final TranslationEntry entry = new TranslationEntry();
+			entry.setId("Message number " + i);
+			entry.setString(0, "Missatge número " + i);
+			poFile.getEntries().add(entry);
+		}
+		final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		BinFormat.writeCompressed(poFile.getEntries(), outputStream);
+		final CompressedBinFile binFile = new CompressedBinFile(CATALAN,
+				ByteBuffer.wrap(outputStream.toByteArray()), 3);
+
+		final ExecutorService executorService = Executors.newFixedThreadPool(4);
+		try {
+			final List<Future<?>> futures = new ArrayList<Future<?>>();
+			for(int thread = 0; thread < 4; thread++) {
+				final Random random = new Random(thread);
+				futures.add(executorService.submit(new Callable<Void>() {
+					@Override
+					public Void call() {
+						//Blocks are evicted and inflated again while other threads read them
+						for(int i = 0; i < 5000; i++) {
+							final int index = random.nextInt(2000);
+							Assert.assertEquals("Missatge número " + index,
+									binFile.getEntry(null, "Message number " + index).getStrings().get(0));
+						}
+						return null;
+					}
+				}));
+			}
+			for(Future<?> future : futures) {
+				future.get(30, TimeUnit.SECONDS);
+			}
+		} finally {
+			executorService.shutdown();
+		}
+	}
+
+	@Test
+	public void testGetText() throws IOException {
+		final Locale romanian = new Locale("ro");
+		final PoFile poFile = new PoFile(romanian, new ByteArrayInputStream(("msgid \"\"\n" +
+				"msgstr \"Plural-Forms: nplurals=2; plural=(n != 1);\\n\"\n\n" +
+				"msgid \"Hello\"\nmsgstr \"Salut\"\n\n" +
+				"msgid \"{0} file\"\nmsgid_plural \"{0} files\"\nmsgstr[0] \"{0} fișier\"\nmsgstr[1] \"{0} fișiere\"\n")
+				.getBytes(StandardCharsets.UTF_8)));
+		final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		BinFormat.writeCompressed(poFile.getEntries(), outputStream);
+		GetText.add(new CompressedBinFile(romanian, ByteBuffer.wrap(outputStream.toByteArray())));
+
+		Assert.assertEquals("Salut", GetText.tr(romanian, "Hello"));
+		Assert.assertEquals("1 fișier", GetText.trn(romanian, "{0} file", "{0} files", 1, 1));
+		Assert.assertEquals("2 fișiere", GetText.trn(romanian, "{0} file", "{0} files", 2, 2));
+		Assert.assertEquals("Missing", GetText.tr(romanian, "Missing"));
+	}
+
+	@Test(expected = IOException.class)
+	public void testCorruptFile() throws IOException {
+		final PoFile poFile = new PoFile(CATALAN, CompressedBinFileTest.class.getResourceAsStream("/sample_ca.po"));
+		final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		BinFormat.writeCompressed(poFile.getEntries(), outputStream);
+		final byte[] bytes = outputStream.toByteArray();
+		bytes[bytes.length - 10] ^= 0x55;
+		PoFile.readFromBin(CATALAN, new ByteArrayInputStream(bytes));
+	}
+}
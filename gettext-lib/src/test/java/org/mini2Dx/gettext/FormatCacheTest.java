@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright 2019 Thomas Cashman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.mini2Dx.gettext;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.text.MessageFormat;
+import java.util.Locale;
+
+public class FormatCacheTest {
+
+	@Test
+	public void testSourceTextFormats() {
+		final Translator translator = new Translator(new Locale("xx"), null);
+		final String sourceText = "It's {0} o''clock, {1}";
+		Assert.assertEquals(MessageFormat.format(TranslationMap.messageFormatSanitise(sourceText), 5, "Bob"),
+				translator.tr(sourceText, 5, "Bob"));
+		//Untranslated text is compiled once and shared with catalogs for the same Locale
+		final CompiledMessageFormat format = Translator.trFormat(null, sourceText);
+		Assert.assertSame(format, Translator.trFormat(null, sourceText));
+		Assert.assertSame(format, new TranslationMap(Locale.getDefault(Locale.Category.FORMAT)).trFormat(sourceText));
+	}
+
+	@Test
+	public void testPluralFormats() throws IOException {
+		final TranslationMap translationMap = new TranslationMap(Locale.GERMAN);
+		translationMap.add(new PoFile(Locale.GERMAN, new StringReader(
+				"msgctxt \"inbox\"\nmsgid \"{0} message\"\nmsgid_plural \"{0} messages\"\n" +
+				"msgstr[0] \"{0} Nachricht\"\nmsgstr[1] \"{0} Nachrichten\"\n\n" +
+				"msgctxt \"outbox\"\nmsgid \"{0} message\"\nmsgid_plural \"{0} messages\"\n" +
+				"msgstr[0] \"{0} gesendete Nachricht\"\nmsgstr[1] \"{0} gesendete Nachrichten\"\n")));
+
+		Assert.assertEquals("1 Nachricht", translationMap.trnc("inbox", "{0} message", "{0} messages", 1, 1));
+		Assert.assertEquals("5 Nachrichten", translationMap.trnc("inbox", "{0} message", "{0} messages", 5, 5));
+		Assert.assertEquals("1 gesendete Nachricht", translationMap.trnc("outbox", "{0} message", "{0} messages", 1, 1));
+		Assert.assertEquals("5 gesendete Nachrichten", translationMap.trnc("outbox", "{0} message", "{0} messages", 5, 5));
+		Assert.assertEquals("5 messages", translationMap.trn("{0} message", "{0} messages", 5, 5));
+
+		//Each plural form of an entry is compiled once
+		final CompiledMessageFormat format = translationMap.trncFormat("inbox", "{0} message", "{0} messages", 2);
+		Assert.assertSame(format, translationMap.trncFormat("inbox", "{0} message", "{0} messages", 7));
+		Assert.assertNotSame(format, translationMap.trncFormat("inbox", "{0} message", "{0} messages", 1));
+	}
+
+	@Test
+	public void testCapacity() {
+		final FormatCache formatCache = new FormatCache(Locale.ENGLISH, 8, EvictionPolicy.LRU);
+		final CompiledMessageFormat format = formatCache.get("Message {0}");
+		Assert.assertSame(format, formatCache.get("Message {0}"));
+		for(int i = 0; i < 100; i++) {
+			Assert.assertEquals("Message " + i + " a", formatCache.get("Message " + i + " {0}").format("a"));
+		}
+		Assert.assertTrue(formatCache.size() <= 8);
+	}
+
+	@Test
+	public void testLruKeepsRecentlyUsed() {
+		final FormatCache formatCache = new FormatCache(Locale.ENGLISH, 8, EvictionPolicy.LRU);
+		final CompiledMessageFormat format = formatCache.get("Hot {0}");
+		for(int i = 0; i < 100; i++) {
+			formatCache.get("Cold " + i + " {0}");
+			Assert.assertSame(format, formatCache.get("Hot {0}"));
+		}
+
+		final FormatCacheStats stats = formatCache.getStats();
+		Assert.assertEquals(100, stats.getHits());
+		Assert.assertEquals(101, stats.getMisses());
+		Assert.assertEquals(93, stats.getEvictions());
+		Assert.assertEquals(8, stats.getSize());
+		Assert.assertEquals(8, stats.getCapacity());
+	}
+
+	@Test
+	public void testTinyLfuRejectsOneOffFormats() {
+		final FormatCache formatCache = new FormatCache(Locale.ENGLISH, 8, EvictionPolicy.TINY_LFU);
+		final CompiledMessageFormat[] formats = new CompiledMessageFormat[8];
+		for(int repeat = 0; repeat < 4; repeat++) {
+			for(int i = 0; i < formats.length; i++) {
+				formats[i] = formatCache.get("Frequent " + i + " {0}");
+			}
+		}
+		//A scan of one-off formats does not replace frequently used formats
+		for(int i = 0; i < 100; i++) {
+			Assert.assertEquals("Once " + i + " a", formatCache.get("Once " + i + " {0}").format("a"));
+		}
+		for(int i = 0; i < formats.length; i++) {
+			Assert.assertSame(formats[i], formatCache.get("Frequent " + i + " {0}"));
+		}
+		Assert.assertEquals(0, formatCache.getStats().getEvictions());
+		Assert.assertEquals(8, formatCache.size());
+	}
+
+	@Test
+	public void testTinyLfuCountsConcurrentHits() throws Exception {
+		final FormatCache formatCache = new FormatCache(Locale.ENGLISH, 8, EvictionPolicy.TINY_LFU);
+		final CompiledMessageFormat[] formats = new CompiledMessageFormat[8];
+		for(int i = 0; i < formats.length; i++) {
+			formats[i] = formatCache.get("Frequent " + i + " {0}");
+		}
+		final Thread[] threads = new Thread[4];
+		for(int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for(int j = 0; j < 1000; j++) {
+						formatCache.get("Frequent " + (j % formats.length) + " {0}");
+					}
+				}
+			});
+			threads[i].start();
+		}
+		for(Thread thread : threads) {
+			thread.join();
+		}
+
+		//Formats requested twice are still less frequent than the buffered hits
+		for(int i = 0; i < 50; i++) {
+			formatCache.get("Twice " + i + " {0}");
+			formatCache.get("Twice " + i + " {0}");
+		}
+		for(int i = 0; i < formats.length; i++) {
+			Assert.assertSame(formats[i], formatCache.get("Frequent " + i + " {0}"));
+		}
+		Assert.assertEquals(0, formatCache.getStats().getEvictions());
+	}
+
+	@Test
+	public void testConfigure() {
+		try {
+			GetText.setFormatCacheEvictionPolicy(EvictionPolicy.TINY_LFU);
+			GetText.setFormatCacheCapacity(4);
+			Assert.assertEquals(4, GetText.getFormatCacheCapacity());
+			Assert.assertEquals(EvictionPolicy.TINY_LFU, GetText.getFormatCacheEvictionPolicy());
+
+			final Locale locale = new Locale("eo");
+			for(int i = 0; i < 10; i++) {
+				Assert.assertEquals(i + " a", FormatCache.forLocale(locale).get(i + " {0}").format("a"));
+			}
+			final FormatCacheStats stats = GetText.getFormatCacheStats(locale);
+			Assert.assertEquals(10, stats.getMisses());
+			Assert.assertEquals(4, stats.getCapacity());
+			Assert.assertTrue(stats.getSize() <= 4);
+			Assert.assertTrue(GetText.getFormatCacheStats().getMisses() >= 10);
+		} finally {
+			GetText.setFormatCacheCapacity(FormatCache.DEFAULT_CAPACITY);
+			GetText.setFormatCacheEvictionPolicy(EvictionPolicy.LRU);
+		}
+	}
+}
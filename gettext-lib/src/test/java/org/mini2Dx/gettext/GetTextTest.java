@@ -20,11 +20,23 @@ import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class GetTextTest {
 	private static final Locale CATALAN = Locale.forLanguageTag("ca-ES");
@@ -117,8 +129,9 @@ public class GetTextTest {
 		final String id = "found {0} fatal error";
 		final String idPlural = "found {0} fatal errors";
 
-		Assert.assertEquals("s'ha trobat {0} error fatal", GetText.trn(id, idPlural, 0));
-		Assert.assertEquals("s'han trobat {0} errors fatals", GetText.trn(id, idPlural, 1));
+		Assert.assertEquals("s'ha trobat {0} error fatal", GetText.trn(id, idPlural, 1));
+		Assert.assertEquals("s'han trobat {0} errors fatals", GetText.trn(id, idPlural, 0));
+		Assert.assertEquals("s'han trobat {0} errors fatals", GetText.trn(id, idPlural, 2));
 	}
 
 	@Test
@@ -180,8 +193,8 @@ public class GetTextTest {
 		final String id = "found {0} fatal error";
 		final String idPlural = "found {0} fatal errors";
 
-		Assert.assertEquals("s'ha trobat 7 error fatal", GetText.trn(id, idPlural, 0, 7));
-		Assert.assertEquals("s'han trobat 8 errors fatals", GetText.trn(id, idPlural, 1, 8));
+		Assert.assertEquals("s'ha trobat 7 error fatal", GetText.trn(id, idPlural, 1, 7));
+		Assert.assertEquals("s'han trobat 8 errors fatals", GetText.trn(id, idPlural, 2, 8));
 	}
 
 	@Test
@@ -210,6 +223,387 @@ public class GetTextTest {
 		Assert.assertEquals("example's 7 fatal errors", GetText.trnc("context","example's {0} fatal error", "example's {0} fatal errors", 2, 7));
 	}
 
+	@Test
+	public void testTrTo() throws IOException {
+		GetText.setLocale(CATALAN);
+
+		final StringBuilder result = new StringBuilder();
+		GetText.trTo(result, "found {0} fatal error", 7);
+		Assert.assertEquals("s'ha trobat 7 error fatal", result.toString());
+
+		result.setLength(0);
+		GetText.trTo(result, "found {0} fatal error", 7L);
+		Assert.assertEquals(GetText.tr("found {0} fatal error", 7L), result.toString());
+
+		result.setLength(0);
+		GetText.trTo(result, "found {0} fatal error", 1.5f);
+		Assert.assertEquals(GetText.tr("found {0} fatal error", 1.5f), result.toString());
+
+		result.setLength(0);
+		GetText.trTo(result, "Unknown \"system\" error");
+		Assert.assertEquals("Error desconegut del \"sistema\"", result.toString());
+	}
+
+	@Test
+	public void testTrcTo() throws IOException {
+		GetText.setLocale(Locale.JAPAN);
+
+		final StringBuilder result = new StringBuilder();
+		GetText.trcTo(result, "system context", "found {0} fatal error", 9);
+		Assert.assertEquals("9致命的なエラーを発見", result.toString());
+	}
+
+	@Test
+	public void testTrnTo() throws IOException {
+		GetText.setLocale(CATALAN);
+
+		final String id = "found {0} fatal error";
+		final String idPlural = "found {0} fatal errors";
+
+		final StringBuilder result = new StringBuilder();
+		GetText.trnTo(result, id, idPlural, 2, 8);
+		Assert.assertEquals(GetText.trn(id, idPlural, 2, 8), result.toString());
+	}
+
+	@Test
+	public void testTrncToNoStringMatchOrLocale() throws IOException {
+		GetText.setLocale(Locale.CANADA_FRENCH);
+
+		final StringBuilder result = new StringBuilder();
+		GetText.trncTo(result, "context","example's {0} fatal error", "example's {0} fatal errors", 2, 7);
+		Assert.assertEquals("example's 7 fatal errors", result.toString());
+	}
+
+	@Test
+	public void testTranslationKey() throws IOException {
+		final TranslationKey key = TranslationKey.of("Unknown \"system\" error");
+		final TranslationKey contextKey = TranslationKey.of("system context", "Unknown \"system\" error");
+		final TranslationKey pluralKey = TranslationKey.ofPlural("found {0} fatal error", "found {0} fatal errors");
+		final TranslationKey missingKey = TranslationKey.of("Key that is not translated");
+
+		GetText.setLocale(CATALAN);
+		Assert.assertEquals("Error desconegut del \"sistema\"", GetText.tr(key));
+		Assert.assertEquals("s'han trobat 8 errors fatals", GetText.trn(pluralKey, 2, 8));
+		Assert.assertEquals(missingKey.getId(), GetText.tr(missingKey));
+
+		GetText.setLocale(Locale.JAPAN);
+		Assert.assertEquals("不明なシステムエラー", GetText.tr(contextKey));
+		Assert.assertEquals(GetText.trc("system context", "Unknown \"system\" error"), GetText.tr(contextKey));
+		Assert.assertEquals("Error desconegut del \"sistema\"", GetText.tr(CATALAN, key));
+
+		GetText.setLocale(Locale.CANADA_FRENCH);
+		Assert.assertEquals("found 7 fatal errors", GetText.trn(pluralKey, 2, 7));
+	}
+
+	@Test
+	public void testPluralTranslationKey() throws IOException {
+		final Locale welsh = new Locale("cy");
+		GetText.add(createPoFile(welsh, "msgid \"Apple\"\nmsgstr \"Afal\"\n\n" +
+				"msgid \"Fruit\"\nmsgid_plural \"Apples\"\nmsgstr[0] \"Ffrwyth\"\nmsgstr[1] \"Ffrwythau\"\n"));
+
+		//Plural keys are matched by msgid_plural first, the same as a lookup by source text
+		final TranslationKey pluralKey = TranslationKey.ofPlural("Apple", "Apples");
+		for(int n = 0; n < 3; n++) {
+			Assert.assertEquals(GetText.trnc(welsh, null, "Apple", "Apples", n), GetText.trn(welsh, pluralKey, n));
+		}
+		Assert.assertEquals("Ffrwythau", GetText.trn(welsh, pluralKey, 2));
+		Assert.assertEquals("Afal", GetText.tr(welsh, TranslationKey.of("Apple")));
+	}
+
+	@Test
+	public void testTranslator() throws IOException {
+		GetText.setLocale(Locale.ENGLISH);
+
+		final Translator translator = GetText.getTranslator(Locale.JAPAN);
+		Assert.assertEquals(Locale.JAPAN, translator.getLocale());
+		Assert.assertEquals("不明なシステムエラー", translator.trc("system context", "Unknown \"system\" error"));
+		Assert.assertEquals("9致命的なエラーを発見", translator.trnc("system context", "found {0} fatal error", "found {0} fatal errors", 0, 9));
+
+		final Translator missingTranslator = GetText.getTranslator(Locale.CANADA_FRENCH);
+		Assert.assertNull(missingTranslator.getTranslationMap());
+		Assert.assertEquals("example's 7 fatal error", missingTranslator.tr("example's {0} fatal error", 7));
+	}
+
+	@Test
+	public void testWithLocale() throws Exception {
+		GetText.setLocale(Locale.ENGLISH);
+
+		final String id = "Unknown \"system\" error";
+		try (LocaleScope catalan = GetText.withLocale(CATALAN)) {
+			Assert.assertEquals(CATALAN, GetText.getLocale());
+			Assert.assertEquals("Error desconegut del \"sistema\"", GetText.tr(id));
+
+			try (LocaleScope japanese = GetText.withLocale(Locale.JAPAN)) {
+				Assert.assertEquals("不明なシステムエラー", GetText.trc("system context", id));
+			}
+			Assert.assertEquals("Error desconegut del \"sistema\"", GetText.tr(id));
+
+			final String [] otherThreadResult = new String[1];
+			final Thread thread = new Thread() {
+				@Override
+				public void run() {
+					otherThreadResult[0] = GetText.tr(id);
+				}
+			};
+			thread.start();
+			thread.join();
+			Assert.assertEquals(id, otherThreadResult[0]);
+		}
+		Assert.assertEquals(Locale.ENGLISH, GetText.getLocale());
+		Assert.assertEquals(id, GetText.tr(id));
+	}
+
+	@Test
+	public void testFallbackChain() throws IOException {
+		final Locale austrianGerman = new Locale("de", "AT");
+		final Locale swissGerman = new Locale("de", "CH");
+		GetText.add(createPoFile(Locale.GERMAN, "msgid \"Hello\"\nmsgstr \"Hallo\"\n\nmsgid \"Goodbye\"\nmsgstr \"Tschuess\"\n"));
+		GetText.add(createPoFile(austrianGerman, "msgid \"Hello\"\nmsgstr \"Servus\"\n\nmsgid \"Goodbye\"\nmsgstr \"\"\n"));
+		GetText.add(createPoFile(Locale.ITALIAN, "msgid \"Thanks\"\nmsgstr \"Grazie\"\n"));
+
+		try {
+			Assert.assertEquals("Servus", GetText.tr(austrianGerman, "Hello"));
+			Assert.assertEquals("Tschuess", GetText.tr(austrianGerman, "Goodbye"));
+			Assert.assertEquals("Hallo", GetText.tr(swissGerman, "Hello"));
+			Assert.assertEquals("Thanks", GetText.tr(austrianGerman, "Thanks"));
+
+			GetText.setFallbackLocales(Locale.ITALIAN);
+			Assert.assertEquals(Arrays.asList(austrianGerman, Locale.GERMAN, Locale.ITALIAN),
+					GetText.getFallbackChain(austrianGerman));
+			Assert.assertEquals("Grazie", GetText.tr(austrianGerman, "Thanks"));
+			GetText.preload(swissGerman);
+			Assert.assertEquals("Grazie", GetText.getTranslator(swissGerman).tr("Thanks"));
+
+			GetText.add(createPoFile(Locale.GERMAN, "msgid \"Morning\"\nmsgstr \"Morgen\"\n"));
+			Assert.assertEquals("Morgen", GetText.tr(austrianGerman, "Morning"));
+			Assert.assertEquals("Servus", GetText.tr(austrianGerman, "Hello"));
+		} finally {
+			GetText.setFallbackLocales();
+		}
+		Assert.assertEquals("Thanks", GetText.tr(austrianGerman, "Thanks"));
+	}
+
+	@Test
+	public void testFallbackChainPluralForms() throws IOException {
+		final Locale polish = new Locale("pl");
+		final Locale nynorsk = new Locale("nn");
+		GetText.add(createPoFile(polish, "msgid \"\"\nmsgstr \"Plural-Forms: nplurals=3; " +
+				"plural=(n==1 ? 0 : n%10>=2 && n%10<=4 && (n%100<10 || n%100>=20) ? 1 : 2);\\n\"\n\n" +
+				"msgid \"File\"\nmsgid_plural \"Files\"\nmsgstr[0] \"Plik\"\nmsgstr[1] \"Pliki\"\nmsgstr[2] \"Plikow\"\n"));
+		GetText.add(createPoFile(nynorsk, "msgid \"\"\nmsgstr \"Plural-Forms: nplurals=2; plural=(n != 1);\\n\"\n\n" +
+				"msgid \"Folder\"\nmsgid_plural \"Folders\"\nmsgstr[0] \"Mappe\"\nmsgstr[1] \"Mapper\"\n"));
+
+		try {
+			GetText.setFallbackLocales(nynorsk);
+			Assert.assertEquals("Plikow", GetText.trn(polish, "File", "Files", 5));
+			//Entries from a fallback language are selected with the plural rule of their own catalog
+			Assert.assertEquals("Mappe", GetText.trn(polish, "Folder", "Folders", 1));
+			Assert.assertEquals("Mapper", GetText.trn(polish, "Folder", "Folders", 5));
+			Assert.assertEquals("Mapper", GetText.trn(polish, TranslationKey.ofPlural("Folder", "Folders"), 5));
+		} finally {
+			GetText.setFallbackLocales();
+		}
+	}
+
+	@Test
+	public void testAddAll() throws IOException {
+		final Locale dutch = new Locale("nl");
+		final Locale swedish = new Locale("sv");
+		final Locale finnish = new Locale("fi");
+		final List<CatalogSource> sources = new ArrayList<CatalogSource>();
+		for(int i = 0; i < 20; i++) {
+			sources.add(CatalogSource.fromPoFile(createPoFile(dutch, "msgid \"Hello\"\nmsgstr \"Hallo " + i + "\"\n\n" +
+					"msgid \"File " + i + "\"\nmsgstr \"Bestand " + i + "\"\n")));
+			sources.add(CatalogSource.fromPoFile(createPoFile(swedish, "msgid \"Hello\"\nmsgstr \"Hej " + i + "\"\n")));
+		}
+
+		final ExecutorService executorService = Executors.newFixedThreadPool(4);
+		try {
+			GetText.addAll(sources, executorService);
+
+			try {
+				GetText.addAll(Arrays.asList(
+						CatalogSource.fromPoFile(createPoFile(finnish, "msgid \"Hello\"\nmsgstr \"Hei\"\n")),
+						new CatalogSource(finnish) {
+							@Override
+							public PoFile load() throws IOException {
+								throw new IOException("Missing file");
+							}
+						}), executorService);
+				Assert.fail("Expected IOException");
+			} catch (IOException e) {
+				Assert.assertEquals("Missing file", e.getMessage());
+			}
+		} finally {
+			executorService.shutdown();
+		}
+
+		//Later files for the same Locale override earlier files
+		Assert.assertEquals("Hallo 19", GetText.tr(dutch, "Hello"));
+		Assert.assertEquals("Bestand 0", GetText.tr(dutch, "File 0"));
+		Assert.assertEquals("Bestand 19", GetText.tr(dutch, "File 19"));
+		Assert.assertEquals("Hej 19", GetText.tr(swedish, "Hello"));
+		//Nothing is published when a file fails to load
+		Assert.assertEquals("Hello", GetText.tr(finnish, "Hello"));
+	}
+
+	@Test
+	public void testRegister() throws Exception {
+		final Locale danish = new Locale("da");
+		final Locale norwegian = new Locale("nb");
+		final AtomicInteger totalLoads = new AtomicInteger();
+		GetText.register(new CatalogSource(danish) {
+			@Override
+			public PoFile load() throws IOException {
+				totalLoads.incrementAndGet();
+				return createPoFile(danish, "msgid \"Hello\"\nmsgstr \"Hej\"\n");
+			}
+		});
+		GetText.register(CatalogSource.fromPoFile(createPoFile(norwegian, "msgid \"Hello\"\nmsgstr \"Hei\"\n")));
+		Assert.assertEquals(0, totalLoads.get());
+
+		GetText.preload(danish).get(5, TimeUnit.SECONDS);
+		Assert.assertEquals(1, totalLoads.get());
+		Assert.assertEquals("Hej", GetText.tr(danish, "Hello"));
+		Assert.assertTrue(GetText.preload(danish).isDone());
+
+		//The first lookup starts loading without waiting for it
+		final String translation = GetText.tr(norwegian, "Hello");
+		Assert.assertTrue(translation.equals("Hello") || translation.equals("Hei"));
+		GetText.preload(norwegian).get(5, TimeUnit.SECONDS);
+		Assert.assertEquals("Hei", GetText.tr(norwegian, "Hello"));
+		Assert.assertEquals(1, totalLoads.get());
+	}
+
+	@Test
+	public void testRegisterWhileLoading() throws Exception {
+		final Locale icelandic = new Locale("is");
+		final List<Runnable> queue = new ArrayList<Runnable>();
+		GetText.setLoadExecutor(new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				queue.add(command);
+			}
+		});
+		try {
+			GetText.register(CatalogSource.fromPoFile(createPoFile(icelandic, "msgid \"a\"\nmsgstr \"A\"\n")));
+			GetText.setLocale(icelandic);
+			GetText.preload(icelandic);
+			GetText.register(CatalogSource.fromPoFile(createPoFile(icelandic, "msgid \"b\"\nmsgstr \"B\"\n")));
+			while(!queue.isEmpty()) {
+				queue.remove(0).run();
+			}
+			Assert.assertEquals("A", GetText.tr("a"));
+			Assert.assertEquals("B", GetText.tr("b"));
+		} finally {
+			GetText.setLocale(Locale.ENGLISH);
+			GetText.setLoadExecutor(new Executor() {
+				@Override
+				public void execute(Runnable command) {
+					final Thread thread = new Thread(command);
+					thread.setDaemon(true);
+					thread.start();
+				}
+			});
+		}
+	}
+
+	@Test
+	public void testLookupWithoutCatalogs() throws Exception {
+		final List<Runnable> queue = new ArrayList<Runnable>();
+		GetText.setLoadExecutor(new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				queue.add(command);
+			}
+		});
+		final List<Locale> locales = new ArrayList<Locale>();
+		try {
+			for(int i = 0; i < 100; i++) {
+				final Locale locale = new Locale("zz", "Z" + i);
+				locales.add(locale);
+				Assert.assertEquals("Hello", GetText.tr(locale, "Hello"));
+				Assert.assertEquals("Hello", GetText.getTranslator(locale).tr("Hello"));
+			}
+			GetText.preload(locales.get(0)).get(5, TimeUnit.SECONDS);
+			//Nothing needs merging or loading for these Locales
+			Assert.assertTrue(queue.isEmpty());
+		} finally {
+			while(!queue.isEmpty()) {
+				queue.remove(0).run();
+			}
+			GetText.setLoadExecutor(new Executor() {
+				@Override
+				public void execute(Runnable command) {
+					final Thread thread = new Thread(command);
+					thread.setDaemon(true);
+					thread.start();
+				}
+			});
+		}
+
+		final Field registry = GetText.class.getDeclaredField("REGISTRY");
+		registry.setAccessible(true);
+		for(Locale locale : locales) {
+			Assert.assertFalse(((TranslationRegistry) registry.get(null)).isResolved(locale));
+		}
+	}
+
+	@Test
+	public void testLookupWhilePublishing() throws Exception {
+		final Locale portuguese = new Locale("pt");
+		final Locale portugalPortuguese = new Locale("pt", "PT");
+		final Locale requested = new Locale("pt", "PT", "x");
+		GetText.add(createPoFile(portuguese, "msgid \"Hello\"\nmsgstr \"Ola\"\n"));
+		GetText.add(createPoFile(portugalPortuguese, "msgid \"Goodbye\"\nmsgstr \"Adeus\"\n"));
+
+		final Field writeLock = GetText.class.getDeclaredField("WRITE_LOCK");
+		writeLock.setAccessible(true);
+		final Object lock = writeLock.get(null);
+		final CountDownLatch locked = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final Thread publisher = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				synchronized(lock) {
+					locked.countDown();
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			}
+		});
+		publisher.setDaemon(true);
+		publisher.start();
+		locked.await();
+
+		final ExecutorService executorService = Executors.newSingleThreadExecutor();
+		try {
+			final Future<String> result = executorService.submit(new Callable<String>() {
+				@Override
+				public String call() throws Exception {
+					GetText.setLocale(requested);
+					return GetText.tr(requested, "Goodbye") + " " + GetText.tr("Hello");
+				}
+			});
+			//Only the most specific catalog is used until the chain has been merged
+			Assert.assertEquals("Adeus Hello", result.get(5, TimeUnit.SECONDS));
+		} finally {
+			release.countDown();
+			executorService.shutdown();
+		}
+
+		try {
+			GetText.preload(requested).get(5, TimeUnit.SECONDS);
+			Assert.assertEquals("Ola", GetText.tr("Hello"));
+			Assert.assertEquals("Adeus", GetText.tr("Goodbye"));
+		} finally {
+			GetText.setLocale(Locale.ENGLISH);
+		}
+	}
+
 	@Test
 	public void testTranslatorComments() throws IOException {
 		GetText.setLocale(CATALAN);
@@ -268,6 +662,13 @@ public class GetTextTest {
 		}
 	}
 
+	@Test
+	public void testTranslationEntryUnknownContext() throws IOException {
+		final String id = "Unknown \"system\" error";
+		Assert.assertNull(GetText.getTranslationEntry(CATALAN, "unknown context", id));
+		Assert.assertNotNull(GetText.getTranslationEntry(CATALAN, null, id));
+	}
+
 	private static final List<String> EN = new ArrayList<String>() {
 		{
 			add("Unknown \"system\" error");
@@ -282,4 +683,8 @@ public class GetTextTest {
 			add("Aquí teniu un exemple de com es pot continuar una cadena molt llarga per al cas comú,\\nla cadena representa una sortida de diverses línies\\n");
 		}
 	};
+
+	private static PoFile createPoFile(Locale locale, String content) throws IOException {
+		return new PoFile(locale, new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+	}
 }
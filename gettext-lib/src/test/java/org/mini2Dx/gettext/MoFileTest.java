@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright 2019 Thomas Cashman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.mini2Dx.gettext;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+public class MoFileTest {
+	private static final Locale CATALAN = Locale.forLanguageTag("ca-ES");
+
+	@Test
+	public void testSaveToMo() throws IOException {
+		final PoFile poFile = new PoFile(CATALAN, MoFileTest.class.getResourceAsStream("/sample_ca.po"));
+		final File file = File.createTempFile("sample_ca", ".mo");
+		file.deleteOnExit();
+		poFile.saveToMo(file);
+
+		final MoFile moFile = MoFile.map(CATALAN, file);
+		Assert.assertEquals(poFile.getEntries().size(), moFile.size());
+		for(TranslationEntry expected : poFile.getEntries()) {
+			final TranslationEntry entry = moFile.getEntry(expected.getContext(), expected.getId());
+			Assert.assertEquals(expected.getContext(), entry.getContext());
+			Assert.assertEquals(expected.getId(), entry.getId());
+			Assert.assertEquals(expected.getIdPlural(), entry.getIdPlural());
+			Assert.assertEquals(expected.getStrings(), entry.getStrings());
+			//Decoded entries are cached
+			Assert.assertSame(moFile.getRuntimeEntry(expected.getContext(), expected.getId()),
+					moFile.getRuntimeEntry(expected.getContext(), expected.getId()));
+		}
+		Assert.assertNull(moFile.getEntry(null, "Missing entry"));
+		Assert.assertNull(moFile.getEntry("missing context", "unknown system error"));
+	}
+
+	@Test
+	public void testOmitsUntranslatedEntries() throws IOException {
+		final MoFile moFile = createMoFile(Locale.FRENCH, "msgid \"\"\nmsgstr \"Plural-Forms: nplurals=2; plural=(n > 1);\\n\"\n\n" +
+				"msgid \"Translated\"\nmsgstr \"Traduit\"\n\n" +
+				"msgid \"Untranslated\"\nmsgstr \"\"\n\n" +
+				"#, fuzzy\nmsgid \"Fuzzy\"\nmsgstr \"Flou\"\n\n" +
+				"msgctxt \"menu\"\nmsgid \"Open ü € 😀\"\nmsgstr \"Ouvrir\"\n");
+		Assert.assertEquals(3, moFile.size());
+		Assert.assertEquals("Traduit", moFile.getEntry(null, "Translated").getStrings().get(0));
+		Assert.assertNull(moFile.getEntry(null, "Untranslated"));
+		Assert.assertNull(moFile.getEntry(null, "Fuzzy"));
+		Assert.assertNull(moFile.getEntry(null, "Open ü € 😀"));
+		Assert.assertEquals("Ouvrir", moFile.getEntry("menu", "Open ü € 😀").getStrings().get(0));
+		Assert.assertEquals(0, moFile.getPluralForms().evaluate(0));
+	}
+
+	@Test
+	public void testGetText() throws IOException {
+		final Locale portuguese = new Locale("pt");
+		final Locale brazilianPortuguese = new Locale("pt", "BR");
+		GetText.add(createMoFile(portuguese, "msgid \"Hello\"\nmsgstr \"Olá\"\n\n" +
+				"msgid \"Bus\"\nmsgstr \"Autocarro\"\n\n" +
+				"msgid \"{0} file\"\nmsgid_plural \"{0} files\"\nmsgstr[0] \"{0} ficheiro\"\nmsgstr[1] \"{0} ficheiros\"\n"));
+		GetText.add(new PoFile(brazilianPortuguese, new ByteArrayInputStream(
+				"msgid \"Bus\"\nmsgstr \"Ônibus\"\n\nmsgid \"Hello\"\nmsgstr \"\"\n".getBytes(StandardCharsets.UTF_8))));
+
+		Assert.assertEquals("Olá", GetText.tr(portuguese, "Hello"));
+		Assert.assertEquals("Olá", GetText.tr(brazilianPortuguese, "Hello"));
+		Assert.assertEquals("Ônibus", GetText.tr(brazilianPortuguese, "Bus"));
+		Assert.assertEquals("Autocarro", GetText.tr(portuguese, "Bus"));
+		Assert.assertEquals("Olá", GetText.tr(brazilianPortuguese, TranslationKey.of("Hello")));
+		Assert.assertEquals("1 ficheiro", GetText.trn(portuguese, "{0} file", "{0} files", 1, 1));
+		Assert.assertEquals("0 ficheiros", GetText.trn(portuguese, "{0} file", "{0} files", 0, 0));
+		//pt_BR uses n > 1 but the .mo entries keep the Portuguese rule
+		Assert.assertEquals("0 ficheiros", GetText.trn(brazilianPortuguese, "{0} file", "{0} files", 0, 0));
+		Assert.assertEquals("Missing", GetText.tr(brazilianPortuguese, "Missing"));
+
+		//Files added later take precedence
+		GetText.add(new PoFile(portuguese, new ByteArrayInputStream(
+				"msgid \"Hello\"\nmsgstr \"Oi\"\n".getBytes(StandardCharsets.UTF_8))));
+		Assert.assertEquals("Oi", GetText.tr(portuguese, "Hello"));
+		Assert.assertEquals("Autocarro", GetText.tr(portuguese, "Bus"));
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidFile() throws IOException {
+		new MoFile(Locale.ENGLISH, ByteBuffer.wrap(new byte[64]));
+	}
+
+	@Test
+	public void testBinarySearch() throws IOException {
+		final List<TranslationEntry> entries = new ArrayList<TranslationEntry>();
+		for(int i = 0; i < 100; i++) {
+			final TranslationEntry entry = new TranslationEntry();
+			entry.setId("Message " + i);
+			entry.setString(0, "Missatge " + i);
+			entries.add(entry);
+		}
+		final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		MoFile.write(entries, outputStream);
+
+		//Files without a hash table are searched by their sorted msgids
+		final ByteBuffer buffer = ByteBuffer.wrap(outputStream.toByteArray());
+		buffer.put(20, (byte) 0);
+		buffer.put(21, (byte) 0);
+		final MoFile moFile = new MoFile(CATALAN, buffer);
+		for(int i = 0; i < 100; i++) {
+			Assert.assertEquals("Missatge " + i, moFile.getEntry(null, "Message " + i).getStrings().get(0));
+		}
+		Assert.assertNull(moFile.getEntry(null, "Message 100"));
+	}
+
+	private static MoFile createMoFile(Locale locale, String content) throws IOException {
+		final PoFile poFile = new PoFile(locale, new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+		final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		MoFile.write(poFile.getEntries(), outputStream);
+		return new MoFile(locale, ByteBuffer.wrap(outputStream.toByteArray()));
+	}
+}
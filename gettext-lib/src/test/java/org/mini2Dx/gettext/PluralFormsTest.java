@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright 2019 Thomas Cashman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.mini2Dx.gettext;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+public class PluralFormsTest {
+
+	@Test
+	public void testRussian() {
+		final PluralForms pluralForms = PluralForms.parse("nplurals=3; plural=(n%10==1 && n%100!=11 ? 0 : " +
+				"n%10>=2 && n%10<=4 && (n%100<10 || n%100>=20) ? 1 : 2);");
+		Assert.assertEquals(3, pluralForms.getTotalForms());
+
+		final int [] expected = new int [] { 2, 0, 1, 1, 1, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 0, 1 };
+		for(int n = 0; n < expected.length; n++) {
+			Assert.assertEquals("n=" + n, expected[n], pluralForms.evaluate(n));
+		}
+		Assert.assertEquals(0, pluralForms.evaluate(101));
+		Assert.assertEquals(2, pluralForms.evaluate(111));
+		Assert.assertEquals(0, pluralForms.evaluate(1000001));
+		Assert.assertEquals(2, pluralForms.evaluate(1000011));
+		Assert.assertEquals(1, pluralForms.evaluate(1000022));
+		Assert.assertEquals(2, pluralForms.evaluate(1000025));
+		Assert.assertEquals(1, pluralForms.evaluate(-3));
+		Assert.assertEquals(2, pluralForms.evaluate(Long.MIN_VALUE));
+		Assert.assertEquals(pluralForms, PluralForms.forLocale(new Locale("ru", "RU")));
+	}
+
+	@Test
+	public void testOperators() {
+		Assert.assertEquals(1, PluralForms.parse("nplurals=2; plural=!(n == 1);").evaluate(0));
+		Assert.assertEquals(0, PluralForms.parse("nplurals=2; plural=!(n == 1);").evaluate(1));
+		Assert.assertEquals(1, PluralForms.parse("nplurals=3; plural=n*2/4-1+1;").evaluate(3));
+		Assert.assertEquals(1, PluralForms.parse("nplurals=3; plural=n == 0 ? 2 : n == 1 ? 0 : 1;").evaluate(5));
+		Assert.assertEquals(2, PluralForms.parse("nplurals=3; plural=n == 0 ? 2 : n == 1 ? 0 : 1;").evaluate(0));
+		Assert.assertEquals(0, PluralForms.parse("nplurals=1; plural=0;").evaluate(42));
+		//Indices outside of nplurals select the first form
+		Assert.assertEquals(0, PluralForms.parse("nplurals=2; plural=n;").evaluate(5));
+		//Expressions that are not periodic in n are evaluated directly
+		Assert.assertEquals(1, PluralForms.parse("nplurals=2; plural=n / 2000;").evaluate(2500));
+		Assert.assertEquals(0, PluralForms.parse("nplurals=2; plural=n / 2000;").evaluate(1500));
+		Assert.assertEquals(1, PluralForms.parse("nplurals=2; plural=n > 5000;").evaluate(5001));
+		Assert.assertEquals(0, PluralForms.parse("nplurals=2; plural=n > 5000;").evaluate(5000));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidExpression() {
+		PluralForms.parse("nplurals=2; plural=(n != 1;");
+	}
+
+	@Test
+	public void testMalformedHeader() throws IOException {
+		final Locale polish = new Locale("pl");
+		final String[] malformedRules = new String[] { "plural=(n != 1;", "nplurals=x", "garbage", "plural=n%;" };
+		for(String malformedRule : malformedRules) {
+			final TranslationEntry header = new TranslationEntry();
+			header.setId("");
+			header.setString(0, "Content-Type: text/plain; charset=UTF-8\\nPlural-Forms: " + malformedRule + "\\n");
+			final PoFile poFile = new PoFile(polish);
+			poFile.getEntries().add(header);
+
+			final TranslationMap translationMap = new TranslationMap(polish);
+			translationMap.add(poFile);
+			Assert.assertEquals(malformedRule, PluralForms.forLocale(polish), translationMap.getPluralForms());
+
+			final ByteArrayOutputStream moOutputStream = new ByteArrayOutputStream();
+			MoFile.write(poFile.getEntries(), moOutputStream);
+			Assert.assertEquals(malformedRule, PluralForms.forLocale(polish),
+					new MoFile(polish, ByteBuffer.wrap(moOutputStream.toByteArray())).getPluralForms());
+
+			final ByteArrayOutputStream binOutputStream = new ByteArrayOutputStream();
+			BinFormat.writeCompressed(poFile.getEntries(), binOutputStream);
+			Assert.assertEquals(malformedRule, PluralForms.forLocale(polish),
+					new CompressedBinFile(polish, ByteBuffer.wrap(binOutputStream.toByteArray())).getPluralForms());
+		}
+	}
+
+	@Test
+	public void testBuiltInRules() {
+		Assert.assertEquals(PluralForms.DEFAULT, PluralForms.forLocale(Locale.ENGLISH));
+		Assert.assertEquals(PluralForms.DEFAULT, PluralForms.forLocale(Locale.ROOT));
+		Assert.assertEquals(1, PluralForms.forLocale(Locale.JAPAN).getTotalForms());
+		Assert.assertEquals(0, PluralForms.forLocale(Locale.FRANCE).evaluate(0));
+		Assert.assertEquals(0, PluralForms.forLocale(new Locale("pt", "BR")).evaluate(0));
+		Assert.assertEquals(1, PluralForms.forLocale(new Locale("pt", "PT")).evaluate(0));
+		Assert.assertEquals(6, PluralForms.forLocale(new Locale("ar")).getTotalForms());
+		Assert.assertEquals(3, PluralForms.forLocale(new Locale("ar")).evaluate(100003));
+		Assert.assertEquals(4, PluralForms.forLocale(new Locale("ar")).evaluate(100011));
+		Assert.assertEquals(5, PluralForms.forLocale(new Locale("ar")).evaluate(100100));
+		Assert.assertEquals(2, PluralForms.forLocale(new Locale("cs")).evaluate(1003));
+		Assert.assertEquals(4, PluralForms.forLocale(new Locale("ga")).evaluate(5000));
+	}
+
+	@Test
+	public void testHeader() throws IOException {
+		final String header = "Project-Id-Version: test\\n" +
+				"Plural-Forms: nplurals=3; plural=(n==1 ? 0 : n%10>=2 && n%10<=4 && (n%100<10 || n%100>=20) ? 1 : 2);\\n" +
+				"Content-Type: text/plain; charset=UTF-8\\n";
+		Assert.assertEquals(3, PluralForms.fromHeader(header).getTotalForms());
+		Assert.assertNull(PluralForms.fromHeader("Project-Id-Version: test\\n"));
+
+		//Header overrides the built-in rule for the locale
+		final TranslationMap translationMap = new TranslationMap(Locale.ENGLISH);
+		translationMap.add(new PoFile(Locale.ENGLISH, new ByteArrayInputStream(("msgid \"\"\n" +
+				"msgstr \"\"\n\"" + header.replace("\\n", "\\n\"\n\"") + "\"\n\n" +
+				"msgid \"{0} file\"\nmsgid_plural \"{0} files\"\n" +
+				"msgstr[0] \"{0} plik\"\nmsgstr[1] \"{0} pliki\"\nmsgstr[2] \"{0} plikow\"\n").getBytes(StandardCharsets.UTF_8))));
+
+		Assert.assertEquals(3, translationMap.getPluralForms().getTotalForms());
+		Assert.assertEquals("1 plik", translationMap.trn("{0} file", "{0} files", 1, 1));
+		Assert.assertEquals("3 pliki", translationMap.trn("{0} file", "{0} files", 3, 3));
+		Assert.assertEquals("5 plikow", translationMap.trn("{0} file", "{0} files", 5, 5));
+		Assert.assertEquals("22 pliki", translationMap.trn("{0} file", "{0} files", 22, 22));
+		Assert.assertEquals("{0} folders", translationMap.trn("{0} folder", "{0} folders", 2));
+	}
+}
@@ -7,9 +7,13 @@ import org.junit.Assert;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.util.Locale;
 
@@ -47,6 +51,54 @@ public class PoFileTest {
 		}
 	}
 
+	@Test
+	public void testReadPoFileBinaryVersion1() throws IOException {
+		final PoFile expected = new PoFile(Locale.ENGLISH, GetTextTest.class.getResourceAsStream("/sample_en.po"));
+		final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		final DataOutputStream dataOutputStream = new DataOutputStream(outputStream);
+		dataOutputStream.writeInt(expected.getEntries().size());
+		for(TranslationEntry translationEntry : expected.getEntries()) {
+			translationEntry.writeTo(dataOutputStream);
+		}
+
+		final PoFile result = PoFile.readFromBin(Locale.ENGLISH, new ByteArrayInputStream(outputStream.toByteArray()));
+		Assert.assertEquals(expected.getEntries(), result.getEntries());
+	}
+
+	@Test
+	public void testReadEntryFromBin() throws IOException {
+		final StringBuilder longString = new StringBuilder();
+		for(int i = 0; i < 70000; i++) {
+			longString.append((char) ('a' + (i % 26)));
+		}
+		final PoFile expected = new PoFile(Locale.ENGLISH, GetTextTest.class.getResourceAsStream("/sample_en.po"));
+		final TranslationEntry longEntry = new TranslationEntry();
+		longEntry.setId("Long \u00fc\u20ac");
+		longEntry.setString(0, longString.toString());
+		expected.getEntries().add(longEntry);
+		final File tmpFile = Files.createTempFile("", ".bin").toFile();
+		expected.saveToBin(tmpFile);
+
+		final ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(tmpFile.toPath()));
+		for(TranslationEntry expectedEntry : expected.getEntries()) {
+			Assert.assertEquals(expectedEntry, PoFile.readEntryFromBin(buffer, expectedEntry.getContext(), expectedEntry.getId()));
+		}
+		Assert.assertNull(PoFile.readEntryFromBin(buffer, null, "Missing entry"));
+		Assert.assertEquals(longString.toString(), PoFile.readFromBin(Locale.ENGLISH,
+				new FileInputStream(tmpFile)).getEntries().get(expected.getEntries().size() - 1).getStrings().get(0));
+	}
+
+	@Test(expected = IOException.class)
+	public void testReadCorruptPoFileBinary() throws IOException {
+		final PoFile expected = new PoFile(Locale.ENGLISH, GetTextTest.class.getResourceAsStream("/sample_en.po"));
+		final File tmpFile = Files.createTempFile("", ".bin").toFile();
+		expected.saveToBin(tmpFile);
+
+		final byte[] bytes = Files.readAllBytes(tmpFile.toPath());
+		bytes[bytes.length / 2] ^= 1;
+		PoFile.readFromBin(Locale.ENGLISH, new ByteArrayInputStream(bytes));
+	}
+
 	@Ignore
 	@Test
 	public void testReadPoFileWithNewLineInStr() throws IOException {
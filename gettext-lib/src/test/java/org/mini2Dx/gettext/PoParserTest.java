@@ -0,0 +1,196 @@
+/*******************************************************************************
+ * Copyright 2019 Thomas Cashman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.mini2Dx.gettext;
+
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Differential tests between the hand-written parser and the ANTLR GetText grammar
+ */
+public class PoParserTest {
+	private static final String [] SAMPLES = new String [] {
+			"/sample_ca.po", "/sample_en.po", "/sample_jp.po", "/sample_empty.po", "/sample_header.po", "/sample_newline.po"
+	};
+	private static final String [] COMMENTS = new String [] {
+			"# comment", "#. extracted", "#: src/file.java:1", "#, fuzzy", "#| msgid previous", "#", "#  ", "#:", "#.", "#,  flag",
+			"# \\\"escaped\\\"", "# msgid in comment", "# \"quoted\""
+	};
+	private static final String [] MESSAGES = new String [] {
+			"msgid \"id\"", "msgid \"\"", "msgctxt \"context\"", "msgid_plural \"plural\"", "msgstr \"str\"", "msgstr[0] \"zero\"",
+			"msgstr[1] \"one\"", "msgstr[0] unquoted", "msgid  leading space", "msgstr \"escaped \\\" quote\"",
+			"msgid \"escaped\\nnewline\"", "msgstr[0]  ", "msgstr [0]", "msgstr  [0] text", "msgid \"raw\nnewline\"",
+			"msgid \"trailing\" text", "msgstr \"unterminated", "msgid ", "msgstr\t[2] \"tab\"", "msgidx \"id\"", "  msgid \"indented\""
+	};
+	private static final String [] CONTINUATIONS = new String [] {
+			"\"continued\"", " \"continued\"", "\t\"continued\"", "   \"continued\"", "\"\""
+	};
+
+	@Test
+	public void testSamples() throws IOException {
+		for(String sample : SAMPLES) {
+			final PoFile antlrFile = new PoFile(Locale.ENGLISH, PoParserTest.class.getResourceAsStream(sample), antlrSettings());
+			final PoFile poFile = new PoFile(Locale.ENGLISH, PoParserTest.class.getResourceAsStream(sample));
+			Assert.assertEquals(sample, antlrFile.getEntries(), poFile.getEntries());
+		}
+	}
+
+	@Test
+	public void testRandomFiles() {
+		final Random random = new Random(2019);
+		int totalValid = 0;
+		for(int i = 0; i < 5000; i++) {
+			final String content = generate(random);
+			final Object expected = parse(content, true);
+			Assert.assertEquals(content, expected, parse(content, false));
+			if(expected instanceof List) {
+				totalValid++;
+			}
+		}
+		Assert.assertTrue(totalValid > 500);
+	}
+
+	@Test
+	public void testByteBuffer() throws IOException {
+		final PoFile expected = new PoFile(Locale.ENGLISH, PoParserTest.class.getResourceAsStream("/sample_ca.po"));
+		final InputStream inputStream = PoParserTest.class.getResourceAsStream("/sample_ca.po");
+		final byte [] bytes = new byte[64 * 1024];
+		int length = 0;
+		int read;
+		while((read = inputStream.read(bytes, length, bytes.length - length)) > 0) {
+			length += read;
+		}
+		inputStream.close();
+
+		final ByteBuffer byteBuffer = ByteBuffer.allocateDirect(length);
+		byteBuffer.put(bytes, 0, length).flip();
+		Assert.assertEquals(expected.getEntries(), new PoFile(Locale.ENGLISH, byteBuffer).getEntries());
+		Assert.assertEquals(expected.getEntries(), new PoFile(Locale.ENGLISH, ByteBuffer.wrap(bytes, 0, length)).getEntries());
+	}
+
+	@Test
+	public void testParseSettings() throws IOException {
+		final PoParseSettings parseSettings = new PoParseSettings();
+		parseSettings.extractedComments = false;
+		parseSettings.flags = false;
+		parseSettings.mergeComments = false;
+		parseSettings.reference = false;
+		parseSettings.translatorComments = false;
+
+		final PoFile poFile = new PoFile(Locale.ENGLISH, PoParserTest.class.getResourceAsStream("/sample_ca.po"), parseSettings);
+		for(TranslationEntry entry : poFile.getEntries()) {
+			Assert.assertTrue(entry.getExtractedComments().isEmpty());
+			Assert.assertTrue(entry.getFlags().isEmpty());
+			Assert.assertTrue(entry.getMergeComments().isEmpty());
+			Assert.assertTrue(entry.getTranslatorComments().isEmpty());
+			Assert.assertNull(entry.getReference());
+		}
+		Assert.assertEquals("Error desconegut del \"sistema\"", poFile.getEntries().get(0).getStrings().get(0));
+	}
+
+	@Test(expected = ParseCancellationException.class)
+	public void testExceptionOnParseFailure() throws IOException {
+		new PoFile(Locale.ENGLISH, PoParserTest.class.getResourceAsStream("/sample_error.po"));
+	}
+
+	@Test
+	public void testParseAfterFailure() throws IOException {
+		//Each file fails the SLL pass, is reparsed with LL prediction and fails again
+		final String [] invalidFiles = new String [] {
+				"msgid \"a\"\nmsgstr \"b\"\n\nmsgid \"c\"\nmsgstr \"unterminated\n",
+				"msgid \"a\"\nmsgstr \"b\"\n\nmsgid \"trailing\" text\nmsgstr \"d\"\n",
+				"#, fuzzy\n\"orphan\"\nmsgstr \"str\"\n",
+				"msgidx \"id\"\nmsgstr \"str\"\n"
+		};
+		final List<TranslationEntry> expected = new PoFile(Locale.ENGLISH,
+				PoParserTest.class.getResourceAsStream("/sample_ca.po")).getEntries();
+		for(String content : invalidFiles) {
+			Assert.assertEquals(content, "ParseCancellationException", parse(content, true));
+			Assert.assertEquals(content, "ParseCancellationException", parse(content, false));
+
+			//The pooled pipeline is reused by the next file parsed on this thread
+			final PoFile poFile = new PoFile(Locale.ENGLISH, PoParserTest.class.getResourceAsStream("/sample_ca.po"),
+					antlrSettings());
+			Assert.assertEquals(content, expected, poFile.getEntries());
+		}
+	}
+
+	private static Object parse(String content, boolean antlr) {
+		final PoParseSettings parseSettings = antlr ? antlrSettings() : new PoParseSettings();
+		try {
+			return new PoFile(Locale.ENGLISH, new StringReader(content), parseSettings).getEntries();
+		} catch (ParseCancellationException e) {
+			return "ParseCancellationException";
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static String generate(Random random) {
+		final StringBuilder result = new StringBuilder();
+		final int totalEntries = 1 + random.nextInt(5);
+		for(int i = 0; i < totalEntries; i++) {
+			final int totalBlankLines = random.nextInt(3);
+			for(int j = 0; j < totalBlankLines; j++) {
+				result.append(random.nextInt(6) == 0 ? " \n" : "\n");
+			}
+			final int totalComments = random.nextInt(3);
+			for(int j = 0; j < totalComments; j++) {
+				result.append(pick(random, COMMENTS)).append('\n');
+			}
+			final int totalMessages = 1 + random.nextInt(4);
+			for(int j = 0; j < totalMessages; j++) {
+				if(j > 0) {
+					result.append(random.nextInt(10) == 0 ? "\r\n" : "\n");
+				}
+				result.append(random.nextInt(8) == 0 ? pick(random, MESSAGES) : pick(random, MESSAGES, 7));
+				while(random.nextInt(4) == 0) {
+					result.append('\n').append(pick(random, CONTINUATIONS));
+				}
+			}
+			if(i < totalEntries - 1 || random.nextBoolean()) {
+				result.append('\n');
+			}
+		}
+		if(random.nextInt(5) == 0) {
+			result.append("\n\n");
+		}
+		return result.toString();
+	}
+
+	private static String pick(Random random, String [] values) {
+		return values[random.nextInt(values.length)];
+	}
+
+	private static String pick(Random random, String [] values, int limit) {
+		return values[random.nextInt(limit)];
+	}
+
+	private static PoParseSettings antlrSettings() {
+		final PoParseSettings result = new PoParseSettings();
+		result.antlr = true;
+		return result;
+	}
+}
@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright 2019 Thomas Cashman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.mini2Dx.gettext;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+public class PoReaderTest {
+
+	@Test
+	public void testIterator() throws IOException {
+		final PoFile poFile = new PoFile(Locale.ENGLISH, PoReaderTest.class.getResourceAsStream("/sample_ca.po"));
+
+		final PoReader poReader = new PoReader(PoReaderTest.class.getResourceAsStream("/sample_ca.po"));
+		final List<TranslationEntry> entries = new ArrayList<TranslationEntry>();
+		for(TranslationEntry entry : poReader) {
+			entries.add(entry);
+		}
+		poReader.close();
+		Assert.assertEquals(poFile.getEntries(), entries);
+		Assert.assertFalse(poReader.hasNext());
+	}
+
+	@Test
+	public void testRead() throws IOException {
+		final PoFile poFile = new PoFile(Locale.ENGLISH, PoReaderTest.class.getResourceAsStream("/sample_jp.po"));
+
+		final PoReader poReader = new PoReader(PoReaderTest.class.getResourceAsStream("/sample_jp.po"));
+		Assert.assertTrue(poReader.hasNext());
+		for(TranslationEntry expected : poFile.getEntries()) {
+			Assert.assertEquals(expected, poReader.read());
+		}
+		Assert.assertNull(poReader.read());
+		poReader.close();
+	}
+
+	@Test
+	public void testLargeStream() throws IOException {
+		final int totalEntries = 200000;
+		final PoReader poReader = new PoReader(new GeneratedPoReader(totalEntries));
+
+		int index = 0;
+		TranslationEntry entry;
+		while((entry = poReader.read()) != null) {
+			Assert.assertEquals("Message " + index, entry.getId());
+			Assert.assertEquals("Missatge " + index, entry.getStrings().get(0));
+			index++;
+		}
+		Assert.assertEquals(totalEntries, index);
+	}
+
+	/**
+	 * Generates .po entries on demand so that the file is never held in memory
+	 */
+	private static class GeneratedPoReader extends Reader {
+		private final int totalEntries;
+		private final StringBuilder current = new StringBuilder();
+
+		private int entryIndex = 0;
+		private int position = 0;
+
+		public GeneratedPoReader(int totalEntries) {
+			super();
+			this.totalEntries = totalEntries;
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) {
+			if(position == current.length()) {
+				if(entryIndex == totalEntries) {
+					return -1;
+				}
+				current.setLength(0);
+				current.append("#: src/Message.java:").append(entryIndex).append('\n');
+				current.append("msgid \"Message ").append(entryIndex).append("\"\n");
+				current.append("msgstr \"Missatge ").append(entryIndex).append("\"\n\n");
+				entryIndex++;
+				position = 0;
+			}
+			final int result = Math.min(len, current.length() - position);
+			current.getChars(position, position + result, cbuf, off);
+			position += result;
+			return result;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
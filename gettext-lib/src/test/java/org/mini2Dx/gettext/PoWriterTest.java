@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright 2019 Thomas Cashman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.mini2Dx.gettext;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Locale;
+
+public class PoWriterTest {
+	private static final String NEWLINE = System.lineSeparator();
+
+	@Test
+	public void testEscaping() throws IOException {
+		final TranslationEntry entry = new TranslationEntry();
+		entry.setId("Say \"Hi\"\tthen\nleave C:\\");
+		entry.setString(0, "Sag \\\"Hallo\\\"\\n");
+
+		Assert.assertEquals("msgid \"\"" + NEWLINE +
+				"\"Say \\\"Hi\\\"\\tthen\\n\"" + NEWLINE +
+				"\"leave C:\\\\\"" + NEWLINE +
+				"msgstr \"Sag \\\"Hallo\\\"\\n\"" + NEWLINE, write(entry, PoWriter.DEFAULT_WRAP_WIDTH));
+	}
+
+	@Test
+	public void testWrapping() throws IOException {
+		final TranslationEntry entry = new TranslationEntry();
+		entry.setContext("menu");
+		entry.setId("The quick brown fox jumps over the lazy dog");
+		entry.setString(0, "First line\\nSecond line");
+
+		Assert.assertEquals("msgctxt \"menu\"" + NEWLINE +
+				"msgid \"\"" + NEWLINE +
+				"\"The quick brown fox \"" + NEWLINE +
+				"\"jumps over the lazy \"" + NEWLINE +
+				"\"dog\"" + NEWLINE +
+				"msgstr \"\"" + NEWLINE +
+				"\"First line\\n\"" + NEWLINE +
+				"\"Second line\"" + NEWLINE, write(entry, 24));
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		final PoFile expected = new PoFile(Locale.ENGLISH, GetTextTest.class.getResourceAsStream("/sample_en.po"));
+		final TranslationEntry entry = new TranslationEntry();
+		entry.setId("A long message that will be wrapped over several lines\\n because it is far wider than " +
+				"the default width of seventy-nine characters and also includes \"quotes\".");
+		entry.setIdPlural("Messages");
+		entry.setString(0, "Line one\\nLine two\\n");
+		entry.setString(1, "Lines");
+		expected.getEntries().add(entry);
+
+		final StringWriter writer = new StringWriter();
+		final PoWriter poWriter = new PoWriter(writer);
+		poWriter.write(expected.getEntries());
+		poWriter.close();
+
+		final PoFile result = new PoFile(Locale.ENGLISH, new StringReader(writer.toString()));
+		Assert.assertEquals(expected.getEntries(), result.getEntries());
+	}
+
+	private static String write(TranslationEntry entry, int wrapWidth) throws IOException {
+		final StringWriter writer = new StringWriter();
+		final PoWriter poWriter = new PoWriter(writer);
+		poWriter.setWrapWidth(wrapWidth);
+		poWriter.write(entry);
+		poWriter.close();
+		return writer.toString();
+	}
+}
@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright 2019 Thomas Cashman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.mini2Dx.gettext;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+public class StringPoolTest {
+
+	@Test
+	public void testSharedAcrossLocales() throws IOException {
+		final StringPool stringPool = new StringPool();
+		final PoFile caFile = new PoFile(Locale.forLanguageTag("ca-ES"), StringPoolTest.class.getResourceAsStream("/sample_ca.po"));
+		final PoFile jpFile = new PoFile(Locale.JAPAN, StringPoolTest.class.getResourceAsStream("/sample_jp.po"));
+
+		final TranslationMap caMap = new TranslationMap(caFile.getLocale());
+		caMap.add(caFile, stringPool);
+		Assert.assertEquals(0, stringPool.getTotalShared());
+		Assert.assertEquals(0, stringPool.getBytesSaved());
+
+		final List<String> jpIds = new ArrayList<String>();
+		for(TranslationEntry entry : jpFile.getEntries()) {
+			jpIds.add(entry.getId());
+		}
+		final TranslationMap jpMap = new TranslationMap(jpFile.getLocale());
+		jpMap.add(jpFile, stringPool);
+		//The PoFile keeps its own strings
+		for(int i = 0; i < jpIds.size(); i++) {
+			Assert.assertSame(jpIds.get(i), jpFile.getEntries().get(i).getId());
+		}
+
+		final String id = "Unknown \"system\" error";
+		Assert.assertSame(caMap.getEntry(id).getId(), jpMap.getEntry("system context", id).getId());
+		Assert.assertTrue(stringPool.getTotalShared() > 0);
+		Assert.assertTrue(stringPool.getBytesSaved() >= stringPool.getTotalShared() * StringPool.estimateSize(""));
+		Assert.assertEquals("Error desconegut del \"sistema\"", caMap.tr(id));
+
+		//Adding the same entries again does not count as saving
+		final long bytesSaved = stringPool.getBytesSaved();
+		caMap.add(caFile, stringPool);
+		Assert.assertEquals(bytesSaved, stringPool.getBytesSaved());
+	}
+
+	@Test
+	public void testReadFromBin() throws IOException {
+		final PoFile expected = new PoFile(Locale.ENGLISH, StringPoolTest.class.getResourceAsStream("/sample_en.po"));
+		final File tmpFile = Files.createTempFile("", ".bin").toFile();
+		tmpFile.deleteOnExit();
+		expected.saveToBin(tmpFile);
+
+		final StringPool stringPool = new StringPool();
+		final PoFile first = PoFile.readFromBin(Locale.ENGLISH, new FileInputStream(tmpFile), stringPool);
+		final PoFile second = PoFile.readFromBin(Locale.UK, new FileInputStream(tmpFile), stringPool);
+
+		Assert.assertEquals(expected.getEntries(), second.getEntries());
+		for(int i = 0; i < first.getEntries().size(); i++) {
+			Assert.assertSame(first.getEntries().get(i).getId(), second.getEntries().get(i).getId());
+		}
+		Assert.assertTrue(stringPool.getBytesSaved() > 0);
+	}
+}
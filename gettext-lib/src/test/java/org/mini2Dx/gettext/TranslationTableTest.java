@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright 2019 Thomas Cashman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.mini2Dx.gettext;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class TranslationTableTest {
+
+	@Test
+	public void testContextsAndPluralForms() {
+		final List<TranslationEntry> entries = new ArrayList<TranslationEntry>();
+		for(int i = 0; i < 5000; i++) {
+			entries.add(createEntry(null, "id" + i, null, "str" + i));
+			entries.add(createEntry("context" + (i % 7), "id" + i, "ids" + i, "ctx" + i));
+		}
+		final TranslationTable table = TranslationTable.with(TranslationTable.EMPTY, entries);
+		Assert.assertEquals(15000, table.size());
+
+		for(int i = 0; i < 5000; i++) {
+			Assert.assertEquals("str" + i, table.getBySingularForm(null, "id" + i).getString(0));
+			Assert.assertEquals("str" + i, table.getBySingularForm("", "id" + i).getString(0));
+			Assert.assertEquals("ctx" + i, table.getBySingularForm("context" + (i % 7), "id" + i).getString(0));
+			Assert.assertEquals("ctx" + i, table.getByPluralForm("context" + (i % 7), "ids" + i).getString(0));
+			Assert.assertNull(table.getByPluralForm(null, "ids" + i));
+			Assert.assertNull(table.getBySingularForm("context" + ((i + 1) % 7), "id" + i));
+		}
+		Assert.assertNull(table.getBySingularForm(null, "missing"));
+		Assert.assertNull(table.getBySingularForm(null, null));
+	}
+
+	@Test
+	public void testLaterEntriesReplaceExisting() {
+		final TranslationTable original = TranslationTable.with(TranslationTable.EMPTY,
+				Collections.singletonList(createEntry("context", "id", null, "original")));
+		final TranslationTable result = TranslationTable.with(original,
+				Collections.singletonList(createEntry("context", "id", null, "replaced")));
+
+		Assert.assertEquals(1, result.size());
+		Assert.assertEquals("original", original.getBySingularForm("context", "id").getString(0));
+		Assert.assertEquals("replaced", result.getBySingularForm("context", "id").getString(0));
+	}
+
+	@Test
+	public void testMergeKeepsTranslatedFallback() {
+		final TranslationTable fallback = TranslationTable.with(TranslationTable.EMPTY, Arrays.asList(
+				createEntry(null, "id1", null, "fallback1"), createEntry(null, "id2", null, "fallback2")));
+		final TranslationTable overlay = TranslationTable.with(TranslationTable.EMPTY, Arrays.asList(
+				createEntry(null, "id1", null, ""), createEntry(null, "id2", null, "overlay2"),
+				createEntry(null, "id3", null, "")));
+		final TranslationTable result = TranslationTable.merge(fallback, overlay);
+
+		Assert.assertEquals(3, result.size());
+		Assert.assertEquals("fallback1", result.getBySingularForm(null, "id1").getString(0));
+		Assert.assertEquals("overlay2", result.getBySingularForm(null, "id2").getString(0));
+		Assert.assertFalse(result.getBySingularForm(null, "id3").isTranslated());
+	}
+
+	@Test
+	public void testKeySlots() {
+		final List<TranslationEntry> entries = new ArrayList<TranslationEntry>();
+		for(int i = 0; i < 1000; i++) {
+			entries.add(createEntry(i % 2 == 0 ? null : "slot context", "slot id" + i, null, "slot str" + i));
+		}
+		final int totalSlots = TranslationKey.getTotalSlots();
+		final TranslationTable table = TranslationTable.with(TranslationTable.EMPTY, entries);
+		//Catalog keys are not assigned slots
+		Assert.assertEquals(totalSlots, TranslationKey.getTotalSlots());
+
+		final TranslationKey key = TranslationKey.of("slot context", "slot id7");
+		final TranslationKey missingKey = TranslationKey.of("slot id7");
+		Assert.assertEquals(totalSlots + 2, TranslationKey.getTotalSlots());
+		Assert.assertEquals(key.getSlot(), TranslationKey.of("slot context", "slot id7").getSlot());
+		for(int i = 0; i < 2; i++) {
+			Assert.assertEquals("slot str7", table.getByKey(key).getString(0));
+			Assert.assertNull(table.getByKey(missingKey));
+		}
+
+		final TranslationTable replaced = TranslationTable.with(table,
+				Collections.singletonList(createEntry("slot context", "slot id7", null, "replaced")));
+		Assert.assertEquals("replaced", replaced.getByKey(key).getString(0));
+		Assert.assertEquals("slot str7", table.getByKey(key).getString(0));
+	}
+
+	private static TranslationEntry createEntry(String context, String id, String idPlural, String str) {
+		final TranslationEntry entry = new TranslationEntry();
+		entry.setContext(context);
+		entry.setId(id);
+		entry.setIdPlural(idPlural);
+		entry.setString(0, str);
+		return entry;
+	}
+}